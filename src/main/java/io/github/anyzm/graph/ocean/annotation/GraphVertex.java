@@ -7,6 +7,7 @@ package io.github.anyzm.graph.ocean.annotation;
 
 
 import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 
 import java.lang.annotation.*;
 
@@ -39,4 +40,13 @@ public @interface GraphVertex {
      */
     boolean idAsField() default true;
 
+    /**
+     * 批量保存时未指定写入方式时使用的写入方式：UPSERT逐条读改写，未写入的属性保持原值；
+     * INSERT、INSERT_IF_NOT_EXISTS把属性集合相同的顶点合并成多行INSERT语句，单条语句最多1000行，
+     * 且不超过分批策略的字节上限，INSERT覆盖已存在的数据，INSERT_IF_NOT_EXISTS不修改已存在的数据
+     *
+     * @return 批量写入方式
+     */
+    GraphWriteModeEnum writeMode() default GraphWriteModeEnum.UPSERT;
+
 }
@@ -0,0 +1,210 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.common;
+
+import io.github.anyzm.graph.ocean.dao.GraphEntityMapping;
+import io.github.anyzm.graph.ocean.dao.RowMapper;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultRowMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description  GraphEntityMappings is used for
+ * 查找注解处理器生成的GraphEntityMapping，找不到时返回null，由调用方回退到反射；
+ * 同时为生成的代码提供访问不可见字段和构造方法的MethodHandle，句柄只在生成类初始化时创建一次
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:45
+ * @version 1.0.0
+ */
+@Slf4j
+public class GraphEntityMappings {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final Map<Class, Optional<GraphEntityMapping>> MAPPING_MAP = new ConcurrentHashMap<>();
+
+    private GraphEntityMappings() {
+    }
+
+    /**
+     * @param clazz 实体类
+     * @return 注解处理器为该类生成的映射，没有生成时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GraphEntityMapping<T> find(Class<T> clazz) {
+        if (clazz == null) {
+            return null;
+        }
+        return MAPPING_MAP.computeIfAbsent(clazz, GraphEntityMappings::load).orElse(null);
+    }
+
+    /**
+     * @param clazz 实体类
+     * @return 生成的行解析器，没有生成时返回缓存的DefaultRowMapper
+     */
+    public static <T> RowMapper<T> getRowMapper(Class<T> clazz) {
+        GraphEntityMapping<T> mapping = find(clazz);
+        return mapping != null ? mapping.getRowMapper() : DefaultRowMapper.of(clazz);
+    }
+
+    /**
+     * @param clazz 实体类
+     * @return 生成类的全限定名，嵌套类的类名用_连接
+     */
+    public static String mappingClassName(Class<?> clazz) {
+        String name = clazz.getName();
+        Package pkg = clazz.getPackage();
+        int prefix = pkg == null || pkg.getName().isEmpty() ? 0 : pkg.getName().length() + 1;
+        return name.substring(0, prefix) + name.substring(prefix).replace('$', '_') + GraphEntityMapping.CLASS_SUFFIX;
+    }
+
+    private static Optional<GraphEntityMapping> load(Class<?> clazz) {
+        String mappingClassName = mappingClassName(clazz);
+        try {
+            Class<?> mappingClass = Class.forName(mappingClassName, true, clazz.getClassLoader());
+            GraphEntityMapping mapping = (GraphEntityMapping) mappingClass.getDeclaredConstructor().newInstance();
+            if (mapping.getType() != clazz) {
+                log.warn("生成的映射类型不匹配，使用反射,class={},mapping={}", clazz.getName(), mappingClassName);
+                return Optional.empty();
+            }
+            log.debug("使用生成的映射,class={}", clazz.getName());
+            return Optional.of(mapping);
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        } catch (Exception | LinkageError e) {
+            log.warn("加载生成的映射失败，使用反射,class={},mapping={}", clazz.getName(), mappingClassName, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return 无参构造方法的句柄，类型为()Object，没有可用的无参构造方法时返回null
+     */
+    public static MethodHandle constructor(Class<?> clazz) {
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param declaringClass 声明字段的类
+     * @param fieldName      字段名
+     * @return 读取字段的句柄，类型为(Object)Object
+     */
+    public static MethodHandle getter(Class<?> declaringClass, String fieldName) {
+        Field field = field(declaringClass, fieldName);
+        try {
+            return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param declaringClass 声明字段的类
+     * @param fieldName      字段名
+     * @return 给字段赋值的句柄，类型为(Object,Object)void，final字段通过Field.set赋值
+     */
+    public static MethodHandle setter(Class<?> declaringClass, String fieldName) {
+        return setter(field(declaringClass, fieldName));
+    }
+
+    /**
+     * @param field 字段
+     * @return 给字段赋值的句柄，类型为(Object,Object)void，final字段通过Field.set赋值
+     */
+    public static MethodHandle setter(Field field) {
+        field.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            try {
+                return lookup.findVirtual(Field.class, "set", SETTER_TYPE).bindTo(field);
+            } catch (NoSuchMethodException | IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    private static Field field(Class<?> declaringClass, String fieldName) {
+        try {
+            Field field = declaringClass.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 通过constructor得到的句柄创建实体
+     *
+     * @throws InstantiationException 句柄为空或构造方法抛出受检异常
+     */
+    public static Object newInstance(MethodHandle constructor, Class<?> clazz) throws InstantiationException {
+        if (constructor == null) {
+            throw new InstantiationException(clazz.getName());
+        }
+        try {
+            return constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            InstantiationException exception = new InstantiationException(clazz.getName());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * 通过getter得到的句柄读取字段
+     */
+    public static Object get(MethodHandle getter, Object obj) {
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 通过setter得到的句柄给字段赋值
+     *
+     * @throws IllegalAccessException 通过Field.set给final字段赋值失败
+     */
+    public static void set(MethodHandle setter, Object obj, Object value) throws IllegalAccessException {
+        try {
+            setter.invokeExact(obj, value);
+        } catch (RuntimeException | Error | IllegalAccessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
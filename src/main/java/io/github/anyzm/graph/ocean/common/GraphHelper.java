@@ -8,15 +8,15 @@ package io.github.anyzm.graph.ocean.common;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.dao.GraphEntityMapping;
 import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
 import io.github.anyzm.graph.ocean.domain.GraphLabel;
 import io.github.anyzm.graph.ocean.domain.GraphLabelBuilder;
+import io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeType;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
-import io.github.anyzm.graph.ocean.enums.ErrorEnum;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
 import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
-import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.collections.CollectionUtils;
@@ -118,69 +118,46 @@ public class GraphHelper {
     }
 
 
-    private static void collectGraphField(GraphLabelBuilder graphLabelBuilder, Field declaredField, List<String> mustProps,
+    private static void collectGraphField(GraphLabelBuilder graphLabelBuilder, GraphPropertyDescriptor descriptor, List<String> mustProps,
                                           Map<String, String> propertyFieldMap, Map<String, GraphValueFormatter> propertyFormatMap,
                                           Map<String, GraphDataTypeEnum> dataTypeMap, boolean srcIdAsField, boolean dstIdAsField) {
-        declaredField.setAccessible(true);
-        GraphProperty graphProperty = declaredField.getAnnotation(GraphProperty.class);
-        if (graphProperty == null) {
-            return;
-        }
-        String value = graphProperty.value();
-        dataTypeMap.put(value, graphProperty.dataType());
-        Class<? extends GraphValueFormatter> formatter = graphProperty.formatter();
-        GraphPropertyTypeEnum graphPropertyTypeEnum = graphProperty.propertyTypeEnum();
-        switch (graphPropertyTypeEnum) {
+        String value = descriptor.getProperty();
+        dataTypeMap.put(value, descriptor.getDataType());
+        switch (descriptor.getPropertyTypeEnum()) {
             case GRAPH_VERTEX_ID:
                 if (srcIdAsField && dstIdAsField) {
-                    propertyFieldMap.put(declaredField.getName(), value);
+                    propertyFieldMap.put(descriptor.getFieldName(), value);
                     mustProps.add(value);
                 }
-                if (GraphValueFormatter.class != formatter) {
-                    try {
-                        graphLabelBuilder.idValueFormatter(formatter.newInstance());
-                    } catch (Exception e) {
-                        throw new NebulaException(ErrorEnum.FIELD_FORMAT_NO_CONSTRUCTOR);
-                    }
+                if (descriptor.hasFormatter()) {
+                    graphLabelBuilder.idValueFormatter(descriptor.newFormatter());
                 }
                 break;
             case GRAPH_EDGE_SRC_ID:
                 if (srcIdAsField) {
-                    propertyFieldMap.put(declaredField.getName(), value);
+                    propertyFieldMap.put(descriptor.getFieldName(), value);
                     mustProps.add(value);
                 }
-                if (GraphValueFormatter.class != formatter) {
-                    try {
-                        graphLabelBuilder.srcIdValueFormatter(formatter.newInstance());
-                    } catch (Exception e) {
-                        throw new NebulaException(ErrorEnum.FIELD_FORMAT_NO_CONSTRUCTOR);
-                    }
+                if (descriptor.hasFormatter()) {
+                    graphLabelBuilder.srcIdValueFormatter(descriptor.newFormatter());
                 }
                 break;
             case GRAPH_EDGE_DST_ID:
                 if (dstIdAsField) {
-                    propertyFieldMap.put(declaredField.getName(), value);
+                    propertyFieldMap.put(descriptor.getFieldName(), value);
                     mustProps.add(value);
                 }
-                if (GraphValueFormatter.class != formatter) {
-                    try {
-                        graphLabelBuilder.dstIdValueFormatter(formatter.newInstance());
-                    } catch (Exception e) {
-                        throw new NebulaException(ErrorEnum.FIELD_FORMAT_NO_CONSTRUCTOR);
-                    }
+                if (descriptor.hasFormatter()) {
+                    graphLabelBuilder.dstIdValueFormatter(descriptor.newFormatter());
                 }
                 break;
             case ORDINARY_PROPERTY:
-                propertyFieldMap.put(declaredField.getName(), value);
-                if (graphProperty.required()) {
+                propertyFieldMap.put(descriptor.getFieldName(), value);
+                if (descriptor.isRequired()) {
                     mustProps.add(value);
                 }
-                if (GraphValueFormatter.class != formatter) {
-                    try {
-                        propertyFormatMap.put(value, formatter.newInstance());
-                    } catch (Exception e) {
-                        throw new NebulaException(ErrorEnum.FIELD_FORMAT_NO_CONSTRUCTOR);
-                    }
+                if (descriptor.hasFormatter()) {
+                    propertyFormatMap.put(value, descriptor.newFormatter());
                 }
                 break;
             default:
@@ -189,10 +166,32 @@ public class GraphHelper {
 
     }
 
+    /**
+     * 有注解处理器生成的映射时直接使用其中的字段描述，否则反射读取类及其父类的@GraphProperty字段
+     */
+    private static List<GraphPropertyDescriptor> listPropertyDescriptors(Class clazz) {
+        GraphEntityMapping mapping = GraphEntityMappings.find(clazz);
+        if (mapping != null) {
+            return mapping.getPropertyDescriptors();
+        }
+        List<GraphPropertyDescriptor> descriptors = Lists.newArrayList();
+        Class c = clazz;
+        while (c != Object.class) {
+            for (Field declaredField : c.getDeclaredFields()) {
+                GraphPropertyDescriptor descriptor = GraphPropertyDescriptor.of(declaredField);
+                if (descriptor != null) {
+                    descriptors.add(descriptor);
+                }
+            }
+            c = c.getSuperclass();
+        }
+        return descriptors;
+    }
+
     public static void collectGraphProperties(GraphLabelBuilder graphLabelBuilder, Class clazz,
                                               boolean srcIdAsField, boolean dstIdAsField) throws NebulaException {
-        Field[] declaredFields = clazz.getDeclaredFields();
-        int size = declaredFields.length;
+        List<GraphPropertyDescriptor> descriptors = listPropertyDescriptors(clazz);
+        int size = descriptors.size();
         List<String> mustProps = Lists.newArrayListWithExpectedSize(size);
         //所有属性（包括必要属性）
         Map<String, String> propertyFieldMap = Maps.newHashMapWithExpectedSize(size);
@@ -200,19 +199,10 @@ public class GraphHelper {
         Map<String, GraphDataTypeEnum> dataTypeMap = Maps.newHashMapWithExpectedSize(size);
         //字段转换工厂
         Map<String, GraphValueFormatter> propertyFormatMap = Maps.newHashMapWithExpectedSize(size);
-        for (Field declaredField : declaredFields) {
-            collectGraphField(graphLabelBuilder, declaredField, mustProps, propertyFieldMap, propertyFormatMap,
+        for (GraphPropertyDescriptor descriptor : descriptors) {
+            collectGraphField(graphLabelBuilder, descriptor, mustProps, propertyFieldMap, propertyFormatMap,
                     dataTypeMap, srcIdAsField, dstIdAsField);
         }
-        Class superclass = clazz.getSuperclass();
-        while (superclass != Object.class) {
-            declaredFields = superclass.getDeclaredFields();
-            for (Field declaredField : declaredFields) {
-                collectGraphField(graphLabelBuilder, declaredField, mustProps, propertyFieldMap, propertyFormatMap,
-                        dataTypeMap, srcIdAsField, dstIdAsField);
-            }
-            superclass = superclass.getSuperclass();
-        }
         graphLabelBuilder.labelClass(clazz);
         graphLabelBuilder.dataTypeMap(dataTypeMap);
         graphLabelBuilder.mustProps(mustProps);
@@ -220,6 +210,21 @@ public class GraphHelper {
         graphLabelBuilder.propertyFormatMap(propertyFormatMap);
     }
 
+    /**
+     * 追加一个属性值到ngql中，字符串类型的值使用双引号包裹
+     *
+     * @param builder
+     * @param graphDataTypeEnum
+     * @param value
+     * @return
+     */
+    public static StringBuilder appendPropertyValue(StringBuilder builder, GraphDataTypeEnum graphDataTypeEnum, Object value) {
+        if (GraphDataTypeEnum.STRING.equals(graphDataTypeEnum)) {
+            return builder.append('"').append(value).append('"');
+        }
+        return builder.append(value);
+    }
+
     public static Object formatFieldValue(Field declaredField, GraphProperty graphProperty, Object input, GraphLabel graphLabel) {
         Object value = null;
         try {
@@ -11,6 +11,7 @@ import java.util.List;
 
 /**
  * 业务说明：为了避免重复创建StringBuilder并扩容带来的内存浪费和性能消耗<br/>
+ * builder从有界的StringBuilderPool中借用，不再按线程缓存，大量虚拟线程下也不会随线程数增长<br/>
  * 注意<br/>:
  * 尽量不要用在字符串过大的场景
  *
@@ -22,13 +23,6 @@ public class LocalStringBuilder {
     private LocalStringBuilder() {
     }
 
-    private static final ThreadLocal<StringBuilder> localStringBuilder = new ThreadLocal<StringBuilder>() {
-        @Override
-        protected StringBuilder initialValue() {
-            return new StringBuilder();
-        }
-    };
-
     public static String appendList(String split, List<?> args) {
         if (args == null || args.isEmpty()) {
             return StringUtils.EMPTY;
@@ -40,8 +34,8 @@ public class LocalStringBuilder {
         if (args == null || args.length == 0) {
             return StringUtils.EMPTY;
         }
-        StringBuilder builder = localStringBuilder.get();
-        builder.setLength(0);
+        StringBuilderPool pool = StringBuilderPool.shared();
+        StringBuilder builder = pool.acquire();
         builder.append(args[0]);
         for (int i = 1; i < args.length; i++) {
             if (split != null) {
@@ -49,7 +43,7 @@ public class LocalStringBuilder {
             }
             builder.append(args[i]);
         }
-        return builder.toString();
+        return pool.toStringAndRelease(builder);
     }
 
 }
@@ -0,0 +1,89 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.common.utils;
+
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Description  StringBuilderPool is used for
+ * 有界的StringBuilder池，与线程无关：借出时从池中取，用完归还，池满或容量过大的builder直接丢弃。
+ * 池中缓存的builder数量固定，不会随线程数(包括虚拟线程)增长
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:10
+ * @version 1.0.0
+ */
+public class StringBuilderPool {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+    private static final int DEFAULT_MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    /**
+     * 默认的共享池，缓存数量为cpu核数的两倍
+     */
+    private static final StringBuilderPool SHARED = new StringBuilderPool(
+            Runtime.getRuntime().availableProcessors() * 2, DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_RETAINED_CAPACITY);
+
+    private final BlockingQueue<StringBuilder> pool;
+
+    private final int initialCapacity;
+
+    private final int maxRetainedCapacity;
+
+    /**
+     * @param maxPooled           池中最多缓存的builder数
+     * @param initialCapacity     新建builder的初始容量
+     * @param maxRetainedCapacity 归还时容量超过该值的builder不再缓存，避免大字符串长期占用内存
+     */
+    public StringBuilderPool(int maxPooled, int initialCapacity, int maxRetainedCapacity) {
+        CheckThrower.ifFalseThrow(maxPooled >= 1 && initialCapacity >= 1 && maxRetainedCapacity >= initialCapacity,
+                "MaxPooled and initialCapacity must greater than zero and maxRetainedCapacity must not less than initialCapacity");
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    public static StringBuilderPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 借出一个空的builder，池为空时新建
+     */
+    public StringBuilder acquire() {
+        StringBuilder builder = this.pool.poll();
+        return builder == null ? new StringBuilder(this.initialCapacity) : builder;
+    }
+
+    /**
+     * 归还builder，归还后调用方不能再使用
+     */
+    public void release(StringBuilder builder) {
+        if (builder == null || builder.capacity() > this.maxRetainedCapacity) {
+            return;
+        }
+        builder.setLength(0);
+        this.pool.offer(builder);
+    }
+
+    /**
+     * 取出builder中的字符串并归还builder
+     */
+    public String toStringAndRelease(StringBuilder builder) {
+        String result = builder.toString();
+        release(builder);
+        return result;
+    }
+
+    public int getPooledCount() {
+        return this.pool.size();
+    }
+
+}
@@ -43,4 +43,29 @@ public final class StringUtil {
         return result;
     }
 
+    /**
+     * 计算字符串按UTF-8编码后的字节数，不产生编码后的字节数组
+     *
+     * @param str
+     * @return
+     */
+    public static int utf8Length(CharSequence str) {
+        int length = str.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
 }
@@ -0,0 +1,60 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.common.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description  VirtualThreads is used for
+ * 创建执行阻塞session调用的线程池。这是java8的实现，没有虚拟线程，退化为守护线程的缓存线程池；
+ * 在java21上运行multi-release jar时加载META-INF/versions/21下的实现，每个任务一个虚拟线程
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:20
+ * @version 1.0.0
+ */
+public class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 当前运行环境是否使用虚拟线程
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * 创建每个任务一个线程的线程池，线程数量由调用方的并发限制约束
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程池，由调用方负责关闭
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat(namePrefix + "%d").setDaemon(true).build());
+    }
+
+    /**
+     * 创建线程数有上限的线程池，线程全部繁忙时提交的任务被拒绝(RejectedExecutionException)，空闲线程60秒后回收
+     *
+     * @param namePrefix 线程名前缀
+     * @param maxThreads 最大线程数
+     * @return 线程池，由调用方负责关闭
+     */
+    public static ExecutorService newBoundedExecutor(String namePrefix, int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat(namePrefix + "%d").setDaemon(true).build());
+    }
+
+}
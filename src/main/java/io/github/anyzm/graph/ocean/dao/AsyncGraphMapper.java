@@ -0,0 +1,95 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+import io.github.anyzm.graph.ocean.domain.GraphQuery;
+import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Description  AsyncGraphMapper is used for
+ * GraphMapper的异步版本，所有方法立即返回CompletableFuture，执行中的异常以原始异常异常完成future
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:00
+ * @version 1.0.0
+ */
+public interface AsyncGraphMapper {
+
+    /**
+     * 异步批量保存顶点信息，见{@link GraphMapper#saveVertexEntities(List, GraphWriteModeEnum)}
+     */
+    public <T> CompletableFuture<Integer> saveVertexEntitiesAsync(List<T> entities, GraphWriteModeEnum writeMode);
+
+    /**
+     * 异步批量保存边信息，见{@link GraphMapper#saveEdgeEntities(List, GraphWriteModeEnum)}
+     */
+    public <E> CompletableFuture<Integer> saveEdgeEntitiesAsync(List<E> entities, GraphWriteModeEnum writeMode);
+
+    /**
+     * 异步批量保存多种类型的顶点和边，见{@link GraphMapper#saveEntities(List, GraphWriteModeEnum)}
+     */
+    public CompletableFuture<Integer> saveEntitiesAsync(List<?> entities, GraphWriteModeEnum writeMode);
+
+    /**
+     * 使用默认图空间异步执行单条更新ngql
+     */
+    public CompletableFuture<Integer> executeUpdateSqlAsync(String sql);
+
+    /**
+     * 指定图空间异步执行单条更新ngql
+     */
+    public CompletableFuture<Integer> executeUpdateSqlAsync(String space, String sql);
+
+    /**
+     * 使用默认图空间异步执行查询ngql
+     */
+    public CompletableFuture<QueryResult> executeQuerySqlAsync(String sql);
+
+    /**
+     * 指定图空间异步执行查询ngql
+     */
+    public CompletableFuture<QueryResult> executeQuerySqlAsync(String space, String sql);
+
+    /**
+     * 使用默认图空间异步执行查询ngql，并且返回指定的实体类
+     */
+    public <T> CompletableFuture<List<T>> executeQuerySqlAsync(String sql, Class<T> clazz);
+
+    /**
+     * 使用默认图空间异步执行查询API
+     */
+    public CompletableFuture<QueryResult> executeQueryAsync(GraphQuery query);
+
+    /**
+     * 使用指定的图空间异步执行查询API
+     */
+    public CompletableFuture<QueryResult> executeQueryAsync(String space, GraphQuery query);
+
+    /**
+     * 使用默认图空间异步执行查询API并返回相应的实体类
+     */
+    public <T> CompletableFuture<List<T>> executeQueryAsync(GraphQuery query, Class<T> clazz);
+
+    /**
+     * 异步查询出边，见{@link GraphMapper#goOutEdge(Class, String...)}
+     */
+    public <T> CompletableFuture<List<T>> goOutEdgeAsync(Class<T> edgeClazz, String... vertexIds);
+
+    /**
+     * 异步查询入边，见{@link GraphMapper#goReverseEdge(Class, String...)}
+     */
+    public <T> CompletableFuture<List<T>> goReverseEdgeAsync(Class<T> edgeClazz, String... vertexIds);
+
+    /**
+     * 异步查询顶点，见{@link GraphMapper#fetchVertexTag(Class, String...)}
+     */
+    public <T> CompletableFuture<List<T>> fetchVertexTagAsync(Class<T> vertexClazz, String... vertexIds);
+
+}
@@ -5,8 +5,10 @@
  */
 package io.github.anyzm.graph.ocean.dao;
 
+import com.google.common.collect.Lists;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeType;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
 
 import java.util.List;
 
@@ -32,5 +34,25 @@ public interface EdgeUpdateEngine<S, T, E> extends GraphUpdateEngine {
      */
     public GraphEdgeType<S, T, E> getGraphEdgeType();
 
+    /**
+     * 获取更新语句，同时按语句顺序记录每条语句写入的边，用于把失败的语句对应到实体。
+     * 默认认为每条语句都写入全部边
+     *
+     * @param statementRows 每条语句写入的边在getGraphEdgeEntityList中的下标
+     * @return 更新语句
+     * @throws NebulaException 构造异常
+     */
+    public default List<String> getSqlList(List<List<Integer>> statementRows) throws NebulaException {
+        List<String> sqlList = getSqlList();
+        int size = getGraphEdgeEntityList().size();
+        List<Integer> rows = Lists.newArrayListWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(i);
+        }
+        for (int i = 0; i < sqlList.size(); i++) {
+            statementRows.add(rows);
+        }
+        return sqlList;
+    }
 
 }
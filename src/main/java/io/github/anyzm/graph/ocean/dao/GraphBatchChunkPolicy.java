@@ -0,0 +1,46 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+/**
+ * Description  GraphBatchChunkPolicy is used for
+ * 批量更新的分批策略，同时按语句条数和字节数限制每一批的大小，可根据执行反馈调整
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 15:20
+ * @version 1.0.0
+ */
+public interface GraphBatchChunkPolicy {
+
+    /**
+     * 默认单批最大字节数，比graphd的max_allowed_query_size默认值4M少64K，
+     * 分批的字节数不包含session切换图空间时拼接的use语句，留出的空间用于容纳use语句
+     */
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024 - 64 * 1024;
+
+    /**
+     *
+     * @return 当前单批最大语句条数
+     */
+    public int getMaxStatements();
+
+    /**
+     *
+     * @return 当前单批最大字节数，单条语句超过该值时单独成批；NebulaGraphMapper生成多行INSERT时也以此作为单条语句的字节上限
+     */
+    public int getMaxBytes();
+
+    /**
+     * 每一批执行结束后的反馈
+     *
+     * @param statementCount 语句条数
+     * @param byteSize 字节数
+     * @param costMillis 耗时
+     * @param succeeded 是否成功
+     */
+    public void feedback(int statementCount, int byteSize, long costMillis, boolean succeeded);
+
+}
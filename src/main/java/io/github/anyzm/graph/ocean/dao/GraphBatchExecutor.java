@@ -0,0 +1,61 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+import io.github.anyzm.graph.ocean.domain.impl.BatchUpdateResult;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+
+import java.util.List;
+
+/**
+ * Description  GraphBatchExecutor is used for
+ * 批量更新语句的执行器，决定分批后的ngql如何提交到nebula，可自行扩展
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 14:00
+ * @version 1.0.0
+ */
+public interface GraphBatchExecutor {
+
+    /**
+     * 按分批策略切分并执行更新语句，每一批执行结束后向分批策略反馈，
+     * 某一批无法完成（重试后仍失败或未能定位失败语句）后不再提交后续的分批
+     *
+     * @param sessionManager session管理
+     * @param space 图空间
+     * @param sqlList 更新语句
+     * @param chunkPolicy 分批策略
+     * @return 按分批顺序汇总的执行结果
+     */
+    public BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                     GraphBatchChunkPolicy chunkPolicy);
+
+    /**
+     * 与{@link #execute(NebulaPoolSessionManager, String, List, GraphBatchChunkPolicy)}相同，
+     * isolateFailures为true时分批因数据类异常失败后定位出具体的失败语句并继续执行后续分批，用于按实体返回写入结果，
+     * 默认忽略isolateFailures
+     *
+     * @param isolateFailures 是否定位失败语句并继续执行
+     */
+    public default BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                             GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures) {
+        return execute(sessionManager, space, sqlList, chunkPolicy);
+    }
+
+    /**
+     * 与{@link #execute(NebulaPoolSessionManager, String, List, GraphBatchChunkPolicy, boolean)}相同，
+     * 只有retryable为true时才按重试策略重试失败的分批，语句重复执行结果不同(如原始的DELETE、INSERT语句)时不能重试，
+     * 默认忽略retryable
+     *
+     * @param isolateFailures 是否定位失败语句并继续执行
+     * @param retryable 语句是否可以重复执行
+     */
+    public default BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                             GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures, boolean retryable) {
+        return execute(sessionManager, space, sqlList, chunkPolicy, isolateFailures);
+    }
+
+}
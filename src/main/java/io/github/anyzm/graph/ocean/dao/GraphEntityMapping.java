@@ -0,0 +1,58 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+import io.github.anyzm.graph.ocean.domain.GraphLabel;
+import io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description  GraphEntityMapping is used for
+ * 注解处理器GraphEntityProcessor为每个@GraphVertex/@GraphEdge类生成的映射，
+ * 包括图标签描述、行解析器和实体属性收集，运行时存在生成的映射时使用，不存在时回退到反射
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:35
+ * @version 1.0.0
+ */
+public interface GraphEntityMapping<T> {
+
+    /**
+     * 生成类的类名后缀，生成类与实体类在同一个包下，嵌套类的类名用_连接
+     */
+    public static final String CLASS_SUFFIX = "_GraphMapping";
+
+    /**
+     * @return 实体类型
+     */
+    public Class<T> getType();
+
+    /**
+     * @return 实体及其父类中所有@GraphProperty字段的描述，顺序与反射时相同
+     */
+    public List<GraphPropertyDescriptor> getPropertyDescriptors();
+
+    /**
+     * @return 实体的行解析器
+     */
+    public RowMapper<T> getRowMapper();
+
+    /**
+     * 收集实体的属性值，与DefaultGraphVertexEntityFactory、DefaultGraphEdgeEntityFactory的反射逻辑相同
+     *
+     * @param input        实体
+     * @param graphLabel   实体的图标签，用于属性值的格式化
+     * @param srcIdAsField 顶点id或起点id是否作为属性
+     * @param dstIdAsField 终点id是否作为属性，顶点时与srcIdAsField相同
+     * @param propertyMap  收集到的属性值
+     * @param ids          收集到的id，顶点为[id]，边为[srcId, dstId]，只覆盖非空白的值
+     */
+    public void collectProperties(T input, GraphLabel graphLabel, boolean srcIdAsField, boolean dstIdAsField,
+                                  Map<String, Object> propertyMap, String[] ids);
+
+}
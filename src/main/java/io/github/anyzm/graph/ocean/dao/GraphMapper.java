@@ -5,18 +5,28 @@
  */
 package io.github.anyzm.graph.ocean.dao;
 
-
+import com.google.common.collect.Lists;
 import com.vesoft.nebula.client.graph.exception.AuthFailedException;
 import com.vesoft.nebula.client.graph.exception.ClientServerIncompatibleException;
 import com.vesoft.nebula.client.graph.exception.IOErrorException;
+import io.github.anyzm.graph.ocean.annotation.GraphEdge;
 import io.github.anyzm.graph.ocean.domain.GraphQuery;
+import io.github.anyzm.graph.ocean.domain.impl.GraphWriteResult;
 import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import com.vesoft.nebula.client.graph.exception.NotValidConnectionException;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Description  GraphMapper is used for
@@ -27,6 +37,11 @@ import java.util.function.Function;
  */
 public interface GraphMapper {
 
+    /**
+     * 流式保存默认实现每个窗口的实体数
+     */
+    public static final int DEFAULT_STREAM_WINDOW_SIZE = 1000;
+
     /**
      * 批量保存顶点信息
      *
@@ -37,6 +52,138 @@ public interface GraphMapper {
      */
     public <T> int saveVertexEntities(List<T> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException;
 
+    /**
+     * 按指定的写入方式批量保存顶点信息，默认实现只支持UPSERT，交给{@link #saveVertexEntities(List)}
+     *
+     * @param entities 顶点
+     * @param writeMode 写入方式，为空时使用@GraphVertex上声明的写入方式
+     * @param <T> 顶点类型
+     * @return 更新状态
+     * @throws NebulaException nebula异常
+     */
+    public default <T> int saveVertexEntities(List<T> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        CheckThrower.ifTrueThrow(writeMode != null && writeMode.isInsert(), ErrorEnum.NOT_SUPPORT_WRITE_MODE);
+        return saveVertexEntities(entities);
+    }
+
+    /**
+     * 流式保存顶点信息，按窗口逐批构造、生成ngql并写入，内存占用只与窗口大小有关，适合大批量导入，
+     * 默认实现每个窗口DEFAULT_STREAM_WINDOW_SIZE个顶点
+     *
+     * @param entities 顶点
+     * @param writeMode 写入方式，为空时使用@GraphVertex上声明的写入方式
+     * @param <T> 顶点类型
+     * @return 已写入的顶点数
+     * @throws NebulaException nebula异常
+     */
+    public default <T> long saveVertexEntities(Iterator<T> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        long saved = 0;
+        List<T> window = Lists.newArrayListWithExpectedSize(DEFAULT_STREAM_WINDOW_SIZE);
+        while (entities.hasNext()) {
+            window.add(entities.next());
+            if (window.size() >= DEFAULT_STREAM_WINDOW_SIZE || !entities.hasNext()) {
+                saveVertexEntities(window, writeMode);
+                saved += window.size();
+                window.clear();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * 流式保存顶点信息，见{@link #saveVertexEntities(Iterator, GraphWriteModeEnum)}，结束或异常时关闭stream
+     *
+     * @param entities 顶点
+     * @param writeMode 写入方式，为空时使用@GraphVertex上声明的写入方式
+     * @param <T> 顶点类型
+     * @return 已写入的顶点数
+     * @throws NebulaException nebula异常
+     */
+    public default <T> long saveVertexEntities(Stream<T> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        try (Stream<T> stream = entities) {
+            return saveVertexEntities(stream.iterator(), writeMode);
+        }
+    }
+
+
+    /**
+     * 批量保存顶点信息并返回每个顶点的写入结果，执行失败时不抛出异常。
+     * UPSERT时每个顶点单独生成语句，INSERT和INSERT_IF_NOT_EXISTS时保留多行INSERT语句，一条语句失败时其中所有顶点都记为失败；
+     * 网络类异常按重试策略重试，数据类异常二分定位到具体的语句，其余语句照常写入。
+     * 默认实现整体写入，失败时所有顶点都记为失败
+     *
+     * @param entities 顶点
+     * @param writeMode 写入方式，为空时使用@GraphVertex上声明的写入方式
+     * @param <T> 顶点类型
+     * @return 每个顶点的写入结果
+     * @throws NebulaException 顶点类型不支持等构造异常
+     */
+    public default <T> GraphWriteResult<T> saveVertexEntitiesWithResult(List<T> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        try {
+            saveVertexEntities(entities, writeMode);
+            return GraphWriteResult.allSucceeded(entities);
+        } catch (Exception e) {
+            return GraphWriteResult.allFailed(entities, e);
+        }
+    }
+
+    /**
+     * 批量保存边信息并返回每条边的写入结果，见{@link #saveVertexEntitiesWithResult(List, GraphWriteModeEnum)}
+     *
+     * @param entities 边
+     * @param writeMode 写入方式，为空时使用@GraphEdge上声明的写入方式
+     * @param <E> 边类型
+     * @return 每条边的写入结果
+     * @throws NebulaException 边类型不支持等构造异常
+     */
+    public default <E> GraphWriteResult<E> saveEdgeEntitiesWithResult(List<E> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        try {
+            saveEdgeEntities(entities, writeMode);
+            return GraphWriteResult.allSucceeded(entities);
+        } catch (Exception e) {
+            return GraphWriteResult.allFailed(entities, e);
+        }
+    }
+
+    /**
+     * 批量保存多种类型的顶点和边，按类型分组生成语句，顶点先于边写入，所有语句一起分批提交
+     *
+     * @param entities 顶点和边
+     * @return 更新状态码
+     * @throws NebulaException nebula异常
+     */
+    public default int saveEntities(List<?> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveEntities(entities, null);
+    }
+
+    /**
+     * 按指定的写入方式批量保存多种类型的顶点和边，见{@link #saveEntities(List)}。
+     * 默认实现按@GraphEdge注解区分边和顶点，先保存顶点再保存边，分两次提交
+     *
+     * @param entities 顶点和边
+     * @param writeMode 写入方式，为空时使用注解上声明的写入方式
+     * @return 更新状态码
+     * @throws NebulaException nebula异常
+     */
+    public default int saveEntities(List<?> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        List<Object> vertices = Lists.newArrayList();
+        List<Object> edges = Lists.newArrayList();
+        for (Object entity : entities) {
+            CheckThrower.ifTrueThrow(entity == null, ErrorEnum.PARAMETER_NOT_NULL);
+            if (entity.getClass().isAnnotationPresent(GraphEdge.class)) {
+                edges.add(entity);
+            } else {
+                vertices.add(entity);
+            }
+        }
+        if (!vertices.isEmpty()) {
+            saveVertexEntities(vertices, writeMode);
+        }
+        if (!edges.isEmpty()) {
+            saveEdgeEntities(edges, writeMode);
+        }
+        return 0;
+    }
 
     /**
      * 批量保存边信息和顶点信息
@@ -53,6 +200,28 @@ public interface GraphMapper {
     public <S, T, E> int saveEdgeEntitiesWithVertex(List<E> entities, Function<String, S> srcVertexEntityFunction,
                                                     Function<String, T> dstVertexEntityFunction) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException;
 
+    /**
+     * 批量保存边信息和顶点信息，起点、终点按id去重后一次性交给构造器，便于调用方一次查询得到全部顶点；
+     * NebulaGraphMapper在起点和终点是同一种顶点时合并两者的id，只调用起点构造器一次，同一个顶点只更新一次。
+     * 默认实现逐个id调用构造器，交给{@link #saveEdgeEntitiesWithVertex(List, Function, Function)}
+     *
+     * @param entities 实体
+     * @param srcVertexEntitiesFunction 起点构造器，入参为去重后的起点id，返回id到起点的映射，缺少的id不更新顶点
+     * @param dstVertexEntitiesFunction 终点构造器，入参为去重后的终点id，返回id到终点的映射，缺少的id不更新顶点
+     * @param <S> 起点
+     * @param <T> 终点
+     * @param <E> 边
+     * @return 更新状态码
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> int saveEdgeEntitiesWithVertexBatch(List<E> entities,
+                                                                 Function<Collection<String>, Map<String, S>> srcVertexEntitiesFunction,
+                                                                 Function<Collection<String>, Map<String, T>> dstVertexEntitiesFunction) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveEdgeEntitiesWithVertex(entities,
+                id -> srcVertexEntitiesFunction.apply(Collections.singletonList(id)).get(id),
+                id -> dstVertexEntitiesFunction.apply(Collections.singletonList(id)).get(id));
+    }
+
 
     /**
      * 批量保存边信息
@@ -63,6 +232,58 @@ public interface GraphMapper {
      */
     public <S, T, E> int saveEdgeEntities(List<E> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException;
 
+    /**
+     * 按指定的写入方式批量保存边信息，默认实现只支持UPSERT，交给{@link #saveEdgeEntities(List)}
+     *
+     * @param entities 边
+     * @param writeMode 写入方式，为空时使用@GraphEdge上声明的写入方式
+     * @return 更新状态码
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> int saveEdgeEntities(List<E> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        CheckThrower.ifTrueThrow(writeMode != null && writeMode.isInsert(), ErrorEnum.NOT_SUPPORT_WRITE_MODE);
+        return saveEdgeEntities(entities);
+    }
+
+    /**
+     * 流式保存边信息，按窗口逐批构造、生成ngql并写入，内存占用只与窗口大小有关，不会保存顶点，
+     * 默认实现每个窗口DEFAULT_STREAM_WINDOW_SIZE条边
+     *
+     * @param entities 边
+     * @param writeMode 写入方式，为空时使用@GraphEdge上声明的写入方式
+     * @param <E> 边类型
+     * @return 已写入的边数
+     * @throws NebulaException nebula异常
+     */
+    public default <E> long saveEdgeEntities(Iterator<E> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        long saved = 0;
+        List<E> window = Lists.newArrayListWithExpectedSize(DEFAULT_STREAM_WINDOW_SIZE);
+        while (entities.hasNext()) {
+            window.add(entities.next());
+            if (window.size() >= DEFAULT_STREAM_WINDOW_SIZE || !entities.hasNext()) {
+                saveEdgeEntities(window, writeMode);
+                saved += window.size();
+                window.clear();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * 流式保存边信息，见{@link #saveEdgeEntities(Iterator, GraphWriteModeEnum)}，结束或异常时关闭stream
+     *
+     * @param entities 边
+     * @param writeMode 写入方式，为空时使用@GraphEdge上声明的写入方式
+     * @param <E> 边类型
+     * @return 已写入的边数
+     * @throws NebulaException nebula异常
+     */
+    public default <E> long saveEdgeEntities(Stream<E> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        try (Stream<E> stream = entities) {
+            return saveEdgeEntities(stream.iterator(), writeMode);
+        }
+    }
+
 
     /**
      * 批量执行更新语句
@@ -0,0 +1,39 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+/**
+ * Description  GraphRetryPolicy is used for
+ * 批量更新的重试策略，决定哪些异常可以重试、最多执行几次以及每次重试前等待多久
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:40
+ * @version 1.0.0
+ */
+public interface GraphRetryPolicy {
+
+    /**
+     *
+     * @return 最多执行次数，包含第一次执行，1表示不重试
+     */
+    public int getMaxAttempts();
+
+    /**
+     * 是否为可以重试的异常，一般是网络、连接等与数据无关的异常
+     *
+     * @param cause 执行异常
+     * @return 是否可以重试
+     */
+    public boolean isRetryable(Throwable cause);
+
+    /**
+     *
+     * @param attempt 已经失败的次数，从1开始
+     * @return 下一次重试前等待的毫秒数
+     */
+    public long getBackoffMillis(int attempt);
+
+}
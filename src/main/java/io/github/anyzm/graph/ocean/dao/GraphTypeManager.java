@@ -5,6 +5,7 @@
  */
 package io.github.anyzm.graph.ocean.dao;
 
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
 import io.github.anyzm.graph.ocean.domain.GraphLabel;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeType;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
@@ -43,4 +44,13 @@ public interface GraphTypeManager {
      */
     public GraphLabel getGraphLabel(Class clazz) throws NebulaException;
 
+    /**
+     * @param clazz 类类型
+     * @param <T> 实体
+     * @return 解析查询结果的行解析器，默认优先使用注解处理器生成的解析器，没有时为缓存的DefaultRowMapper
+     */
+    public default <T> RowMapper<T> getRowMapper(Class<T> clazz) {
+        return GraphEntityMappings.getRowMapper(clazz);
+    }
+
 }
@@ -8,6 +8,7 @@ package io.github.anyzm.graph.ocean.dao;
 
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 
 import java.util.List;
@@ -49,4 +50,81 @@ public interface GraphUpdateEdgeEngineFactory {
                                                      List<GraphVertexEntity<S>> srcGraphVertexEntities,
                                                      List<GraphVertexEntity<T>> dstGraphVertexEntities) throws NebulaException;
 
+
+    /**
+     * 按指定的写入方式构造图边更新引擎
+     *
+     * @param graphEdgeEntities 边实体
+     * @param writeMode 边的写入方式，为空时使用边类型上声明的写入方式
+     * @param <S> 起点
+     * @param <T> 终点
+     * @param <E> 边
+     * @return 边更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                             GraphWriteModeEnum writeMode) throws NebulaException {
+        return build(graphEdgeEntities);
+    }
+
+    /**
+     * 按指定的写入方式构造图边更新引擎
+     *
+     * @param graphEdgeEntities 边实体
+     * @param srcGraphVertexEntities 起点实体
+     * @param dstGraphVertexEntities 终点实体
+     * @param writeMode 边和起点终点的写入方式，为空时分别使用边类型和顶点类型上声明的写入方式
+     * @param <S> 起点
+     * @param <T> 终点
+     * @param <E> 边
+     * @return 边更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                             List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                                             List<GraphVertexEntity<T>> dstGraphVertexEntities,
+                                                             GraphWriteModeEnum writeMode) throws NebulaException {
+        return build(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities);
+    }
+
+    /**
+     * 按指定的写入方式和单条语句字节上限构造图边更新引擎
+     *
+     * @param graphEdgeEntities 边实体
+     * @param writeMode 边的写入方式，为空时使用边类型上声明的写入方式
+     * @param maxStatementBytes 多行INSERT单条语句的最大字节数，超过时拆成多条语句
+     * @param <S> 起点
+     * @param <T> 终点
+     * @param <E> 边
+     * @return 边更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                             GraphWriteModeEnum writeMode,
+                                                             int maxStatementBytes) throws NebulaException {
+        return build(graphEdgeEntities, writeMode);
+    }
+
+    /**
+     * 按指定的写入方式和单条语句字节上限构造图边更新引擎
+     *
+     * @param graphEdgeEntities 边实体
+     * @param srcGraphVertexEntities 起点实体
+     * @param dstGraphVertexEntities 终点实体
+     * @param writeMode 边和起点终点的写入方式，为空时分别使用边类型和顶点类型上声明的写入方式
+     * @param maxStatementBytes 多行INSERT单条语句的最大字节数，超过时拆成多条语句
+     * @param <S> 起点
+     * @param <T> 终点
+     * @param <E> 边
+     * @return 边更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                             List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                                             List<GraphVertexEntity<T>> dstGraphVertexEntities,
+                                                             GraphWriteModeEnum writeMode,
+                                                             int maxStatementBytes) throws NebulaException {
+        return build(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities, writeMode);
+    }
+
 }
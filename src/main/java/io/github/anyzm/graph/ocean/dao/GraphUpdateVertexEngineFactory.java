@@ -7,6 +7,7 @@ package io.github.anyzm.graph.ocean.dao;
 
 
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 
 import java.util.List;
@@ -29,4 +30,31 @@ public interface GraphUpdateVertexEngineFactory {
      */
     public <T> VertexUpdateEngine build(List<GraphVertexEntity<T>> graphVertexEntities) throws NebulaException;
 
+    /**
+     *
+     * @param graphVertexEntities 顶点实体
+     * @param writeMode 写入方式，为空时使用顶点类型上声明的写入方式
+     * @param <T> 顶点
+     * @return 顶点更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <T> VertexUpdateEngine build(List<GraphVertexEntity<T>> graphVertexEntities,
+                                                GraphWriteModeEnum writeMode) throws NebulaException {
+        return build(graphVertexEntities);
+    }
+
+    /**
+     *
+     * @param graphVertexEntities 顶点实体
+     * @param writeMode 写入方式，为空时使用顶点类型上声明的写入方式
+     * @param maxStatementBytes 多行INSERT单条语句的最大字节数，超过时拆成多条语句
+     * @param <T> 顶点
+     * @return 顶点更新引擎
+     * @throws NebulaException nebula异常
+     */
+    public default <T> VertexUpdateEngine build(List<GraphVertexEntity<T>> graphVertexEntities,
+                                                GraphWriteModeEnum writeMode, int maxStatementBytes) throws NebulaException {
+        return build(graphVertexEntities, writeMode);
+    }
+
 }
@@ -24,4 +24,16 @@ public interface GraphVertexEntityFactory {
      */
     public <T> GraphVertexEntity<T> buildGraphVertexEntity(T input) throws NebulaException;
 
+    /**
+     * 只计算顶点id，不收集其他属性
+     *
+     * @param input 顶点对象
+     * @return 顶点id，不是顶点对象时返回null
+     * @throws NebulaException nebula异常
+     */
+    public default <T> String buildVertexId(T input) throws NebulaException {
+        GraphVertexEntity<T> graphVertexEntity = buildGraphVertexEntity(input);
+        return graphVertexEntity == null ? null : graphVertexEntity.getId();
+    }
+
 }
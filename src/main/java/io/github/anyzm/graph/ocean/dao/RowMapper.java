@@ -0,0 +1,59 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao;
+
+import com.vesoft.nebula.client.graph.data.ResultSet;
+import io.github.anyzm.graph.ocean.domain.GraphLabel;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Description  RowMapper is used for
+ * 把查询结果的一行解析为实体，每个类只构建一次并缓存，
+ * 同一结果集的列顺序相同，先按列名解析出每个属性对应的列下标，再逐行按下标取值
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:00
+ * @version 1.0.0
+ */
+public interface RowMapper<T> {
+
+    /**
+     * @return 解析的实体类型
+     */
+    public Class<T> getType();
+
+    /**
+     * 按列名解析每个属性对应的列下标，同一结果集只需解析一次
+     *
+     * @param columnNames 结果集的列名
+     * @return 每个属性对应的列下标，不存在的列为-1
+     */
+    public int[] resolveColumns(List<String> columnNames);
+
+    /**
+     * 按resolveColumns得到的列下标解析一行
+     *
+     * @param record        行
+     * @param graphLabel    图标签，用于属性值的反转格式化，可以为空
+     * @param columnIndexes 列下标
+     * @return 实体
+     */
+    public T mapRow(ResultSet.Record record, GraphLabel graphLabel, int[] columnIndexes)
+            throws IllegalAccessException, InstantiationException, UnsupportedEncodingException;
+
+    /**
+     * 不知道结果集的列名时按属性名逐个查找列并解析一行
+     *
+     * @param record     行
+     * @param graphLabel 图标签，用于属性值的反转格式化，可以为空
+     * @return 实体
+     */
+    public T mapRow(ResultSet.Record record, GraphLabel graphLabel)
+            throws IllegalAccessException, InstantiationException, UnsupportedEncodingException;
+
+}
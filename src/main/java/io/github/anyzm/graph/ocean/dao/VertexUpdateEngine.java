@@ -5,8 +5,10 @@
  */
 package io.github.anyzm.graph.ocean.dao;
 
+import com.google.common.collect.Lists;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
 
 import java.util.List;
 
@@ -34,4 +36,25 @@ public interface VertexUpdateEngine extends GraphUpdateEngine {
      */
     public <T> GraphVertexType<T> getGraphVertexType();
 
+    /**
+     * 获取更新语句，同时按语句顺序记录每条语句写入的顶点，用于把失败的语句对应到实体。
+     * 默认认为每条语句都写入全部顶点
+     *
+     * @param statementRows 每条语句写入的顶点在getGraphVertexEntityList中的下标
+     * @return 更新语句
+     * @throws NebulaException 构造异常
+     */
+    public default List<String> getSqlList(List<List<Integer>> statementRows) throws NebulaException {
+        List<String> sqlList = getSqlList();
+        int size = getGraphVertexEntityList().size();
+        List<Integer> rows = Lists.newArrayListWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(i);
+        }
+        for (int i = 0; i < sqlList.size(); i++) {
+            statementRows.add(rows);
+        }
+        return sqlList;
+    }
+
 }
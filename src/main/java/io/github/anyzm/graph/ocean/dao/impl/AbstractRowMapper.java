@@ -0,0 +1,165 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao.impl;
+
+import com.vesoft.nebula.client.graph.data.ResultSet;
+import com.vesoft.nebula.client.graph.data.ValueWrapper;
+import io.github.anyzm.graph.ocean.dao.RowMapper;
+import io.github.anyzm.graph.ocean.domain.GraphLabel;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Description  AbstractRowMapper is used for
+ * 行解析器的公共部分：按属性的列名解析列下标、按数据类型取值和反转格式化，
+ * 子类只负责创建实体和给第index个属性赋值，DefaultRowMapper通过MethodHandle赋值，注解处理器生成的解析器直接赋值
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:40
+ * @version 1.0.0
+ */
+public abstract class AbstractRowMapper<T> implements RowMapper<T> {
+
+    /**
+     * 值类型不能解析时返回，对应的属性不赋值
+     */
+    private static final Object NO_VALUE = new Object();
+
+    private final Class<T> type;
+
+    /**
+     * 每个属性对应的列名
+     */
+    private final String[] keys;
+
+    /**
+     * 每个属性注解指定的数据类型，没有注解或为NULL时为空，按值本身的类型取值
+     */
+    private final GraphDataTypeEnum[] dataTypes;
+
+    protected AbstractRowMapper(Class<T> type, String[] keys, GraphDataTypeEnum[] dataTypes) {
+        this.type = type;
+        this.keys = keys;
+        this.dataTypes = dataTypes;
+    }
+
+    /**
+     * @return 新的实体
+     * @throws InstantiationException 实体没有可用的无参构造方法
+     */
+    protected abstract T newInstance() throws InstantiationException;
+
+    /**
+     * 给第index个属性赋值
+     *
+     * @throws IllegalAccessException 字段不能赋值
+     */
+    protected abstract void setProperty(T obj, int index, Object value) throws IllegalAccessException;
+
+    @Override
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    @Override
+    public int[] resolveColumns(List<String> columnNames) {
+        int[] columnIndexes = new int[this.keys.length];
+        for (int i = 0; i < this.keys.length; i++) {
+            columnIndexes[i] = columnNames == null ? -1 : columnNames.indexOf(this.keys[i]);
+        }
+        return columnIndexes;
+    }
+
+    @Override
+    public T mapRow(ResultSet.Record record, GraphLabel graphLabel, int[] columnIndexes)
+            throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        T obj = newInstance();
+        for (int i = 0; i < this.keys.length; i++) {
+            if (columnIndexes[i] >= 0) {
+                setValue(obj, i, record.get(columnIndexes[i]), graphLabel);
+            }
+        }
+        return obj;
+    }
+
+    @Override
+    public T mapRow(ResultSet.Record record, GraphLabel graphLabel)
+            throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        T obj = newInstance();
+        for (int i = 0; i < this.keys.length; i++) {
+            if (record.contains(this.keys[i])) {
+                setValue(obj, i, record.get(this.keys[i]), graphLabel);
+            }
+        }
+        return obj;
+    }
+
+    private void setValue(T obj, int index, ValueWrapper valueWrapper, GraphLabel graphLabel)
+            throws IllegalAccessException, UnsupportedEncodingException {
+        if (valueWrapper.isNull()) {
+            return;
+        }
+        Object value = readValue(this.dataTypes[index], valueWrapper);
+        if (value == NO_VALUE) {
+            return;
+        }
+        if (graphLabel != null) {
+            value = graphLabel.reformatValue(this.keys[index], value);
+        }
+        try {
+            setProperty(obj, index, value);
+        } catch (ClassCastException | NullPointerException e) {
+            // 与Field.set保持一致，类型不匹配时抛出IllegalArgumentException
+            throw new IllegalArgumentException("Can not set property " + this.type.getName() + "." + this.keys[index]
+                    + " to " + (value == null ? "null value" : value.getClass().getName()), e);
+        }
+    }
+
+    /**
+     * 注解指定了数据类型时按指定类型取值，否则按值本身的类型取值
+     */
+    private static Object readValue(GraphDataTypeEnum dataType, ValueWrapper valueWrapper) throws UnsupportedEncodingException {
+        if (dataType != null) {
+            switch (dataType) {
+                case INT:
+                    return valueWrapper.asLong();
+                case STRING:
+                    return valueWrapper.asString();
+                case DATE:
+                    return valueWrapper.asDate();
+                case DATE_TIME:
+                    return valueWrapper.asDateTime();
+                case BOOLEAN:
+                    return valueWrapper.asBoolean();
+                case TIMESTAMP:
+                    return valueWrapper.asTime();
+                case DOUBLE:
+                    return valueWrapper.asDouble();
+                default:
+                    return NO_VALUE;
+            }
+        }
+        if (valueWrapper.isLong()) {
+            return valueWrapper.asLong();
+        } else if (valueWrapper.isBoolean()) {
+            return valueWrapper.asBoolean();
+        } else if (valueWrapper.isDouble()) {
+            return valueWrapper.asDouble();
+        } else if (valueWrapper.isDate()) {
+            return valueWrapper.asDate();
+        } else if (valueWrapper.isDateTime()) {
+            return valueWrapper.asDateTime();
+        } else if (valueWrapper.isTime()) {
+            return valueWrapper.asTime();
+        } else if (valueWrapper.isString()) {
+            return valueWrapper.asString();
+        }
+        return NO_VALUE;
+    }
+
+}
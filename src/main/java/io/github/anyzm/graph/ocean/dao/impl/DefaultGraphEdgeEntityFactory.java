@@ -6,7 +6,9 @@
 package io.github.anyzm.graph.ocean.dao.impl;
 
 import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
 import io.github.anyzm.graph.ocean.common.GraphHelper;
+import io.github.anyzm.graph.ocean.dao.GraphEntityMapping;
 import io.github.anyzm.graph.ocean.dao.GraphEdgeEntityFactory;
 import io.github.anyzm.graph.ocean.dao.GraphTypeManager;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
@@ -86,6 +88,15 @@ public class DefaultGraphEdgeEntityFactory implements GraphEdgeEntityFactory {
         GraphVertexType<?> srcVertexType = graphEdgeType.getSrcVertexType();
         //终点类型
         GraphVertexType<?> dstVertexType = graphEdgeType.getDstVertexType();
+        GraphEntityMapping<E> mapping = GraphEntityMappings.find(inputClass);
+        if (mapping != null) {
+            Map<String, Object> propertyMap = Maps.newHashMapWithExpectedSize(mapping.getPropertyDescriptors().size());
+            String[] ids = new String[2];
+            mapping.collectProperties(input, graphEdgeType, graphEdgeType.isSrcIdAsField(), graphEdgeType.isDstIdAsField(),
+                    propertyMap, ids);
+            CheckThrower.ifTrueThrow(StringUtils.isBlank(ids[0]) || StringUtils.isBlank(ids[1]), ErrorEnum.INVALID_ID);
+            return new GraphEdgeEntity(graphEdgeType, ids[0], ids[1], srcVertexType, dstVertexType, propertyMap);
+        }
         Field[] declaredFields = inputClass.getDeclaredFields();
         String srcId = null;
         String dstId = null;
@@ -62,7 +62,7 @@ public class DefaultGraphEdgeTypeFactory implements GraphEdgeTypeFactory {
         CheckThrower.ifTrueThrow(srcGraphVertexType == null || dstGraphVertexType == null, ErrorEnum.INVALID_VERTEX_TAG);
         GraphEdgeTypeBuilder builder = GraphEdgeTypeBuilder.builder();
         GraphHelper.collectGraphProperties(builder, clazz, srcIdAsField, dstIdAsField);
-        return builder.srcIdAsField(srcIdAsField).dstIdAsField(dstIdAsField).graphLabelName(edgeName)
+        return builder.srcIdAsField(srcIdAsField).dstIdAsField(dstIdAsField).writeMode(graphEdge.writeMode()).graphLabelName(edgeName)
                 .labelClass(clazz).srcGraphVertexType(srcGraphVertexType).dstGraphVertexType(dstGraphVertexType).build();
     }
 }
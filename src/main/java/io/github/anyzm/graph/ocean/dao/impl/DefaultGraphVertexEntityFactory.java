@@ -6,7 +6,9 @@
 package io.github.anyzm.graph.ocean.dao.impl;
 
 import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
 import io.github.anyzm.graph.ocean.common.GraphHelper;
+import io.github.anyzm.graph.ocean.dao.GraphEntityMapping;
 import io.github.anyzm.graph.ocean.dao.GraphTypeManager;
 import io.github.anyzm.graph.ocean.dao.GraphVertexEntityFactory;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
@@ -15,12 +17,15 @@ import io.github.anyzm.graph.ocean.enums.ErrorEnum;
 import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
 import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.lang.reflect.Field;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Anyzm
@@ -29,6 +34,11 @@ import java.util.Map;
 @Slf4j
 public class DefaultGraphVertexEntityFactory implements GraphVertexEntityFactory {
 
+    /**
+     * 顶点类及其父类中的顶点id字段，子类在前
+     */
+    private static final Map<Class, List<Field>> ID_FIELD_MAP = new ConcurrentHashMap<>();
+
     private GraphTypeManager graphTypeManager;
 
     public DefaultGraphVertexEntityFactory(GraphTypeManager graphTypeManager) {
@@ -72,6 +82,15 @@ public class DefaultGraphVertexEntityFactory implements GraphVertexEntityFactory
         if (graphVertexType == null) {
             return null;
         }
+        GraphEntityMapping<T> mapping = GraphEntityMappings.find(inputClass);
+        if (mapping != null) {
+            Map<String, Object> propertyMap = Maps.newHashMapWithExpectedSize(mapping.getPropertyDescriptors().size());
+            String[] ids = new String[1];
+            mapping.collectProperties(input, graphVertexType, graphVertexType.isIdAsField(), graphVertexType.isIdAsField(),
+                    propertyMap, ids);
+            CheckThrower.ifTrueThrow(StringUtils.isBlank(ids[0]), ErrorEnum.INVALID_ID);
+            return new GraphVertexEntity<>(graphVertexType, ids[0], propertyMap);
+        }
         Field[] declaredFields = inputClass.getDeclaredFields();
         String id = null;
         Map<String, Object> propertyMap = Maps.newHashMapWithExpectedSize(declaredFields.length);
@@ -87,4 +106,39 @@ public class DefaultGraphVertexEntityFactory implements GraphVertexEntityFactory
         CheckThrower.ifTrueThrow(StringUtils.isBlank(id), ErrorEnum.INVALID_ID);
         return new GraphVertexEntity<>(graphVertexType, id, propertyMap);
     }
+
+    @Override
+    public <T> String buildVertexId(T input) throws NebulaException {
+        if (input == null) {
+            return null;
+        }
+        Class<T> inputClass = (Class<T>) input.getClass();
+        GraphVertexType<T> graphVertexType = graphTypeManager.getGraphVertexType(inputClass);
+        if (graphVertexType == null) {
+            return null;
+        }
+        String id = null;
+        // 与buildGraphVertexEntity相同，父类中非空白的id覆盖子类的
+        for (Field idField : ID_FIELD_MAP.computeIfAbsent(inputClass, DefaultGraphVertexEntityFactory::findIdFields)) {
+            String tempId = (String) GraphHelper.formatFieldValue(idField, idField.getAnnotation(GraphProperty.class),
+                    input, graphVertexType);
+            id = StringUtils.isNotBlank(tempId) ? tempId : id;
+        }
+        CheckThrower.ifTrueThrow(StringUtils.isBlank(id), ErrorEnum.INVALID_ID);
+        return id;
+    }
+
+    private static List<Field> findIdFields(Class clazz) {
+        List<Field> idFields = Lists.newArrayList();
+        for (Class current = clazz; current != Object.class; current = current.getSuperclass()) {
+            for (Field declaredField : current.getDeclaredFields()) {
+                GraphProperty graphProperty = declaredField.getAnnotation(GraphProperty.class);
+                if (graphProperty != null && graphProperty.propertyTypeEnum().equals(GraphPropertyTypeEnum.GRAPH_VERTEX_ID)) {
+                    declaredField.setAccessible(true);
+                    idFields.add(declaredField);
+                }
+            }
+        }
+        return idFields;
+    }
 }
@@ -35,7 +35,8 @@ public class DefaultGraphVertexTypeFactory implements GraphVertexTypeFactory {
         boolean idAsField = graphVertex.idAsField();
         GraphVertexTypeBuilder builder = GraphVertexTypeBuilder.builder();
         GraphHelper.collectGraphProperties(builder, clazz, idAsField, idAsField);
-        return builder.graphKeyPolicy(graphKeyPolicy).idAsField(idAsField).graphLabelName(vertexName).labelClass(clazz).build();
+        return builder.graphKeyPolicy(graphKeyPolicy).idAsField(idAsField).writeMode(graphVertex.writeMode())
+                .graphLabelName(vertexName).labelClass(clazz).build();
     }
 
 }
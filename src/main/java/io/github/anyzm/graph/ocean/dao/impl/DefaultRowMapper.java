@@ -0,0 +1,92 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
+import io.github.anyzm.graph.ocean.common.utils.FieldUtils;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description  DefaultRowMapper is used for
+ * 基于反射构建、MethodHandle赋值的默认行解析器：属性名、数据类型和赋值句柄在构建时一次性解析好，
+ * 逐行解析时不再遍历字段、读取注解和调用setAccessible，每个类只构建一次，永久缓存（除非重启）
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:05
+ * @version 1.0.0
+ */
+public class DefaultRowMapper<T> extends AbstractRowMapper<T> {
+
+    private static final Map<Class, DefaultRowMapper> ROW_MAPPER_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 无参构造方法，类没有可用的无参构造方法时为空
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 每个属性的(Object,Object)void赋值句柄
+     */
+    private final MethodHandle[] setters;
+
+    /**
+     * @param clazz 类类型
+     * @return 该类的行解析器，第一次获取时构建
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> DefaultRowMapper<T> of(Class<T> clazz) {
+        return ROW_MAPPER_MAP.computeIfAbsent(clazz, DefaultRowMapper::build);
+    }
+
+    private static <T> DefaultRowMapper<T> build(Class<T> clazz) {
+        // listFields可能重复返回同一字段，按字段去重并保持顺序
+        Set<Field> fields = Sets.newLinkedHashSet(FieldUtils.listFields(clazz));
+        List<String> keys = Lists.newArrayListWithExpectedSize(fields.size());
+        List<GraphDataTypeEnum> dataTypes = Lists.newArrayListWithExpectedSize(fields.size());
+        List<MethodHandle> setters = Lists.newArrayListWithExpectedSize(fields.size());
+        for (Field field : fields) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            GraphProperty annotation = field.getAnnotation(GraphProperty.class);
+            keys.add(annotation != null ? annotation.value() : field.getName());
+            dataTypes.add(annotation != null && !GraphDataTypeEnum.NULL.equals(annotation.dataType())
+                    ? annotation.dataType() : null);
+            setters.add(GraphEntityMappings.setter(field));
+        }
+        return new DefaultRowMapper<>(clazz, keys.toArray(new String[0]), dataTypes.toArray(new GraphDataTypeEnum[0]),
+                setters.toArray(new MethodHandle[0]));
+    }
+
+    private DefaultRowMapper(Class<T> clazz, String[] keys, GraphDataTypeEnum[] dataTypes, MethodHandle[] setters) {
+        super(clazz, keys, dataTypes);
+        this.constructor = GraphEntityMappings.constructor(clazz);
+        this.setters = setters;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected T newInstance() throws InstantiationException {
+        return (T) GraphEntityMappings.newInstance(this.constructor, getType());
+    }
+
+    @Override
+    protected void setProperty(T obj, int index, Object value) throws IllegalAccessException {
+        GraphEntityMappings.set(this.setters[index], obj, value);
+    }
+
+}
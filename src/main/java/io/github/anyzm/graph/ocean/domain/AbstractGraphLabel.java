@@ -7,6 +7,7 @@ package io.github.anyzm.graph.ocean.domain;
 
 import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
@@ -44,6 +45,11 @@ public abstract class AbstractGraphLabel implements GraphLabel {
      */
     protected Map<String, GraphDataTypeEnum> dataTypeMap;
 
+    /**
+     * 批量写入方式
+     */
+    protected GraphWriteModeEnum writeMode = GraphWriteModeEnum.UPSERT;
+
     @Override
     public Object formatValue(String field, Object originalValue) {
         GraphValueFormatter graphValueFormatter = this.propertyFormatMap.get(field);
@@ -6,6 +6,7 @@
 package io.github.anyzm.graph.ocean.domain;
 
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 
 import java.util.Collection;
 import java.util.List;
@@ -96,4 +97,13 @@ public interface GraphLabel {
      */
     public GraphDataTypeEnum getFieldDataType(String field);
 
+    /**
+     * 获取批量写入方式
+     *
+     * @return 注解上声明的写入方式，默认UPSERT
+     */
+    public default GraphWriteModeEnum getWriteMode() {
+        return GraphWriteModeEnum.UPSERT;
+    }
+
 }
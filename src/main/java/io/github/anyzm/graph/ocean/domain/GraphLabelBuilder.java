@@ -9,6 +9,7 @@ import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
 import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 
 import java.util.List;
 import java.util.Map;
@@ -143,6 +144,14 @@ public interface GraphLabelBuilder {
      */
     public GraphLabelBuilder dstGraphVertexType(GraphVertexType dstGraphVertexType);
 
+    /**
+     * 构造批量写入方式
+     *
+     * @param writeMode 写入方式
+     * @return 标签构造器
+     */
+    public GraphLabelBuilder writeMode(GraphWriteModeEnum writeMode);
+
     /**
      * 构造出真实的元素
      *
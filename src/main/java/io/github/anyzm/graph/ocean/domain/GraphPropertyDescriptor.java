@@ -0,0 +1,101 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain;
+
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.reflect.Field;
+import java.util.function.Supplier;
+
+/**
+ * Description  GraphPropertyDescriptor is used for
+ * 一个@GraphProperty字段的描述，构建图标签时使用；
+ * 反射时由字段和注解构建，使用注解处理器时由生成的代码直接给出，不再读取注解
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:30
+ * @version 1.0.0
+ */
+@Getter
+@ToString
+public class GraphPropertyDescriptor {
+
+    /**
+     * java字段名
+     */
+    private final String fieldName;
+
+    /**
+     * 图属性名
+     */
+    private final String property;
+
+    private final GraphDataTypeEnum dataType;
+
+    private final boolean required;
+
+    private final GraphPropertyTypeEnum propertyTypeEnum;
+
+    /**
+     * 属性格式化类，没有时为GraphValueFormatter.class
+     */
+    private final Class<? extends GraphValueFormatter> formatter;
+
+    /**
+     * 创建格式化对象，为空时通过反射创建
+     */
+    @ToString.Exclude
+    private final Supplier<? extends GraphValueFormatter> formatterFactory;
+
+    public GraphPropertyDescriptor(String fieldName, String property, GraphDataTypeEnum dataType, boolean required,
+                                   GraphPropertyTypeEnum propertyTypeEnum, Class<? extends GraphValueFormatter> formatter,
+                                   Supplier<? extends GraphValueFormatter> formatterFactory) {
+        this.fieldName = fieldName;
+        this.property = property;
+        this.dataType = dataType;
+        this.required = required;
+        this.propertyTypeEnum = propertyTypeEnum;
+        this.formatter = formatter;
+        this.formatterFactory = formatterFactory;
+    }
+
+    /**
+     * @param field 字段
+     * @return 字段的描述，字段没有@GraphProperty注解时返回null
+     */
+    public static GraphPropertyDescriptor of(Field field) {
+        GraphProperty graphProperty = field.getAnnotation(GraphProperty.class);
+        if (graphProperty == null) {
+            return null;
+        }
+        return new GraphPropertyDescriptor(field.getName(), graphProperty.value(), graphProperty.dataType(),
+                graphProperty.required(), graphProperty.propertyTypeEnum(), graphProperty.formatter(), null);
+    }
+
+    public boolean hasFormatter() {
+        return GraphValueFormatter.class != this.formatter;
+    }
+
+    /**
+     * @return 新的格式化对象
+     * @throws NebulaException 格式化类没有无参构造方法
+     */
+    public GraphValueFormatter newFormatter() throws NebulaException {
+        try {
+            return this.formatterFactory != null ? this.formatterFactory.get() : this.formatter.newInstance();
+        } catch (Exception e) {
+            throw new NebulaException(ErrorEnum.FIELD_FORMAT_NO_CONSTRUCTOR);
+        }
+    }
+
+}
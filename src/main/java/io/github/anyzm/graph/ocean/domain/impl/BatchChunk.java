@@ -0,0 +1,73 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain.impl;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Description  BatchChunk is used for
+ * 一次提交到nebula的分批，记录其在原始语句列表中的区间[fromIndex, toIndex)
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 15:30
+ * @version 1.0.0
+ */
+@Getter
+public class BatchChunk {
+
+    /**
+     * 分批下标
+     */
+    private final int index;
+
+    /**
+     * 包含的第一条语句下标
+     */
+    private final int fromIndex;
+
+    /**
+     * 最后一条语句的下一个下标
+     */
+    private final int toIndex;
+
+    /**
+     * 分批ngql的字节数(UTF-8)
+     */
+    private final int byteSize;
+
+    /**
+     * 分批包含的语句，语句列表的视图，执行时由session拼接为一次提交
+     */
+    private final List<String> statements;
+
+    public BatchChunk(int index, int fromIndex, int toIndex, int byteSize, List<String> statements) {
+        this.index = index;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.byteSize = byteSize;
+        this.statements = statements;
+    }
+
+    public int getStatementCount() {
+        return this.toIndex - this.fromIndex;
+    }
+
+    /**
+     *
+     * @return 用;拼接后的ngql，每次调用都重新拼接，用于打印和排查
+     */
+    public String getSql() {
+        return String.join(";", this.statements);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchChunk(index=" + index + ", fromIndex=" + fromIndex + ", toIndex=" + toIndex
+                + ", byteSize=" + byteSize + ")";
+    }
+}
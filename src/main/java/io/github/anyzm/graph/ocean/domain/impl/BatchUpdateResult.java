@@ -0,0 +1,176 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain.impl;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Description  BatchUpdateResult is used for
+ * 批量更新的汇总结果，按分批的顺序记录每一批的完成情况，
+ * 分批失败后被二分定位出的失败语句单独记录，其余语句仍然算作成功
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 14:05
+ * @version 1.0.0
+ */
+@ToString(exclude = {"succeeded", "succeededStatements"})
+public class BatchUpdateResult {
+
+    /**
+     * 已提交的分批数
+     */
+    @Getter
+    private int chunkCount;
+
+    /**
+     * 执行完成的分批数，分批内被定位出的失败语句不影响分批完成
+     */
+    @Getter
+    private int succeededChunkCount;
+
+    /**
+     * 成功写入的语句条数
+     */
+    @Getter
+    private long succeededStatementCount;
+
+    /**
+     * 从第一批开始连续完成的分批数，即在此之前的分批除failedStatements外都已经写入nebula
+     */
+    @Getter
+    private int completedWatermark;
+
+    /**
+     * 失败的分批下标和异常
+     */
+    @Getter
+    private final Map<Integer, Throwable> failedChunks = new TreeMap<>();
+
+    /**
+     * 失败的分批，用于定位失败的语句区间
+     */
+    @Getter
+    private final Map<Integer, BatchChunk> failedChunkInfos = new TreeMap<>();
+
+    /**
+     * 二分定位出的失败语句下标和异常
+     */
+    @Getter
+    private final Map<Integer, Throwable> failedStatements = new TreeMap<>();
+
+    @Getter
+    private long costMillis;
+
+    private final BitSet succeeded = new BitSet();
+
+    private final BitSet succeededStatements = new BitSet();
+
+    /**
+     * 记录提交了一个分批
+     *
+     * @param chunk 分批
+     */
+    public synchronized void chunkSubmitted(BatchChunk chunk) {
+        this.chunkCount = Math.max(this.chunkCount, chunk.getIndex() + 1);
+    }
+
+    /**
+     * 记录某一批执行完成，分批内语句的成功与失败分别由statementsSucceeded和statementFailed记录
+     *
+     * @param chunk 分批
+     */
+    public synchronized void chunkSucceeded(BatchChunk chunk) {
+        this.succeeded.set(chunk.getIndex());
+        this.succeededChunkCount++;
+        this.completedWatermark = this.succeeded.nextClearBit(this.completedWatermark);
+    }
+
+    /**
+     * 记录一段语句写入成功
+     *
+     * @param fromIndex 第一条语句下标
+     * @param toIndex 最后一条语句的下一个下标
+     */
+    public synchronized void statementsSucceeded(int fromIndex, int toIndex) {
+        this.succeededStatements.set(fromIndex, toIndex);
+        this.succeededStatementCount += toIndex - fromIndex;
+    }
+
+    /**
+     * 记录一条被定位出的失败语句
+     *
+     * @param index 语句下标
+     * @param cause 异常
+     */
+    public synchronized void statementFailed(int index, Throwable cause) {
+        this.failedStatements.put(index, cause);
+    }
+
+    public synchronized boolean isStatementSucceeded(int index) {
+        return this.succeededStatements.get(index);
+    }
+
+    /**
+     * 获取某条语句失败的原因
+     *
+     * @param index 语句下标
+     * @return 语句所在分批的异常，语句成功或未执行时返回null
+     */
+    public synchronized Throwable getStatementFailure(int index) {
+        Throwable cause = this.failedStatements.get(index);
+        if (cause != null) {
+            return cause;
+        }
+        for (BatchChunk chunk : this.failedChunkInfos.values()) {
+            if (index >= chunk.getFromIndex() && index < chunk.getToIndex()
+                    && !this.succeededStatements.get(index)) {
+                return this.failedChunks.get(chunk.getIndex());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录某一批执行失败
+     *
+     * @param chunk 分批
+     * @param cause 异常
+     */
+    public synchronized void chunkFailed(BatchChunk chunk, Throwable cause) {
+        this.failedChunks.put(chunk.getIndex(), cause);
+        this.failedChunkInfos.put(chunk.getIndex(), chunk);
+    }
+
+    public synchronized void setCostMillis(long costMillis) {
+        this.costMillis = costMillis;
+    }
+
+    public synchronized boolean isSucceeded() {
+        return this.failedChunks.isEmpty() && this.failedStatements.isEmpty()
+                && this.succeededChunkCount == this.chunkCount;
+    }
+
+    /**
+     * 按分批顺序获取第一个失败的异常
+     *
+     * @return 没有失败时返回null
+     */
+    public synchronized Throwable getFirstFailure() {
+        if (!this.failedChunks.isEmpty()) {
+            return this.failedChunks.values().iterator().next();
+        }
+        if (!this.failedStatements.isEmpty()) {
+            return this.failedStatements.values().iterator().next();
+        }
+        return null;
+    }
+
+}
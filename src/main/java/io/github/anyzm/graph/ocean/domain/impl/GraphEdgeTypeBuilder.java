@@ -9,6 +9,7 @@ import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
 import io.github.anyzm.graph.ocean.domain.GraphLabelBuilder;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
 import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 
 import java.util.List;
 import java.util.Map;
@@ -124,6 +125,14 @@ public class GraphEdgeTypeBuilder implements GraphLabelBuilder {
         return this;
     }
 
+    @Override
+    public GraphEdgeTypeBuilder writeMode(GraphWriteModeEnum writeMode) {
+        if (writeMode != null) {
+            this.graphEdgeType.setWriteMode(writeMode);
+        }
+        return this;
+    }
+
     @Override
     public GraphEdgeType build() {
         return this.graphEdgeType;
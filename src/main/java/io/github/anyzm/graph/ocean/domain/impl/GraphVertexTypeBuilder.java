@@ -9,6 +9,7 @@ import io.github.anyzm.graph.ocean.dao.GraphValueFormatter;
 import io.github.anyzm.graph.ocean.domain.GraphLabelBuilder;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
 import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 
 import java.util.List;
 import java.util.Map;
@@ -117,6 +118,14 @@ public class GraphVertexTypeBuilder implements GraphLabelBuilder {
         return this;
     }
 
+    @Override
+    public GraphVertexTypeBuilder writeMode(GraphWriteModeEnum writeMode) {
+        if (writeMode != null) {
+            this.graphVertexType.setWriteMode(writeMode);
+        }
+        return this;
+    }
+
     @Override
     public GraphVertexType build() {
         return this.graphVertexType;
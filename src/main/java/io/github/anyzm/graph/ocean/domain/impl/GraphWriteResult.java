@@ -0,0 +1,104 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description  GraphWriteResult is used for
+ * 按实体汇总的批量写入结果，可以区分哪些实体已经写入nebula，只需要重新提交失败的实体
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 18:10
+ * @version 1.0.0
+ */
+public class GraphWriteResult<T> {
+
+    /**
+     * 提交的实体，顺序与调用方传入的一致
+     */
+    @Getter
+    private final List<T> entities;
+
+    /**
+     * 失败的实体下标和原因
+     */
+    @Getter
+    private final Map<Integer, Throwable> failures;
+
+    /**
+     * 底层分批执行结果
+     */
+    @Getter
+    private final BatchUpdateResult batchUpdateResult;
+
+    public GraphWriteResult(List<T> entities, Map<Integer, Throwable> failures, BatchUpdateResult batchUpdateResult) {
+        this.entities = entities;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.batchUpdateResult = batchUpdateResult;
+    }
+
+    /**
+     * 所有实体都写入成功
+     */
+    public static <T> GraphWriteResult<T> allSucceeded(List<T> entities) {
+        return new GraphWriteResult<>(entities, Collections.emptyMap(), new BatchUpdateResult());
+    }
+
+    /**
+     * 整体写入失败，所有实体都记为同一个原因
+     */
+    public static <T> GraphWriteResult<T> allFailed(List<T> entities, Throwable cause) {
+        Map<Integer, Throwable> failures = Maps.newTreeMap();
+        for (int i = 0; i < entities.size(); i++) {
+            failures.put(i, cause);
+        }
+        return new GraphWriteResult<>(entities, failures, new BatchUpdateResult());
+    }
+
+    public boolean isSucceeded() {
+        return this.failures.isEmpty();
+    }
+
+    public boolean isSucceeded(int index) {
+        return !this.failures.containsKey(index);
+    }
+
+    public int getSucceededCount() {
+        return this.entities.size() - this.failures.size();
+    }
+
+    public List<T> getSucceededEntities() {
+        List<T> succeededEntities = Lists.newArrayListWithExpectedSize(getSucceededCount());
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (!this.failures.containsKey(i)) {
+                succeededEntities.add(this.entities.get(i));
+            }
+        }
+        return succeededEntities;
+    }
+
+    public List<T> getFailedEntities() {
+        List<T> failedEntities = Lists.newArrayListWithExpectedSize(this.failures.size());
+        for (Integer index : this.failures.keySet()) {
+            failedEntities.add(this.entities.get(index));
+        }
+        return failedEntities;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphWriteResult(size=" + entities.size() + ", failed=" + failures.size()
+                + ", batchUpdateResult=" + batchUpdateResult + ")";
+    }
+
+}
@@ -5,22 +5,36 @@
  */
 package io.github.anyzm.graph.ocean.domain.impl;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.vesoft.nebula.Row;
+import com.vesoft.nebula.Value;
 import com.vesoft.nebula.client.graph.data.ResultSet;
-import com.vesoft.nebula.client.graph.data.ValueWrapper;
-import io.github.anyzm.graph.ocean.annotation.GraphProperty;
-import io.github.anyzm.graph.ocean.common.utils.FieldUtils;
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
+import io.github.anyzm.graph.ocean.dao.RowMapper;
 import io.github.anyzm.graph.ocean.domain.GraphLabel;
-import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -35,9 +49,17 @@ import java.util.stream.StreamSupport;
 @ToString
 public class QueryResult implements Iterable<ResultSet.Record>, Serializable {
 
-    @Getter
+    /**
+     * 查询结果的行，通过ResultSet构建时为按需解析的只读视图，调用getData时才复制为ArrayList
+     */
     private List<ResultSet.Record> data = new ArrayList<>();
 
+    /**
+     * 结果集的列名，合并了不同列的结果或未知时为空，解析实体时按属性名逐行查找列
+     */
+    @Getter
+    private List<String> columnNames;
+
     public QueryResult() {
     }
 
@@ -45,6 +67,33 @@ public class QueryResult implements Iterable<ResultSet.Record>, Serializable {
         this.data = data;
     }
 
+    public QueryResult(List<ResultSet.Record> data, List<String> columnNames) {
+        this.data = data;
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * 直接基于nebula的结果集，不复制行：遍历、stream和getEntities时逐行构建Record，值在读取时才解码
+     *
+     * @param resultSet 执行成功的结果集
+     */
+    public QueryResult(ResultSet resultSet) {
+        this.data = new ResultSetRecords(resultSet);
+        this.columnNames = resultSet.getColumnNames();
+    }
+
+    /**
+     * 按需解析的结果在这里复制为ArrayList，之后与普通结果一样可以修改
+     *
+     * @return 查询结果的行
+     */
+    public List<ResultSet.Record> getData() {
+        if (isLazy(this.data)) {
+            this.data = new ArrayList<>(this.data);
+        }
+        return this.data;
+    }
+
     /**
      * 将查询结果合并
      *
@@ -56,24 +105,224 @@ public class QueryResult implements Iterable<ResultSet.Record>, Serializable {
             return this;
         }
         if (this.isEmpty()) {
-            this.data = queryResult.getData();
+            this.data = queryResult.data;
+            this.columnNames = queryResult.getColumnNames();
         } else {
-            this.data.addAll(queryResult.getData());
+            if (isLazy(this.data) || isLazy(queryResult.data)) {
+                // 任一方按需解析时只拼接，不复制行
+                this.data = ConcatRecords.concat(this.data, queryResult.data);
+            } else {
+                this.data.addAll(queryResult.data);
+            }
+            if (!Objects.equals(this.columnNames, queryResult.getColumnNames())) {
+                this.columnNames = null;
+            }
         }
         return this;
     }
 
     public <T> List<T> getEntities(GraphLabel graphLabel, Class<T> clazz) throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        return getEntities(graphLabel, GraphEntityMappings.getRowMapper(clazz));
+    }
+
+    /**
+     * 用指定的行解析器解析为实体，列名已知时只解析一次列下标
+     *
+     * @param graphLabel 图标签，用于属性值的反转格式化，可以为空
+     * @param rowMapper  行解析器
+     * @return 实体列表
+     */
+    public <T> List<T> getEntities(GraphLabel graphLabel, RowMapper<T> rowMapper) throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
         if (this.data == null || this.data.isEmpty()) {
             return Collections.EMPTY_LIST;
         }
         List<T> list = new ArrayList<>(this.data.size());
+        if (this.columnNames == null) {
+            for (ResultSet.Record record : this.data) {
+                list.add(rowMapper.mapRow(record, graphLabel));
+            }
+            return list;
+        }
+        int[] columnIndexes = rowMapper.resolveColumns(this.columnNames);
         for (ResultSet.Record record : this.data) {
-            list.add(parseResult(record, graphLabel, clazz));
+            list.add(rowMapper.mapRow(record, graphLabel, columnIndexes));
         }
         return list;
     }
 
+    /**
+     * 行数达到parallelThreshold时在ForkJoinPool.commonPool上并行解析，可切分的spliterator把行按下标二分给各个线程，
+     * 结果顺序与行的顺序一致；行数不足或parallelThreshold小于等于0时串行解析，行解析器需要是线程安全的
+     *
+     * @param graphLabel        图标签，用于属性值的反转格式化，可以为空
+     * @param rowMapper         行解析器
+     * @param parallelThreshold 并行解析的最小行数，小于等于0时不并行
+     * @return 实体列表
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getEntities(GraphLabel graphLabel, RowMapper<T> rowMapper, int parallelThreshold) throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        if (parallelThreshold <= 0 || this.data == null || this.data.size() < parallelThreshold) {
+            return getEntities(graphLabel, rowMapper);
+        }
+        int[] columnIndexes = this.columnNames == null ? null : rowMapper.resolveColumns(this.columnNames);
+        Object[] entities;
+        try {
+            entities = StreamSupport.stream(this.data.spliterator(), true)
+                    .map(record -> mapRow(rowMapper, record, graphLabel, columnIndexes))
+                    .toArray();
+        } catch (DecodeException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalAccessException) {
+                throw (IllegalAccessException) cause;
+            } else if (cause instanceof InstantiationException) {
+                throw (InstantiationException) cause;
+            }
+            throw (UnsupportedEncodingException) cause;
+        }
+        return (List<T>) Lists.newArrayList(entities);
+    }
+
+    private static <T> T mapRow(RowMapper<T> rowMapper, ResultSet.Record record, GraphLabel graphLabel, int[] columnIndexes) {
+        try {
+            return columnIndexes == null ? rowMapper.mapRow(record, graphLabel) : rowMapper.mapRow(record, graphLabel, columnIndexes);
+        } catch (IllegalAccessException | InstantiationException | UnsupportedEncodingException e) {
+            throw new DecodeException(e);
+        }
+    }
+
+    public long[] longColumn(String column) {
+        return longColumn(column, 0L);
+    }
+
+    /**
+     * 按列读取整数值，直接从nebula的原始值解码，不构建Record和ValueWrapper，也不装箱
+     *
+     * @param column    列名
+     * @param nullValue 值为空或行中没有该列时填充的值
+     * @return 每行的值
+     */
+    public long[] longColumn(String column, long nullValue) {
+        long[] values = new long[size()];
+        visitColumn(column, (row, value) -> {
+            if (isNull(value)) {
+                values[row] = nullValue;
+                return;
+            }
+            CheckThrower.ifTrueThrow(value.getSetField() != Value.IVAL, ErrorEnum.COLUMN_TYPE_NOT_MATCH);
+            values[row] = value.getIVal();
+        });
+        return values;
+    }
+
+    public double[] doubleColumn(String column) {
+        return doubleColumn(column, 0D);
+    }
+
+    /**
+     * 按列读取浮点值，整数值转换为浮点值
+     *
+     * @param column    列名
+     * @param nullValue 值为空或行中没有该列时填充的值
+     * @return 每行的值
+     */
+    public double[] doubleColumn(String column, double nullValue) {
+        double[] values = new double[size()];
+        visitColumn(column, (row, value) -> {
+            if (isNull(value)) {
+                values[row] = nullValue;
+            } else if (value.getSetField() == Value.FVAL) {
+                values[row] = value.getFVal();
+            } else {
+                CheckThrower.ifTrueThrow(value.getSetField() != Value.IVAL, ErrorEnum.COLUMN_TYPE_NOT_MATCH);
+                values[row] = value.getIVal();
+            }
+        });
+        return values;
+    }
+
+    public boolean[] booleanColumn(String column) {
+        return booleanColumn(column, false);
+    }
+
+    /**
+     * 按列读取布尔值
+     *
+     * @param column    列名
+     * @param nullValue 值为空或行中没有该列时填充的值
+     * @return 每行的值
+     */
+    public boolean[] booleanColumn(String column, boolean nullValue) {
+        boolean[] values = new boolean[size()];
+        visitColumn(column, (row, value) -> {
+            if (isNull(value)) {
+                values[row] = nullValue;
+                return;
+            }
+            CheckThrower.ifTrueThrow(value.getSetField() != Value.BVAL, ErrorEnum.COLUMN_TYPE_NOT_MATCH);
+            values[row] = value.isBVal();
+        });
+        return values;
+    }
+
+    /**
+     * 按列读取字符串并字典编码，相同的字符串只解码一次
+     *
+     * @param column 列名
+     * @return 字典和每行的编码，值为空或行中没有该列时编码为-1
+     */
+    public StringColumn stringColumn(String column) {
+        int[] codes = new int[size()];
+        Map<ByteBuffer, Integer> codeMap = Maps.newHashMap();
+        List<String> dictionary = Lists.newArrayList();
+        visitColumn(column, (row, value) -> {
+            if (isNull(value)) {
+                codes[row] = StringColumn.NULL_CODE;
+                return;
+            }
+            CheckThrower.ifTrueThrow(value.getSetField() != Value.SVAL, ErrorEnum.COLUMN_TYPE_NOT_MATCH);
+            byte[] bytes = value.getSVal();
+            Integer code = codeMap.get(ByteBuffer.wrap(bytes));
+            if (code == null) {
+                code = dictionary.size();
+                codeMap.put(ByteBuffer.wrap(bytes), code);
+                dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            codes[row] = code;
+        });
+        return new StringColumn(dictionary, codes);
+    }
+
+    /**
+     * 按行的顺序访问指定列的原始值，列名已知且不包含该列时抛出异常
+     */
+    private void visitColumn(String column, ColumnVisitor visitor) {
+        CheckThrower.ifTrueThrow(this.columnNames != null && !this.columnNames.contains(column), ErrorEnum.COLUMN_NOT_EXIST);
+        visitColumn(this.data, column, 0, visitor);
+    }
+
+    /**
+     * @return 访问完后的下一行行号
+     */
+    private static int visitColumn(List<ResultSet.Record> data, String column, int offset, ColumnVisitor visitor) {
+        if (data instanceof ResultSetRecords) {
+            return ((ResultSetRecords) data).visitColumn(column, offset, visitor);
+        }
+        if (data instanceof ConcatRecords) {
+            for (List<ResultSet.Record> part : ((ConcatRecords) data).parts) {
+                offset = visitColumn(part, column, offset, visitor);
+            }
+            return offset;
+        }
+        for (ResultSet.Record record : data) {
+            visitor.visit(offset++, record.contains(column) ? record.get(column).getValue() : null);
+        }
+        return offset;
+    }
+
+    private static boolean isNull(Value value) {
+        return value == null || value.getSetField() == Value.NVAL;
+    }
+
     public int size() {
         return this.data.size();
     }
@@ -91,73 +340,207 @@ public class QueryResult implements Iterable<ResultSet.Record>, Serializable {
         return this.data.iterator();
     }
 
+    /**
+     * 按需解析的结果按行下标切分，并行遍历时各线程分别构建各自的Record
+     */
+    @Override
+    public Spliterator<ResultSet.Record> spliterator() {
+        return this.data.spliterator();
+    }
+
     public Stream<ResultSet.Record> stream() {
-        Iterable<ResultSet.Record> iterable = this::iterator;
-        return StreamSupport.stream(iterable.spliterator(), false);
-    }
-
-    private <T> void dealFieldReformat(GraphLabel graphLabel, String key, Field field, T obj, Object databaseValue) throws IllegalAccessException {
-        Object value = graphLabel != null ? graphLabel.reformatValue(key, databaseValue) : databaseValue;
-        field.set(obj, value);
-    }
-
-    //解析nebula结果成java bean格式
-    private <T> T parseResult(ResultSet.Record record, GraphLabel graphLabel, Class<T> clazz) throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
-        T obj = clazz.newInstance();
-        List<Field> fieldsList = FieldUtils.listFields(clazz);
-        for (Field field : fieldsList) {
-            GraphProperty annotation = field.getAnnotation(GraphProperty.class);
-            String key = annotation != null ? annotation.value() : field.getName();
-            if (record.contains(key)) {
-                ValueWrapper valueWrapper = record.get(key);
-                if (!valueWrapper.isNull()) {
-                    field.setAccessible(true);
-                    if (annotation != null && !GraphDataTypeEnum.NULL.equals(annotation.dataType())) {
-                        switch (annotation.dataType()) {
-                            case INT:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asLong());
-                                break;
-                            case STRING:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asString());
-                                break;
-                            case DATE:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDate());
-                                break;
-                            case DATE_TIME:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDateTime());
-                                break;
-                            case BOOLEAN:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asBoolean());
-                                break;
-                            case TIMESTAMP:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asTime());
-                                break;
-                            case DOUBLE:
-                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
-                                break;
-                            default:
-                        }
-                        continue;
-                    }
-                    if (valueWrapper.isLong()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asLong());
-                    } else if (valueWrapper.isBoolean()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asBoolean());
-                    } else if (valueWrapper.isDouble()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
-                    } else if (valueWrapper.isDate()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
-                    } else if (valueWrapper.isDateTime()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDateTime());
-                    } else if (valueWrapper.isTime()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asTime());
-                    } else if (valueWrapper.isString()) {
-                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asString());
-                    }
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<ResultSet.Record> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // ResultSet不能序列化，按需解析的行先复制出来
+        getData();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * 并行解析时包装行解析器抛出的受检异常
+     */
+    private static class DecodeException extends RuntimeException {
+
+        private DecodeException(Exception cause) {
+            super(cause);
+        }
+
+    }
+
+    /**
+     * 按下标访问行的可切分spliterator，每次切分把剩余的行对半分开
+     */
+    private static class RecordSpliterator implements Spliterator<ResultSet.Record> {
+
+        private final List<ResultSet.Record> records;
+
+        private int index;
+
+        private final int fence;
+
+        private RecordSpliterator(List<ResultSet.Record> records, int index, int fence) {
+            this.records = records;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ResultSet.Record> action) {
+            if (this.index >= this.fence) {
+                return false;
+            }
+            action.accept(this.records.get(this.index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super ResultSet.Record> action) {
+            for (; this.index < this.fence; this.index++) {
+                action.accept(this.records.get(this.index));
+            }
+        }
+
+        @Override
+        public Spliterator<ResultSet.Record> trySplit() {
+            int mid = (this.index + this.fence) >>> 1;
+            if (mid <= this.index) {
+                return null;
+            }
+            Spliterator<ResultSet.Record> prefix = new RecordSpliterator(this.records, this.index, mid);
+            this.index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.fence - this.index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface ColumnVisitor {
+
+        void visit(int row, Value value);
+
+    }
+
+    private static boolean isLazy(List<ResultSet.Record> data) {
+        return data instanceof ResultSetRecords || data instanceof ConcatRecords;
+    }
+
+    /**
+     * 结果集的只读视图，get时才构建Record
+     */
+    private static class ResultSetRecords extends AbstractList<ResultSet.Record> implements RandomAccess {
+
+        private final ResultSet resultSet;
+
+        private final int size;
+
+        private ResultSetRecords(ResultSet resultSet) {
+            this.resultSet = resultSet;
+            this.size = resultSet.rowsSize();
+        }
+
+        @Override
+        public ResultSet.Record get(int index) {
+            return this.resultSet.rowValues(index);
+        }
+
+        @Override
+        public Spliterator<ResultSet.Record> spliterator() {
+            return new RecordSpliterator(this, 0, this.size);
+        }
+
+        private int visitColumn(String column, int offset, ColumnVisitor visitor) {
+            if (this.size == 0) {
+                return offset;
+            }
+            int columnIndex = this.resultSet.getColumnNames().indexOf(column);
+            List<Row> rows = this.resultSet.getRows();
+            for (int i = 0; i < this.size; i++) {
+                visitor.visit(offset + i, columnIndex < 0 ? null : rows.get(i).getValues().get(columnIndex));
+            }
+            return offset + this.size;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+    }
+
+    /**
+     * 多个结果合并后的只读视图，按顺序遍历各部分，普通结果在合并时复制，避免之后被修改
+     */
+    private static class ConcatRecords extends AbstractList<ResultSet.Record> {
+
+        private final List<List<ResultSet.Record>> parts;
+
+        private final int size;
+
+        private ConcatRecords(List<List<ResultSet.Record>> parts) {
+            this.parts = parts;
+            this.size = parts.stream().mapToInt(List::size).sum();
+        }
+
+        private static ConcatRecords concat(List<ResultSet.Record> first, List<ResultSet.Record> second) {
+            List<List<ResultSet.Record>> parts = Lists.newArrayList();
+            for (List<ResultSet.Record> data : Lists.newArrayList(first, second)) {
+                if (data instanceof ConcatRecords) {
+                    parts.addAll(((ConcatRecords) data).parts);
+                } else {
+                    parts.add(isLazy(data) ? data : new ArrayList<>(data));
                 }
             }
+            return new ConcatRecords(parts);
         }
-        return obj;
+
+        @Override
+        public ResultSet.Record get(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            for (List<ResultSet.Record> part : this.parts) {
+                if (index < part.size()) {
+                    return part.get(index);
+                }
+                index -= part.size();
+            }
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+
+        @Override
+        public Iterator<ResultSet.Record> iterator() {
+            return Iterators.concat(Iterators.transform(this.parts.iterator(), List::iterator));
+        }
+
+        /**
+         * 按下标切分，部分数很少，按下标取行只需要跳过前面的部分
+         */
+        @Override
+        public Spliterator<ResultSet.Record> spliterator() {
+            return new RecordSpliterator(this, 0, this.size);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
     }
 
 }
@@ -0,0 +1,79 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain.impl;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description  StringColumn is used for
+ * 字典编码的字符串列，由QueryResult.stringColumn构建：相同的字符串在字典中只出现一次，
+ * 每行只保存字典下标，分组计数等聚合直接按编码进行，不需要比较字符串
+ *
+ * @author Anyzm
+ * Date  2022/10/19 - 00:20
+ * @version 1.0.0
+ */
+public class StringColumn {
+
+    /**
+     * 值为空或行中没有该列时的编码
+     */
+    public static final int NULL_CODE = -1;
+
+    /**
+     * 去重后的字符串，按第一次出现的顺序排列
+     */
+    @Getter
+    private final List<String> dictionary;
+
+    /**
+     * 每行的值在字典中的下标
+     */
+    @Getter
+    private final int[] codes;
+
+    public StringColumn(List<String> dictionary, int[] codes) {
+        this.dictionary = Collections.unmodifiableList(dictionary);
+        this.codes = codes;
+    }
+
+    /**
+     * @param row 行号
+     * @return 该行的字符串，值为空时返回null
+     */
+    public String get(int row) {
+        int code = this.codes[row];
+        return code == NULL_CODE ? null : this.dictionary.get(code);
+    }
+
+    public int size() {
+        return this.codes.length;
+    }
+
+    /**
+     * @return 不同字符串的个数，不包括空值
+     */
+    public int cardinality() {
+        return this.dictionary.size();
+    }
+
+    /**
+     * @return 字典中每个字符串出现的行数，下标与字典一致
+     */
+    public int[] counts() {
+        int[] counts = new int[this.dictionary.size()];
+        for (int code : this.codes) {
+            if (code != NULL_CODE) {
+                counts[code]++;
+            }
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,197 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.dao.GraphBatchExecutor;
+import io.github.anyzm.graph.ocean.dao.GraphRetryPolicy;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import io.github.anyzm.graph.ocean.domain.impl.BatchUpdateResult;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaTimeoutException;
+import io.github.anyzm.graph.ocean.session.NebulaDeadline;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import io.github.anyzm.graph.ocean.session.NebulaSessionWrapper;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Description  AbstractNebulaBatchExecutor is used for
+ * 批量执行器的公共逻辑：借用session执行一批ngql并归还，记录结果并向分批策略反馈。
+ * 调用方声明语句可以重复执行时，网络类异常按重试策略退避重试；某一批失败后默认不再执行后续分批，按实体返回写入结果时
+ * 数据类异常通过二分定位到具体的失败语句，其余语句照常写入
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 14:10
+ * @version 1.0.0
+ */
+@Slf4j
+public abstract class AbstractNebulaBatchExecutor implements GraphBatchExecutor {
+
+    /**
+     * 重试策略，默认对E_RPC_FAILURE和IOErrorException最多执行3次，只用于声明可以重复执行的语句
+     */
+    @Setter
+    @Getter
+    private GraphRetryPolicy retryPolicy = new ExponentialBackoffRetryPolicy();
+
+    /**
+     * 所有批量更新在分批因数据类异常失败时都二分定位失败的语句并继续执行后续分批，默认关闭：
+     * 只有按实体返回写入结果的调用定位，其余调用在第一个失败的分批处停止
+     */
+    @Setter
+    @Getter
+    private boolean bisectOnFailure;
+
+    /**
+     * 每次提交一批语句的超时时间，包括获取session和执行，小于等于0时不限制；超时的分批不重试也不二分。
+     * 批量写入只使用该超时，NebulaGraphMapper的timeoutMillis不作用于批量写入
+     */
+    @Setter
+    @Getter
+    private long chunkTimeoutMillis;
+
+    @Override
+    public BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                     GraphBatchChunkPolicy chunkPolicy) {
+        return execute(sessionManager, space, sqlList, chunkPolicy, false);
+    }
+
+    /**
+     * 未声明语句可以重复执行，失败的分批不重试
+     */
+    @Override
+    public BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                     GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures) {
+        return execute(sessionManager, space, sqlList, chunkPolicy, isolateFailures, false);
+    }
+
+    @Override
+    public abstract BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                              GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures, boolean retryable);
+
+    /**
+     * 创建分批器，图空间由执行时的session切换，分批中不包含use语句
+     */
+    protected NebulaBatchChunker newChunker(List<String> sqlList, GraphBatchChunkPolicy chunkPolicy) {
+        return new NebulaBatchChunker(sqlList, chunkPolicy);
+    }
+
+    /**
+     * 执行一个分批
+     *
+     * @param isolateFailures 是否二分定位失败语句，为false时以bisectOnFailure为准
+     * @param retryable       语句是否可以重复执行，为false时不重试
+     * @return 是否可以继续执行后续分批，分批内被定位出的失败语句不影响继续执行
+     */
+    protected boolean executeChunk(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                   BatchChunk chunk, GraphBatchChunkPolicy chunkPolicy, BatchUpdateResult result,
+                                   boolean isolateFailures, boolean retryable) {
+        long start = System.currentTimeMillis();
+        Throwable failure = executeWithRetry(sessionManager, space, chunk.getStatements(), retryable);
+        chunkPolicy.feedback(chunk.getStatementCount(), chunk.getByteSize(),
+                System.currentTimeMillis() - start, failure == null);
+        if (failure == null) {
+            result.statementsSucceeded(chunk.getFromIndex(), chunk.getToIndex());
+            result.chunkSucceeded(chunk);
+            return true;
+        }
+        if (!(isolateFailures || this.bisectOnFailure) || this.retryPolicy.isRetryable(failure) || failure instanceof NebulaTimeoutException) {
+            result.chunkFailed(chunk, failure);
+            return false;
+        }
+        Throwable abort = bisect(sessionManager, space, sqlList, chunk.getFromIndex(), chunk.getToIndex(), failure, result, retryable);
+        if (abort != null) {
+            result.chunkFailed(chunk, abort);
+            return false;
+        }
+        result.chunkSucceeded(chunk);
+        return true;
+    }
+
+    /**
+     * 二分执行已知失败的语句区间，直到定位出单条失败语句
+     *
+     * @return 二分过程中遇到的无法继续的异常，没有时返回null
+     */
+    private Throwable bisect(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                             int fromIndex, int toIndex, Throwable failure, BatchUpdateResult result,
+                             boolean retryable) {
+        if (toIndex - fromIndex == 1) {
+            log.warn("批量更新定位到失败语句,index={},ngql={}", fromIndex, sqlList.get(fromIndex));
+            result.statementFailed(fromIndex, failure);
+            return null;
+        }
+        int middle = (fromIndex + toIndex) >>> 1;
+        int[][] halves = {{fromIndex, middle}, {middle, toIndex}};
+        for (int[] half : halves) {
+            Throwable halfFailure = executeWithRetry(sessionManager, space, sqlList.subList(half[0], half[1]), retryable);
+            if (halfFailure == null) {
+                result.statementsSucceeded(half[0], half[1]);
+                continue;
+            }
+            if (this.retryPolicy.isRetryable(halfFailure) || halfFailure instanceof NebulaTimeoutException) {
+                return halfFailure;
+            }
+            Throwable abort = bisect(sessionManager, space, sqlList, half[0], half[1], halfFailure, result, retryable);
+            if (abort != null) {
+                return abort;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按重试策略执行，语句不能重复执行时只执行一次
+     *
+     * @return 最后一次执行的异常，成功时返回null
+     */
+    private Throwable executeWithRetry(NebulaPoolSessionManager sessionManager, String space, List<String> statements,
+                                       boolean retryable) {
+        int maxAttempts = retryable ? this.retryPolicy.getMaxAttempts() : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                executeChunkSql(sessionManager, space, statements);
+                return null;
+            } catch (Throwable e) {
+                if (attempt >= maxAttempts || !this.retryPolicy.isRetryable(e)) {
+                    return e;
+                }
+                long backoffMillis = this.retryPolicy.getBackoffMillis(attempt);
+                log.warn("批量更新nebula失败,{}ms后第{}次重试,msg={}", backoffMillis, attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 借用session在截止时间内提交一批语句，语句由session拼接为一次执行
+     */
+    protected void executeChunkSql(NebulaPoolSessionManager sessionManager, String space, List<String> statements) throws Exception {
+        NebulaDeadline deadline = NebulaDeadline.after(this.chunkTimeoutMillis);
+        NebulaSessionWrapper session = null;
+        try {
+            session = sessionManager.getSession(GraphOperationTypeEnum.UPDATE, space, deadline);
+            int execute = session.execute(space, statements, deadline);
+            CheckThrower.ifTrueThrow(execute != 0, ErrorEnum.UPDATE_NEBULA_EROR);
+        } finally {
+            if (session != null) {
+                session.release();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Description  AdaptiveBatchChunkPolicy is used for
+ * 自适应分批策略(AIMD)：每批耗时不超过目标耗时且执行成功时，单批条数加性增加；
+ * 超过目标耗时或执行失败时，单批条数乘性减少。字节数上限固定，不参与调整。
+ * 调整的是语句条数，一条多行INSERT语句按一条计算；字节数上限同时约束单批和单条语句，
+ * NebulaGraphMapper会把getMaxBytes传给更新引擎，多行INSERT按该上限拆成多条语句，
+ * 因此单批的实际大小不会因为单条语句行数过多而失控。
+ * 当前的单批条数、平均耗时、错误率等都可以通过getter观察
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 15:40
+ * @version 1.0.0
+ */
+@Slf4j
+public class AdaptiveBatchChunkPolicy implements GraphBatchChunkPolicy {
+
+    /**
+     * 平均耗时、错误率的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final int minStatements;
+
+    private final int maxStatements;
+
+    private final int maxBytes;
+
+    private final long targetLatencyMillis;
+
+    private final int additiveIncrease;
+
+    private final double multiplicativeDecrease;
+
+    private int currentMaxStatements;
+
+    private double latencyEwma;
+
+    private double errorRateEwma;
+
+    private long chunkCount;
+
+    private long statementCount;
+
+    private long byteCount;
+
+    private long increaseCount;
+
+    private long decreaseCount;
+
+    /**
+     * 以200ms为目标耗时，单批条数在50~5000之间调整
+     */
+    public AdaptiveBatchChunkPolicy() {
+        this(FixedBatchChunkPolicy.DEFAULT_MAX_STATEMENTS, 50, 5000, DEFAULT_MAX_BYTES, 200, 50, 0.5);
+    }
+
+    /**
+     * @param initialStatements      初始单批条数
+     * @param minStatements          最小单批条数
+     * @param maxStatements          最大单批条数
+     * @param maxBytes               单批最大字节数
+     * @param targetLatencyMillis    目标耗时
+     * @param additiveIncrease       每次增加的条数
+     * @param multiplicativeDecrease 每次减少后保留的比例，(0,1)
+     */
+    public AdaptiveBatchChunkPolicy(int initialStatements, int minStatements, int maxStatements, int maxBytes,
+                                    long targetLatencyMillis, int additiveIncrease, double multiplicativeDecrease) {
+        CheckThrower.ifFalseThrow(minStatements >= 1 && minStatements <= maxStatements,
+                "MinStatements must greater than zero and not greater than maxStatements");
+        CheckThrower.ifFalseThrow(maxBytes >= 1 && targetLatencyMillis >= 1 && additiveIncrease >= 1,
+                "MaxBytes, targetLatencyMillis and additiveIncrease must greater than zero");
+        CheckThrower.ifFalseThrow(multiplicativeDecrease > 0 && multiplicativeDecrease < 1,
+                "MultiplicativeDecrease must between zero and one");
+        this.minStatements = minStatements;
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.additiveIncrease = additiveIncrease;
+        this.multiplicativeDecrease = multiplicativeDecrease;
+        this.currentMaxStatements = Math.max(minStatements, Math.min(maxStatements, initialStatements));
+    }
+
+    @Override
+    public synchronized int getMaxStatements() {
+        return this.currentMaxStatements;
+    }
+
+    @Override
+    public int getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public synchronized void feedback(int statementCount, int byteSize, long costMillis, boolean succeeded) {
+        this.chunkCount++;
+        this.statementCount += statementCount;
+        this.byteCount += byteSize;
+        this.latencyEwma = this.chunkCount == 1 ? costMillis : EWMA_ALPHA * costMillis + (1 - EWMA_ALPHA) * this.latencyEwma;
+        this.errorRateEwma = EWMA_ALPHA * (succeeded ? 0 : 1) + (1 - EWMA_ALPHA) * this.errorRateEwma;
+        int previous = this.currentMaxStatements;
+        if (!succeeded || costMillis > this.targetLatencyMillis) {
+            this.currentMaxStatements = Math.max(this.minStatements, (int) (previous * this.multiplicativeDecrease));
+            this.decreaseCount++;
+        } else if (statementCount >= previous) {
+            // 只有跑满了当前条数的分批才说明还有余量，被字节数截断的分批不增加
+            this.currentMaxStatements = Math.min(this.maxStatements, previous + this.additiveIncrease);
+            this.increaseCount++;
+        }
+        if (previous != this.currentMaxStatements) {
+            log.debug("调整单批条数 {} -> {},costMillis={},succeeded={},latencyEwma={},errorRate={}",
+                    previous, this.currentMaxStatements, costMillis, succeeded, this.latencyEwma, this.errorRateEwma);
+        }
+    }
+
+    public synchronized double getLatencyEwma() {
+        return this.latencyEwma;
+    }
+
+    public synchronized double getErrorRate() {
+        return this.errorRateEwma;
+    }
+
+    public synchronized long getChunkCount() {
+        return this.chunkCount;
+    }
+
+    /**
+     *
+     * @return 实际执行的分批平均条数
+     */
+    public synchronized double getAverageStatements() {
+        return this.chunkCount == 0 ? 0 : (double) this.statementCount / this.chunkCount;
+    }
+
+    /**
+     *
+     * @return 实际执行的分批平均字节数
+     */
+    public synchronized double getAverageBytes() {
+        return this.chunkCount == 0 ? 0 : (double) this.byteCount / this.chunkCount;
+    }
+
+    public synchronized long getIncreaseCount() {
+        return this.increaseCount;
+    }
+
+    public synchronized long getDecreaseCount() {
+        return this.decreaseCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveBatchChunkPolicy(currentMaxStatements=" + currentMaxStatements + ", maxBytes=" + maxBytes
+                + ", targetLatencyMillis=" + targetLatencyMillis + ", latencyEwma=" + latencyEwma
+                + ", errorRate=" + errorRateEwma + ", chunkCount=" + chunkCount
+                + ", averageStatements=" + getAverageStatements() + ", averageBytes=" + getAverageBytes() + ")";
+    }
+
+}
@@ -0,0 +1,86 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.vesoft.nebula.ErrorCode;
+import com.vesoft.nebula.client.graph.exception.IOErrorException;
+import io.github.anyzm.graph.ocean.dao.GraphRetryPolicy;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import lombok.ToString;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Description  ExponentialBackoffRetryPolicy is used for
+ * 指数退避重试策略，只重试E_RPC_FAILURE和IOErrorException，等待时间在[backoff/2, backoff]之间随机，
+ * 避免多个线程同时重试
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:45
+ * @version 1.0.0
+ */
+@ToString
+public class ExponentialBackoffRetryPolicy implements GraphRetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+
+    private static final String RPC_FAILURE_CODE = String.valueOf(ErrorCode.E_RPC_FAILURE.getValue());
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    public ExponentialBackoffRetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    public ExponentialBackoffRetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        CheckThrower.ifFalseThrow(maxAttempts >= 1, "MaxAttempts must greater than zero");
+        CheckThrower.ifFalseThrow(initialBackoffMillis >= 0 && maxBackoffMillis >= initialBackoffMillis,
+                "Backoff must not be negative and maxBackoffMillis must not less than initialBackoffMillis");
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Override
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    @Override
+    public boolean isRetryable(Throwable cause) {
+        for (Throwable e = cause; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof IOErrorException) {
+                return true;
+            }
+            if (e instanceof NebulaExecuteException && RPC_FAILURE_CODE.equals(((NebulaExecuteException) e).getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long getBackoffMillis(int attempt) {
+        long backoff = this.initialBackoffMillis << Math.min(attempt - 1, 30);
+        if (backoff <= 0 || backoff > this.maxBackoffMillis) {
+            backoff = this.maxBackoffMillis;
+        }
+        if (backoff <= 1) {
+            return backoff;
+        }
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+}
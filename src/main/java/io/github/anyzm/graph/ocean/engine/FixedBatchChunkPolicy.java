@@ -0,0 +1,53 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import lombok.ToString;
+
+/**
+ * Description  FixedBatchChunkPolicy is used for
+ * 固定大小的分批策略，默认每批最多500条语句、4M字节
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 15:25
+ * @version 1.0.0
+ */
+@ToString
+public class FixedBatchChunkPolicy implements GraphBatchChunkPolicy {
+
+    public static final int DEFAULT_MAX_STATEMENTS = 500;
+
+    private final int maxStatements;
+
+    private final int maxBytes;
+
+    public FixedBatchChunkPolicy() {
+        this(DEFAULT_MAX_STATEMENTS, DEFAULT_MAX_BYTES);
+    }
+
+    public FixedBatchChunkPolicy(int maxStatements, int maxBytes) {
+        CheckThrower.ifFalseThrow(maxStatements >= 1 && maxBytes >= 1, "MaxStatements and maxBytes must greater than zero");
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int getMaxStatements() {
+        return this.maxStatements;
+    }
+
+    @Override
+    public int getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    @Override
+    public void feedback(int statementCount, int byteSize, long costMillis, boolean succeeded) {
+    }
+
+}
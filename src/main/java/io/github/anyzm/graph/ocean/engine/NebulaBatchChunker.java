@@ -0,0 +1,72 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Description  NebulaBatchChunker is used for
+ * 按分批策略把语句列表切分为分批，每次next时读取策略当前的限制，
+ * 因此分批大小可以随执行反馈变化。分批只记录语句区间，不拼接ngql，
+ * 执行时由session把use语句和各语句一起写入提交的缓冲，语句只复制一次
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 15:50
+ * @version 1.0.0
+ */
+public class NebulaBatchChunker implements Iterator<BatchChunk> {
+
+    private static final String SEPARATOR = ";";
+
+    private final List<String> sqlList;
+
+    private final GraphBatchChunkPolicy policy;
+
+    private int position;
+
+    private int chunkIndex;
+
+    public NebulaBatchChunker(List<String> sqlList, GraphBatchChunkPolicy policy) {
+        this.sqlList = sqlList;
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.position < this.sqlList.size();
+    }
+
+    @Override
+    public BatchChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int maxStatements = this.policy.getMaxStatements();
+        int maxBytes = this.policy.getMaxBytes();
+        int fromIndex = this.position;
+        int byteSize = 0;
+        while (this.position < this.sqlList.size() && this.position - fromIndex < maxStatements) {
+            String sql = this.sqlList.get(this.position);
+            int sqlBytes = StringUtil.utf8Length(sql);
+            int separatorBytes = this.position == fromIndex ? 0 : SEPARATOR.length();
+            // 单条语句超过字节上限时单独成批
+            if (this.position > fromIndex && byteSize + separatorBytes + sqlBytes > maxBytes) {
+                break;
+            }
+            byteSize += separatorBytes + sqlBytes;
+            this.position++;
+        }
+        return new BatchChunk(this.chunkIndex++, fromIndex, this.position, byteSize,
+                this.sqlList.subList(fromIndex, this.position));
+    }
+
+}
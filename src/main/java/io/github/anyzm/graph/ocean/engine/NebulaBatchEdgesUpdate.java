@@ -5,8 +5,7 @@
  */
 package io.github.anyzm.graph.ocean.engine;
 
-import io.github.anyzm.graph.ocean.common.GraphHelper;
-import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
 import io.github.anyzm.graph.ocean.dao.EdgeUpdateEngine;
 import io.github.anyzm.graph.ocean.domain.GraphLabel;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
@@ -15,15 +14,18 @@ import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
 import io.github.anyzm.graph.ocean.enums.ErrorEnum;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * 批量边更新引擎
@@ -33,7 +35,9 @@ import java.util.Set;
  */
 public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E> {
 
-    private static final String UPSET_SQL_FORMAT = "UPSERT EDGE %s->%s of %s SET %s";
+    private static final String EDGE_INSERT_SQL = "INSERT EDGE ";
+
+    private static final String IF_NOT_EXISTS = "IF NOT EXISTS ";
 
     /**
      * 仅生成边的更新sql
@@ -50,16 +54,48 @@ public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E
 
     private List<GraphVertexEntity<T>> dstGraphVertexEntities;
 
+    /**
+     * 边和起点终点的写入方式，为空时分别使用边类型和顶点类型上声明的写入方式
+     */
+    private GraphWriteModeEnum writeMode;
+
+    /**
+     * 多行INSERT单条语句的最大字节数，加入下一行会超过时另起一条语句，单行超过时单独成为一条语句
+     */
+    private int maxStatementBytes = GraphBatchChunkPolicy.DEFAULT_MAX_BYTES;
+
+    /**
+     * 逐条生成语句时复用的缓冲
+     */
+    private final StringBuilder statementBuilder = new StringBuilder();
+
     public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities) throws NebulaException {
+        this(graphEdgeEntities, (GraphWriteModeEnum) null);
+    }
+
+    public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities, GraphWriteModeEnum writeMode) throws NebulaException {
         this.graphEdgeEntities = graphEdgeEntities;
         CheckThrower.ifTrueThrow(CollectionUtils.isEmpty(graphEdgeEntities), ErrorEnum.UPDATE_FIELD_DATA_NOT_EMPTY);
         this.srcGraphVertexType = graphEdgeEntities.get(0).getSrcVertexType();
         this.dstGraphVertexType = graphEdgeEntities.get(0).getDstVertexType();
         this.isOnlyGenerateEdgeSql = true;
+        this.writeMode = writeMode;
+    }
+
+    public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities, GraphWriteModeEnum writeMode,
+                                  int maxStatementBytes) throws NebulaException {
+        this(graphEdgeEntities, writeMode);
+        CheckThrower.ifFalseThrow(maxStatementBytes > 0, "MaxStatementBytes must greater than zero");
+        this.maxStatementBytes = maxStatementBytes;
     }
 
     public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities, List<GraphVertexEntity<S>> srcGraphVertexEntities,
                                   List<GraphVertexEntity<T>> dstGraphVertexEntities) throws NebulaException {
+        this(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities, null);
+    }
+
+    public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities, List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                  List<GraphVertexEntity<T>> dstGraphVertexEntities, GraphWriteModeEnum writeMode) throws NebulaException {
         this.graphEdgeEntities = graphEdgeEntities;
         CheckThrower.ifTrueThrow(CollectionUtils.isEmpty(graphEdgeEntities), ErrorEnum.UPDATE_FIELD_DATA_NOT_EMPTY);
         this.srcGraphVertexEntities = srcGraphVertexEntities;
@@ -67,12 +103,22 @@ public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E
         this.srcGraphVertexType = graphEdgeEntities.get(0).getSrcVertexType();
         this.dstGraphVertexType = graphEdgeEntities.get(0).getDstVertexType();
         this.isOnlyGenerateEdgeSql = false;
+        this.writeMode = writeMode;
+    }
+
+    public NebulaBatchEdgesUpdate(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities, List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                  List<GraphVertexEntity<T>> dstGraphVertexEntities, GraphWriteModeEnum writeMode,
+                                  int maxStatementBytes) throws NebulaException {
+        this(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities, writeMode);
+        CheckThrower.ifFalseThrow(maxStatementBytes > 0, "MaxStatementBytes must greater than zero");
+        this.maxStatementBytes = maxStatementBytes;
     }
 
 
     private List<String> getDstVertexSql() throws NebulaException {
         if (CollectionUtils.isNotEmpty(dstGraphVertexEntities)) {
-            NebulaBatchVertexUpdate nebulaUpdateBatchVertex = new NebulaBatchVertexUpdate(dstGraphVertexEntities);
+            NebulaBatchVertexUpdate<T> nebulaUpdateBatchVertex = new NebulaBatchVertexUpdate<>(dstGraphVertexEntities,
+                    this.writeMode, this.maxStatementBytes);
             return nebulaUpdateBatchVertex.getSqlList();
         }
         return Collections.emptyList();
@@ -80,7 +126,8 @@ public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E
 
     private List<String> getSrcVertexSql() throws NebulaException {
         if (CollectionUtils.isNotEmpty(this.srcGraphVertexEntities)) {
-            NebulaBatchVertexUpdate nebulaUpdateBatchVertex = new NebulaBatchVertexUpdate(this.srcGraphVertexEntities);
+            NebulaBatchVertexUpdate<S> nebulaUpdateBatchVertex = new NebulaBatchVertexUpdate<>(this.srcGraphVertexEntities,
+                    this.writeMode, this.maxStatementBytes);
             return nebulaUpdateBatchVertex.getSqlList();
         }
         return Collections.emptyList();
@@ -89,16 +136,46 @@ public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E
 
     @Override
     public List<String> getSqlList() throws NebulaException {
-        List<String> sqlList = getEdgeSql();
+        return getSqlList(null);
+    }
+
+    /**
+     * @param statementRows 每条语句写入的边下标，为空时不记录；起点终点的语句不写入边，记录为空列表
+     */
+    @Override
+    public List<String> getSqlList(List<List<Integer>> statementRows) throws NebulaException {
+        List<String> sqlList = getEdgeSql(statementRows);
         if (isOnlyGenerateEdgeSql) {
             return sqlList;
         }
+        int edgeSqlSize = sqlList.size();
         sqlList.addAll(this.getSrcVertexSql());
         sqlList.addAll(this.getDstVertexSql());
+        if (statementRows != null) {
+            for (int i = edgeSqlSize; i < sqlList.size(); i++) {
+                statementRows.add(Collections.emptyList());
+            }
+        }
         return sqlList;
     }
 
-    private List<String> getEdgeSql() throws NebulaException {
+    private GraphWriteModeEnum getWriteMode(GraphEdgeType<S, T, E> graphEdgeType) {
+        if (this.writeMode != null) {
+            return this.writeMode;
+        }
+        GraphWriteModeEnum labelWriteMode = graphEdgeType.getWriteMode();
+        return labelWriteMode == null ? GraphWriteModeEnum.UPSERT : labelWriteMode;
+    }
+
+    private List<String> getEdgeSql(List<List<Integer>> statementRows) throws NebulaException {
+        if (getWriteMode(this.getGraphEdgeType()).isInsert()) {
+            return getInsertSql(statementRows);
+        }
+        if (statementRows != null) {
+            for (int i = 0; i < this.graphEdgeEntities.size(); i++) {
+                statementRows.add(Collections.singletonList(i));
+            }
+        }
         if (this.graphEdgeEntities.size() == 1) {
             String sql = getOneSql();
             return Lists.newArrayList(sql);
@@ -126,27 +203,65 @@ public class NebulaBatchEdgesUpdate<S, T, E> implements EdgeUpdateEngine<S, T, E
             String sql = generateSql(graphEdgeEntity);
             sqlList.add(sql);
         }
-        return StringUtil.aggregate(sqlList, sqlList.size(), ";");
+        return sqlList;
     }
 
     private String generateSql(GraphEdgeEntity<S, T, E> graphEdgeEntity) throws NebulaException {
-        String src = GraphHelper.getQuerySrcId(graphEdgeEntity.getGraphEdgeType(), graphEdgeEntity.getSrcId());
-        String end = GraphHelper.getQueryDstId(graphEdgeEntity.getGraphEdgeType(), graphEdgeEntity.getDstId());
-        Set<Map.Entry<String, Object>> entries = graphEdgeEntity.getProps().entrySet();
-        StringBuilder sqlBuilder = new StringBuilder();
-        Map<String, GraphDataTypeEnum> dataTypeMap = graphEdgeEntity.getGraphEdgeType().getDataTypeMap();
-        for (Map.Entry<String, Object> entry : entries) {
-            GraphDataTypeEnum graphDataTypeEnum = dataTypeMap.get(entry.getKey());
-            if (GraphDataTypeEnum.STRING.equals(graphDataTypeEnum)) {
-                sqlBuilder.append(",").append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
-            } else {
-                sqlBuilder.append(",").append(entry.getKey()).append("=").append(entry.getValue());
+        this.statementBuilder.setLength(0);
+        return NebulaStatementEncoder.encodeUpsertEdge(this.statementBuilder, graphEdgeEntity).toString();
+    }
+
+
+    /**
+     * 获取多行INSERT语句，边类型和属性集合都相同的边才能合并到同一条语句中
+     *
+     * @return
+     */
+    private List<String> getInsertSql(List<List<Integer>> statementRows) throws NebulaException {
+        // nebula> INSERT EDGE follow(degree) VALUES "player100"->"player101":(95), "player102"->"player100":(90);
+        // 分组内记录边的下标
+        Map<String, Map<Set<String>, List<Integer>>> groups = Maps.newLinkedHashMap();
+        for (int i = 0; i < this.graphEdgeEntities.size(); i++) {
+            GraphEdgeEntity<S, T, E> graphEdgeEntity = this.graphEdgeEntities.get(i);
+            Set<String> fields = new TreeSet<>(graphEdgeEntity.getProps().keySet());
+            groups.computeIfAbsent(graphEdgeEntity.getGraphEdgeType().getEdgeName(), k -> Maps.newLinkedHashMap())
+                    .computeIfAbsent(fields, k -> Lists.newArrayList()).add(i);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        for (Map<Set<String>, List<Integer>> edgeGroup : groups.values()) {
+            for (Map.Entry<Set<String>, List<Integer>> group : edgeGroup.entrySet()) {
+                GraphEdgeType<S, T, E> graphEdgeType = this.graphEdgeEntities.get(group.getValue().get(0)).getGraphEdgeType();
+                String header = generateInsertHeader(graphEdgeType, group.getKey());
+                addInsertSql(sqlList, statementRows, header, graphEdgeType, group.getKey(), group.getValue());
             }
         }
-        String sqlFieldSet = sqlBuilder.delete(0, 1).toString();
-        return String.format(UPSET_SQL_FORMAT, src, end, graphEdgeEntity.getGraphEdgeType().getEdgeName(), sqlFieldSet);
+        return sqlList;
+    }
+
+    private String generateInsertHeader(GraphEdgeType<S, T, E> graphEdgeType, Set<String> fields) {
+        StringBuilder builder = new StringBuilder(EDGE_INSERT_SQL);
+        if (GraphWriteModeEnum.INSERT_IF_NOT_EXISTS.equals(getWriteMode(graphEdgeType))) {
+            builder.append(IF_NOT_EXISTS);
+        }
+        builder.append(graphEdgeType.getEdgeName()).append('(');
+        builder.append(String.join(",", fields));
+        return builder.append(") VALUES ").toString();
     }
 
+    /**
+     * 逐行拼接INSERT语句，拆分规则见{@link NebulaMultiRowInsert}
+     */
+    private void addInsertSql(List<String> sqlList, List<List<Integer>> statementRows, String header,
+                              GraphEdgeType<S, T, E> graphEdgeType, Set<String> fields, List<Integer> rows) {
+        Map<String, GraphDataTypeEnum> dataTypeMap = graphEdgeType.getDataTypeMap();
+        NebulaMultiRowInsert.addInsertSql(sqlList, statementRows, header, rows, this.maxStatementBytes, this.statementBuilder,
+                (row, index) -> {
+                    GraphEdgeEntity<S, T, E> graphEdgeEntity = this.graphEdgeEntities.get(index);
+                    NebulaStatementEncoder.appendEdgeEndpoints(row, graphEdgeType, graphEdgeEntity.getSrcId(),
+                            graphEdgeEntity.getDstId());
+                    NebulaMultiRowInsert.appendValues(row, fields, dataTypeMap, graphEdgeEntity.getProps());
+                });
+    }
 
     @Override
     public List<GraphEdgeEntity<S, T, E>> getGraphEdgeEntityList() {
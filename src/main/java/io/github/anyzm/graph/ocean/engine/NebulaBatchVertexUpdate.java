@@ -5,22 +5,25 @@
  */
 package io.github.anyzm.graph.ocean.engine;
 
-import io.github.anyzm.graph.ocean.common.GraphHelper;
-import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
 import io.github.anyzm.graph.ocean.dao.VertexUpdateEngine;
 import io.github.anyzm.graph.ocean.domain.GraphLabel;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
 import io.github.anyzm.graph.ocean.enums.ErrorEnum;
 import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * 批量顶点更新引擎
@@ -30,7 +33,9 @@ import java.util.Set;
  */
 public class NebulaBatchVertexUpdate<T> implements VertexUpdateEngine {
 
-    private static final String VERTEX_UPSET_SQL = "UPSERT VERTEX %s SET %s";
+    private static final String VERTEX_INSERT_SQL = "INSERT VERTEX ";
+
+    private static final String IF_NOT_EXISTS = "IF NOT EXISTS ";
 
     private List<GraphVertexEntity<T>> graphVertexEntities;
 
@@ -38,6 +43,18 @@ public class NebulaBatchVertexUpdate<T> implements VertexUpdateEngine {
 
     private int batchSize;
 
+    private GraphWriteModeEnum writeMode;
+
+    /**
+     * 多行INSERT单条语句的最大字节数，加入下一行会超过时另起一条语句，单行超过时单独成为一条语句
+     */
+    private int maxStatementBytes;
+
+    /**
+     * 逐条生成语句时复用的缓冲
+     */
+    private final StringBuilder statementBuilder = new StringBuilder();
+
 
     /**
      * 构建顶点批量插入
@@ -45,10 +62,38 @@ public class NebulaBatchVertexUpdate<T> implements VertexUpdateEngine {
      * @param graphVertexEntities
      */
     public NebulaBatchVertexUpdate(List<GraphVertexEntity<T>> graphVertexEntities) throws NebulaException {
+        this(graphVertexEntities, null);
+    }
+
+    /**
+     * 构建顶点批量插入
+     *
+     * @param graphVertexEntities
+     * @param writeMode           写入方式，为空时使用顶点类型上声明的写入方式
+     */
+    public NebulaBatchVertexUpdate(List<GraphVertexEntity<T>> graphVertexEntities, GraphWriteModeEnum writeMode) throws NebulaException {
+        this(graphVertexEntities, writeMode, GraphBatchChunkPolicy.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * 构建顶点批量插入
+     *
+     * @param graphVertexEntities
+     * @param writeMode           写入方式，为空时使用顶点类型上声明的写入方式
+     * @param maxStatementBytes   多行INSERT单条语句的最大字节数，一般取分批策略的getMaxBytes
+     */
+    public NebulaBatchVertexUpdate(List<GraphVertexEntity<T>> graphVertexEntities, GraphWriteModeEnum writeMode,
+                                   int maxStatementBytes) throws NebulaException {
+        CheckThrower.ifFalseThrow(maxStatementBytes > 0, "MaxStatementBytes must greater than zero");
+        this.maxStatementBytes = maxStatementBytes;
         CheckThrower.ifTrueThrow(CollectionUtils.isEmpty(graphVertexEntities), ErrorEnum.UPDATE_FIELD_DATA_NOT_EMPTY);
         this.graphVertexEntities = graphVertexEntities;
         this.graphVertexType = graphVertexEntities.get(0).getGraphVertexType();
         this.batchSize = graphVertexEntities.size();
+        if (writeMode == null) {
+            writeMode = this.graphVertexType.getWriteMode();
+        }
+        this.writeMode = writeMode == null ? GraphWriteModeEnum.UPSERT : writeMode;
     }
 
     private String getOneVertexSql() throws NebulaException {
@@ -58,30 +103,61 @@ public class NebulaBatchVertexUpdate<T> implements VertexUpdateEngine {
     private List<String> getMultiVertexSql() throws NebulaException {
         // nebula> UPSERT VERTEX 111 SET player.name = "Dwight Howard", player.age = $^.player.age + 11;
         List<String> sqlList = Lists.newArrayListWithExpectedSize(batchSize);
-        for (GraphVertexEntity graphVertexEntity : this.graphVertexEntities) {
+        for (GraphVertexEntity<T> graphVertexEntity : this.graphVertexEntities) {
             String sql = generateUpsetSql(graphVertexEntity);
             sqlList.add(sql);
         }
-        return StringUtil.aggregate(sqlList, batchSize, ";");
+        return sqlList;
     }
 
-    private String generateUpsetSql(GraphVertexEntity graphVertexEntity) throws NebulaException {
-        Set<Map.Entry<String, Object>> entries = graphVertexEntity.getProps().entrySet();
-        String queryId = GraphHelper.getQueryId(this.graphVertexType, graphVertexEntity.getId());
-        StringBuilder builder = new StringBuilder();
-        Map<String, GraphDataTypeEnum> dataTypeMap = graphVertexEntity.getGraphVertexType().getDataTypeMap();
-        for (Map.Entry<String, Object> entry : entries) {
-            GraphDataTypeEnum graphDataTypeEnum = dataTypeMap.get(entry.getKey());
-            if (GraphDataTypeEnum.STRING.equals(graphDataTypeEnum)) {
-                builder.append(',').append(this.graphVertexType.getVertexName()).append('.')
-                        .append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
-            } else {
-                builder.append(',').append(this.graphVertexType.getVertexName()).append('.')
-                        .append(entry.getKey()).append("=").append(entry.getValue());
-            }
+    private String generateUpsetSql(GraphVertexEntity<T> graphVertexEntity) throws NebulaException {
+        this.statementBuilder.setLength(0);
+        return NebulaStatementEncoder.encodeUpsertVertex(this.statementBuilder, graphVertexEntity).toString();
+    }
+
+    private List<String> getInsertVertexSql(List<List<Integer>> statementRows) throws NebulaException {
+        // nebula> INSERT VERTEX player(name, age) VALUES "player100":("Tim Duncan", 42), "player101":("Tony Parker", 36);
+        // 属性集合相同的顶点才能合并到同一条语句中，分组内记录顶点下标
+        Map<Set<String>, List<Integer>> groups = Maps.newLinkedHashMap();
+        for (int i = 0; i < this.batchSize; i++) {
+            Set<String> fields = new TreeSet<>(this.graphVertexEntities.get(i).getProps().keySet());
+            groups.computeIfAbsent(fields, k -> Lists.newArrayList()).add(i);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        for (Map.Entry<Set<String>, List<Integer>> group : groups.entrySet()) {
+            String header = generateInsertHeader(group.getKey());
+            addInsertSql(sqlList, statementRows, header, group.getKey(), group.getValue());
         }
-        String sqlSet = builder.delete(0, 1).toString();
-        return String.format(VERTEX_UPSET_SQL, queryId, sqlSet);
+        return sqlList;
+    }
+
+    private String generateInsertHeader(Set<String> fields) {
+        StringBuilder builder = new StringBuilder(VERTEX_INSERT_SQL);
+        if (GraphWriteModeEnum.INSERT_IF_NOT_EXISTS.equals(this.writeMode)) {
+            builder.append(IF_NOT_EXISTS);
+        }
+        builder.append(this.graphVertexType.getVertexName()).append('(');
+        builder.append(String.join(",", fields));
+        return builder.append(") VALUES ").toString();
+    }
+
+    /**
+     * 逐行拼接INSERT语句，拆分规则见{@link NebulaMultiRowInsert}
+     */
+    private void addInsertSql(List<String> sqlList, List<List<Integer>> statementRows, String header, Set<String> fields,
+                              List<Integer> rows) {
+        Map<String, GraphDataTypeEnum> dataTypeMap = this.graphVertexType.getDataTypeMap();
+        NebulaMultiRowInsert.addInsertSql(sqlList, statementRows, header, rows, this.maxStatementBytes, this.statementBuilder,
+                (row, index) -> {
+                    GraphVertexEntity<T> graphVertexEntity = this.graphVertexEntities.get(index);
+                    NebulaStatementEncoder.appendQueryId(row, this.graphVertexType.getGraphKeyPolicy(),
+                            this.graphVertexType.getVertexIdKey(graphVertexEntity.getId()));
+                    NebulaMultiRowInsert.appendValues(row, fields, dataTypeMap, graphVertexEntity.getProps());
+                });
+    }
+
+    public GraphWriteModeEnum getWriteMode() {
+        return this.writeMode;
     }
 
 
@@ -97,6 +173,22 @@ public class NebulaBatchVertexUpdate<T> implements VertexUpdateEngine {
 
     @Override
     public List<String> getSqlList() throws NebulaException {
+        return getSqlList(null);
+    }
+
+    /**
+     * @param statementRows 每条语句写入的顶点下标，为空时不记录
+     */
+    @Override
+    public List<String> getSqlList(List<List<Integer>> statementRows) throws NebulaException {
+        if (this.writeMode.isInsert()) {
+            return getInsertVertexSql(statementRows);
+        }
+        if (statementRows != null) {
+            for (int i = 0; i < this.batchSize; i++) {
+                statementRows.add(Collections.singletonList(i));
+            }
+        }
         if (this.batchSize == 1) {
             return Lists.newArrayList(getOneVertexSql());
         }
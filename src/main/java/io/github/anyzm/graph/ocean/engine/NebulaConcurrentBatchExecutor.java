@@ -0,0 +1,212 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import io.github.anyzm.graph.ocean.domain.impl.BatchUpdateResult;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description  NebulaConcurrentBatchExecutor is used for
+ * 并发批量执行器，同时保持最多maxInFlight批在不同的session上执行，
+ * 某一批失败后不再提交新的分批，等待已提交的分批结束后返回。
+ * 分批按依赖层级执行：顶点语句、边语句、其他语句各为一层，相邻分批的层级不同(或同一分批内混有多个层级)时，
+ * 先等待已提交的分批全部结束再提交后面的分批，保证先写的顶点在写边之前完成、删除等语句也不会越过前面的写入；
+ * 同一层级内的分批之间不保证执行顺序，同一分批内的语句按顺序执行
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 14:20
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaConcurrentBatchExecutor extends AbstractNebulaBatchExecutor implements Closeable {
+
+    private static final Pattern STATEMENT_TARGET = Pattern.compile(
+            "^\\s*(?:INSERT|UPSERT|UPDATE|DELETE)\\s+(VERTEX|EDGE)\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final int LEVEL_VERTEX = 0;
+
+    private static final int LEVEL_EDGE = 1;
+
+    private static final int LEVEL_OTHER = 2;
+
+    /**
+     * 同一分批内混有多个层级，前后都需要等待
+     */
+    private static final int LEVEL_MIXED = -1;
+
+    private final ExecutorService executorService;
+
+    /**
+     * 同时在途的最大分批数
+     */
+    @Getter
+    private final int maxInFlight;
+
+    /**
+     * 线程池是否由本执行器创建，由本执行器创建的线程池在close时关闭
+     */
+    private final boolean ownExecutor;
+
+    /**
+     * @param maxInFlight 同时在途的最大分批数，同时也是内部线程池的大小
+     */
+    public NebulaConcurrentBatchExecutor(int maxInFlight) {
+        this(Executors.newFixedThreadPool(maxInFlight, new ThreadFactoryBuilder()
+                .setNameFormat("graph-ocean-batch-%d").setDaemon(true).build()), maxInFlight, true);
+    }
+
+    /**
+     * @param executorService 执行分批的线程池，由调用方负责关闭
+     * @param maxInFlight     同时在途的最大分批数
+     */
+    public NebulaConcurrentBatchExecutor(ExecutorService executorService, int maxInFlight) {
+        this(executorService, maxInFlight, false);
+    }
+
+    /**
+     * 每个分批一个线程，java21上为虚拟线程
+     *
+     * @param maxInFlight 同时在途的最大分批数
+     * @return 执行器，close时关闭内部线程池
+     */
+    public static NebulaConcurrentBatchExecutor withVirtualThreads(int maxInFlight) {
+        return new NebulaConcurrentBatchExecutor(VirtualThreads.newThreadPerTaskExecutor("graph-ocean-batch-"),
+                maxInFlight, true);
+    }
+
+    private NebulaConcurrentBatchExecutor(ExecutorService executorService, int maxInFlight, boolean ownExecutor) {
+        CheckThrower.ifFalseThrow(maxInFlight >= 1, "MaxInFlight must greater than zero");
+        this.executorService = executorService;
+        this.maxInFlight = maxInFlight;
+        this.ownExecutor = ownExecutor;
+    }
+
+    @Override
+    public BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                     GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures, boolean retryable) {
+        long start = System.currentTimeMillis();
+        BatchUpdateResult result = new BatchUpdateResult();
+        Semaphore window = new Semaphore(this.maxInFlight);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<Future<?>> futures = Lists.newArrayList();
+        NebulaBatchChunker chunker = newChunker(sqlList, chunkPolicy);
+        int previousLevel = LEVEL_MIXED;
+        while (chunker.hasNext() && !failed.get()) {
+            try {
+                window.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                break;
+            }
+            if (failed.get()) {
+                window.release();
+                break;
+            }
+            // 在取得窗口后再切分，使分批大小能用上已完成分批的反馈
+            BatchChunk chunk = chunker.next();
+            int level = chunkLevel(sqlList, chunk);
+            if (!futures.isEmpty() && (level != previousLevel || level == LEVEL_MIXED)) {
+                // 层级屏障：前一层级的分批全部结束后才开始下一层级
+                awaitAll(futures);
+                futures.clear();
+                if (failed.get()) {
+                    window.release();
+                    break;
+                }
+            }
+            previousLevel = level;
+            result.chunkSubmitted(chunk);
+            try {
+                futures.add(this.executorService.submit(() -> {
+                    try {
+                        if (!executeChunk(sessionManager, space, sqlList, chunk, chunkPolicy, result, isolateFailures, retryable)) {
+                            failed.set(true);
+                        }
+                    } finally {
+                        window.release();
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                window.release();
+                result.chunkFailed(chunk, e);
+                break;
+            }
+        }
+        awaitAll(futures);
+        result.setCostMillis(System.currentTimeMillis() - start);
+        log.debug("并发批量更新nebula完成,result={}", result);
+        return result;
+    }
+
+    /**
+     * 分批的依赖层级，混有多个层级时返回LEVEL_MIXED
+     */
+    static int chunkLevel(List<String> sqlList, BatchChunk chunk) {
+        int level = statementLevel(sqlList.get(chunk.getFromIndex()));
+        for (int i = chunk.getFromIndex() + 1; i < chunk.getToIndex(); i++) {
+            if (statementLevel(sqlList.get(i)) != level) {
+                return LEVEL_MIXED;
+            }
+        }
+        return level;
+    }
+
+    static int statementLevel(String sql) {
+        Matcher matcher = STATEMENT_TARGET.matcher(sql);
+        if (!matcher.find()) {
+            return LEVEL_OTHER;
+        }
+        return "VERTEX".equalsIgnoreCase(matcher.group(1)) ? LEVEL_VERTEX : LEVEL_EDGE;
+    }
+
+    private void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.ownExecutor) {
+            this.executorService.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Sets;
+import com.vesoft.nebula.client.graph.exception.AuthFailedException;
+import com.vesoft.nebula.client.graph.exception.ClientServerIncompatibleException;
+import com.vesoft.nebula.client.graph.exception.IOErrorException;
+import com.vesoft.nebula.client.graph.exception.NotValidConnectionException;
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
+import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
+import io.github.anyzm.graph.ocean.session.NebulaDeadline;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import io.github.anyzm.graph.ocean.session.NebulaSessionWrapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Description  NebulaHedgedReader is used for
+ * 只读查询的对冲执行：查询超过近期耗时的指定分位数仍未返回时，在另一个session(尽量是另一个graphd)上再发一次同样的查询，
+ * 先成功返回的结果生效，两次都失败时才失败。只有每一段都以只读关键字开头的语句才会对冲
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:10
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaHedgedReader implements Closeable {
+
+    /**
+     * 统计分位数的近期耗时样本数
+     */
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+
+    /**
+     * 样本数达到该值前不对冲
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * 每记录该数量的样本重新计算一次对冲延迟
+     */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private static final Pattern STATEMENT_SEPARATOR = Pattern.compile("[;|]");
+
+    private static final Set<String> READ_ONLY_KEYWORDS = Sets.newHashSet("GO", "FETCH", "LOOKUP", "MATCH", "OPTIONAL",
+            "FIND", "GET", "SHOW", "DESCRIBE", "DESC", "YIELD", "ORDER", "LIMIT", "GROUP", "UNWIND");
+
+    /**
+     * 对冲延迟取近期耗时的该分位数，(0,1)
+     */
+    @Getter
+    private final double percentile;
+
+    /**
+     * 对冲延迟的下限，避免耗时很小时频繁对冲
+     */
+    @Getter
+    private final long minDelayMillis;
+
+    private final ExecutorService executor;
+
+    /**
+     * 线程池是否由本执行器创建，由本执行器创建的线程池在close时关闭
+     */
+    private final boolean ownExecutor;
+
+    private final long[] latencies = new long[LATENCY_WINDOW_SIZE];
+
+    private long latencyCount;
+
+    private volatile long hedgeDelayMillis = -1;
+
+    private final AtomicLong queryCount = new AtomicLong();
+
+    private final AtomicLong hedgeCount = new AtomicLong();
+
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * 在p95耗时后对冲，对冲延迟不小于5ms
+     */
+    public NebulaHedgedReader() {
+        this(0.95, 5);
+    }
+
+    /**
+     * 使用内部创建的线程池，java21上为虚拟线程
+     *
+     * @param percentile     对冲延迟取近期耗时的该分位数，(0,1)
+     * @param minDelayMillis 对冲延迟的下限
+     */
+    public NebulaHedgedReader(double percentile, long minDelayMillis) {
+        this(percentile, minDelayMillis, VirtualThreads.newThreadPerTaskExecutor("graph-ocean-hedge-"), true);
+    }
+
+    /**
+     * @param percentile     对冲延迟取近期耗时的该分位数，(0,1)
+     * @param minDelayMillis 对冲延迟的下限
+     * @param executor       执行查询的线程池，由调用方负责关闭
+     */
+    public NebulaHedgedReader(double percentile, long minDelayMillis, ExecutorService executor) {
+        this(percentile, minDelayMillis, executor, false);
+    }
+
+    private NebulaHedgedReader(double percentile, long minDelayMillis, ExecutorService executor, boolean ownExecutor) {
+        CheckThrower.ifTrueThrow(executor == null, ErrorEnum.PARAMETER_NOT_NULL);
+        CheckThrower.ifFalseThrow(percentile > 0 && percentile < 1, "Percentile must between zero and one");
+        CheckThrower.ifFalseThrow(minDelayMillis >= 0, "MinDelayMillis must not less than zero");
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * 语句是否只读：按;和|切分后每一段都以只读关键字开头，无法判断时按非只读处理；
+     * use会切换池化session的图空间，不算只读，需要指定图空间时通过space参数传入
+     */
+    public static boolean isReadOnly(String sql) {
+        if (StringUtils.isBlank(sql)) {
+            return false;
+        }
+        for (String part : STATEMENT_SEPARATOR.split(sql)) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int end = 0;
+            while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+                end++;
+            }
+            String keyword = trimmed.substring(0, end).toUpperCase(Locale.ROOT);
+            if (!READ_ONLY_KEYWORDS.contains(keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 执行查询，语句必须是只读的
+     */
+    public QueryResult query(NebulaPoolSessionManager sessionManager, String space, String sql) throws NebulaException,
+            ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return query(sessionManager, space, sql, NebulaDeadline.NONE);
+    }
+
+    /**
+     * 在截止时间内执行查询，两次查询共用同一个截止时间
+     */
+    public QueryResult query(NebulaPoolSessionManager sessionManager, String space, String sql, NebulaDeadline deadline)
+            throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        this.queryCount.incrementAndGet();
+        long delay = this.hedgeDelayMillis;
+        CompletableFuture<QueryResult> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        AtomicReference<String> primaryHost = new AtomicReference<>();
+        submit(() -> attempt(sessionManager, space, sql, deadline, null, primaryHost, result, running, false), result, running);
+        if (delay >= 0) {
+            try {
+                return result.get(delay, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                running.incrementAndGet();
+                this.hedgeCount.incrementAndGet();
+                log.debug("查询{}ms未返回，发起对冲查询,ngql={}", delay, sql);
+                submit(() -> attempt(sessionManager, space, sql, deadline, primaryHost.get(), null, result, running, true), result, running);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NebulaException(e);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+        return await(result);
+    }
+
+    private void submit(Runnable task, CompletableFuture<QueryResult> result, AtomicInteger running) {
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 在一个session上执行一次查询
+     *
+     * @param avoidHost   尽量避开的graphd
+     * @param usedHost    记录本次使用的graphd
+     * @param hedge       是否为对冲查询，对冲查询的耗时不计入样本
+     */
+    private void attempt(NebulaPoolSessionManager sessionManager, String space, String sql, NebulaDeadline deadline, String avoidHost,
+                         AtomicReference<String> usedHost, CompletableFuture<QueryResult> result,
+                         AtomicInteger running, boolean hedge) {
+        long start = System.currentTimeMillis();
+        NebulaSessionWrapper session = null;
+        try {
+            session = borrow(sessionManager, space, avoidHost, deadline);
+            if (usedHost != null) {
+                usedHost.set(session.getGraphHost());
+            }
+            QueryResult queryResult = session.executeQueryDefined(space, sql, deadline);
+            if (!hedge) {
+                recordLatency(System.currentTimeMillis() - start);
+            }
+            if (result.complete(queryResult) && hedge) {
+                this.hedgeWinCount.incrementAndGet();
+            }
+        } catch (Throwable e) {
+            if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            } else {
+                log.debug("对冲中的一次查询失败,hedge={},msg={}", hedge, e.getMessage());
+            }
+        } finally {
+            if (session != null) {
+                session.release();
+            }
+        }
+    }
+
+    /**
+     * 借用session，落在需要避开的graphd上且池中还有空闲session时再借一个，释放不用的那个
+     */
+    private NebulaSessionWrapper borrow(NebulaPoolSessionManager sessionManager, String space, String avoidHost, NebulaDeadline deadline)
+            throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        NebulaSessionWrapper session = sessionManager.getSession(GraphOperationTypeEnum.QUERY, space, deadline);
+        if (avoidHost == null || !avoidHost.equals(session.getGraphHost())
+                || (sessionManager.getPoolConfig() != null && sessionManager.getIdleSessionCount() == 0)) {
+            return session;
+        }
+        NebulaSessionWrapper another;
+        try {
+            another = sessionManager.getSession(GraphOperationTypeEnum.QUERY, space, deadline);
+        } catch (Exception e) {
+            return session;
+        }
+        if (avoidHost.equals(another.getGraphHost())) {
+            another.release();
+            return session;
+        }
+        session.release();
+        return another;
+    }
+
+    private synchronized void recordLatency(long latencyMillis) {
+        this.latencies[(int) (this.latencyCount % LATENCY_WINDOW_SIZE)] = latencyMillis;
+        this.latencyCount++;
+        if (this.latencyCount >= MIN_SAMPLES
+                && (this.hedgeDelayMillis < 0 || this.latencyCount % RECOMPUTE_INTERVAL == 0)) {
+            int size = (int) Math.min(this.latencyCount, LATENCY_WINDOW_SIZE);
+            long[] sorted = Arrays.copyOf(this.latencies, size);
+            Arrays.sort(sorted);
+            long percentileLatency = sorted[Math.min(size - 1, (int) (size * this.percentile))];
+            this.hedgeDelayMillis = Math.max(this.minDelayMillis, percentileLatency);
+        }
+    }
+
+    private QueryResult await(CompletableFuture<QueryResult> result) throws NebulaException,
+            ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NebulaException(e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static NebulaException rethrow(Throwable cause) throws ClientServerIncompatibleException,
+            AuthFailedException, NotValidConnectionException, IOErrorException {
+        if (cause instanceof ClientServerIncompatibleException) {
+            throw (ClientServerIncompatibleException) cause;
+        }
+        if (cause instanceof AuthFailedException) {
+            throw (AuthFailedException) cause;
+        }
+        if (cause instanceof NotValidConnectionException) {
+            throw (NotValidConnectionException) cause;
+        }
+        if (cause instanceof IOErrorException) {
+            throw (IOErrorException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new NebulaException(cause);
+    }
+
+    /**
+     *
+     * @return 当前的对冲延迟，样本不足时为-1，不对冲
+     */
+    public long getHedgeDelayMillis() {
+        return this.hedgeDelayMillis;
+    }
+
+    public long getQueryCount() {
+        return this.queryCount.get();
+    }
+
+    /**
+     *
+     * @return 发起对冲的次数
+     */
+    public long getHedgeCount() {
+        return this.hedgeCount.get();
+    }
+
+    /**
+     *
+     * @return 对冲查询先返回的次数
+     */
+    public long getHedgeWinCount() {
+        return this.hedgeWinCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (this.ownExecutor) {
+            this.executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.common.GraphHelper;
+import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Description  NebulaMultiRowInsert is used for
+ * 顶点和边共用的多行INSERT拼接：单条语句最多INSERT_BATCH_SIZE行，加入下一行会超过字节上限时另起一条语句，
+ * 单行超过字节上限时单独成为一条语句
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:40
+ * @version 1.0.0
+ */
+final class NebulaMultiRowInsert {
+
+    /**
+     * 单条INSERT语句的最大行数
+     */
+    static final int INSERT_BATCH_SIZE = 1000;
+
+    private NebulaMultiRowInsert() {
+    }
+
+    /**
+     * 把一行写入缓冲，如"player100":("Tim Duncan",42)
+     */
+    @FunctionalInterface
+    interface RowEncoder<R> {
+
+        void appendRow(StringBuilder row, R entity);
+
+    }
+
+    /**
+     * 逐行拼接INSERT语句
+     *
+     * @param sqlList           生成的语句
+     * @param statementRows     不为空时按语句顺序记录每条语句包含的行
+     * @param header            语句头，如INSERT VERTEX player(name,age) VALUES
+     * @param entities          属性集合相同的实体
+     * @param maxStatementBytes 单条语句的最大字节数
+     * @param row               复用的行缓冲
+     * @param rowEncoder        行编码
+     */
+    static <R> void addInsertSql(List<String> sqlList, List<List<R>> statementRows, String header, List<R> entities,
+                                 int maxStatementBytes, StringBuilder row, RowEncoder<R> rowEncoder) {
+        int headerBytes = StringUtil.utf8Length(header);
+        StringBuilder builder = new StringBuilder(header);
+        int rows = 0;
+        int bytes = headerBytes;
+        int fromIndex = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            R entity = entities.get(i);
+            row.setLength(0);
+            rowEncoder.appendRow(row, entity);
+            int rowBytes = StringUtil.utf8Length(row);
+            if (rows > 0 && (rows >= INSERT_BATCH_SIZE || bytes + 1 + rowBytes > maxStatementBytes)) {
+                sqlList.add(builder.toString());
+                if (statementRows != null) {
+                    statementRows.add(entities.subList(fromIndex, i));
+                }
+                fromIndex = i;
+                builder.setLength(0);
+                builder.append(header);
+                rows = 0;
+                bytes = headerBytes;
+            }
+            if (rows > 0) {
+                builder.append(',');
+                bytes++;
+            }
+            builder.append(row);
+            bytes += rowBytes;
+            rows++;
+        }
+        sqlList.add(builder.toString());
+        if (statementRows != null) {
+            statementRows.add(entities.subList(fromIndex, entities.size()));
+        }
+    }
+
+    /**
+     * 按属性顺序写入一行的属性值，如:("Tim Duncan",42)
+     */
+    static StringBuilder appendValues(StringBuilder row, Set<String> fields, Map<String, GraphDataTypeEnum> dataTypeMap,
+                                      Map<String, Object> props) {
+        row.append(":(");
+        boolean first = true;
+        for (String field : fields) {
+            if (!first) {
+                row.append(',');
+            }
+            first = false;
+            GraphHelper.appendPropertyValue(row, dataTypeMap.get(field), props.get(field));
+        }
+        return row.append(')');
+    }
+
+}
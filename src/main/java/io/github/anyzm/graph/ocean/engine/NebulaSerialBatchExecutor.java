@@ -0,0 +1,44 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import io.github.anyzm.graph.ocean.domain.impl.BatchUpdateResult;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * Description  NebulaSerialBatchExecutor is used for
+ * 串行批量执行器，在调用线程上逐批执行，默认的执行器
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 14:12
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaSerialBatchExecutor extends AbstractNebulaBatchExecutor {
+
+    @Override
+    public BatchUpdateResult execute(NebulaPoolSessionManager sessionManager, String space, List<String> sqlList,
+                                     GraphBatchChunkPolicy chunkPolicy, boolean isolateFailures, boolean retryable) {
+        long start = System.currentTimeMillis();
+        BatchUpdateResult result = new BatchUpdateResult();
+        NebulaBatchChunker chunker = newChunker(sqlList, chunkPolicy);
+        while (chunker.hasNext()) {
+            BatchChunk chunk = chunker.next();
+            result.chunkSubmitted(chunk);
+            if (!executeChunk(sessionManager, space, sqlList, chunk, chunkPolicy, result, isolateFailures, retryable)) {
+                break;
+            }
+        }
+        result.setCostMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+
+}
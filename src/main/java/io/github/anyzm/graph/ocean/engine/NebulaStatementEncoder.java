@@ -0,0 +1,167 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
+import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeType;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description  NebulaStatementEncoder is used for
+ * 把顶点、边直接编码到调用方提供的StringBuilder中，不经过String.format和中间字符串，
+ * 每个类型的语句头和"属性="片段只计算一次并缓存
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:10
+ * @version 1.0.0
+ */
+public class NebulaStatementEncoder {
+
+    private static final String UPSERT_VERTEX = "UPSERT VERTEX ";
+
+    private static final String UPSERT_EDGE = "UPSERT EDGE ";
+
+    private static final String SET = " SET ";
+
+    private static final Map<Class, LabelHeader> VERTEX_HEADERS = new ConcurrentHashMap<>();
+
+    private static final Map<Class, LabelHeader> EDGE_HEADERS = new ConcurrentHashMap<>();
+
+    private NebulaStatementEncoder() {
+    }
+
+    /**
+     * UPSERT VERTEX id SET tag.field=value,...
+     */
+    public static StringBuilder encodeUpsertVertex(StringBuilder builder, GraphVertexEntity<?> graphVertexEntity) {
+        GraphVertexType<?> graphVertexType = graphVertexEntity.getGraphVertexType();
+        LabelHeader header = getVertexHeader(graphVertexType);
+        builder.append(UPSERT_VERTEX);
+        appendQueryId(builder, graphVertexType.getGraphKeyPolicy(), graphVertexType.getVertexIdKey(graphVertexEntity.getId()));
+        builder.append(SET);
+        appendAssignments(builder, header, graphVertexEntity.getProps());
+        return builder;
+    }
+
+    /**
+     * UPSERT EDGE src->dst of edge SET field=value,...
+     */
+    public static StringBuilder encodeUpsertEdge(StringBuilder builder, GraphEdgeEntity<?, ?, ?> graphEdgeEntity) {
+        GraphEdgeType<?, ?, ?> graphEdgeType = graphEdgeEntity.getGraphEdgeType();
+        LabelHeader header = getEdgeHeader(graphEdgeType);
+        builder.append(UPSERT_EDGE);
+        appendEdgeEndpoints(builder, graphEdgeType, graphEdgeEntity.getSrcId(), graphEdgeEntity.getDstId());
+        builder.append(header.labelClause);
+        appendAssignments(builder, header, graphEdgeEntity.getProps());
+        return builder;
+    }
+
+    /**
+     * 追加 src->dst
+     */
+    public static StringBuilder appendEdgeEndpoints(StringBuilder builder, GraphEdgeType<?, ?, ?> graphEdgeType,
+                                                    String srcId, String dstId) {
+        appendQueryId(builder, graphEdgeType.getSrcVertexType().getGraphKeyPolicy(), graphEdgeType.getSrcIdKey(srcId));
+        builder.append("->");
+        appendQueryId(builder, graphEdgeType.getDstVertexType().getGraphKeyPolicy(), graphEdgeType.getDstIdKey(dstId));
+        return builder;
+    }
+
+    /**
+     * 与GraphHelper.getQueryId生成相同的文本，直接写入builder
+     */
+    public static StringBuilder appendQueryId(StringBuilder builder, GraphKeyPolicy graphKeyPolicy, String vertexIdKey) {
+        builder.append(graphKeyPolicy.getKeyWrapWord());
+        if (GraphKeyPolicy.string_key.equals(graphKeyPolicy)) {
+            return builder.append(" \"").append(vertexIdKey).append("\" ");
+        }
+        return builder.append("(\"").append(vertexIdKey).append("\")");
+    }
+
+    private static void appendAssignments(StringBuilder builder, LabelHeader header, Map<String, Object> props) {
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : props.entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            FieldHeader fieldHeader = header.getFieldHeader(entry.getKey());
+            builder.append(fieldHeader.assignment).append(entry.getValue());
+            if (fieldHeader.quoted) {
+                builder.append('"');
+            }
+        }
+    }
+
+    private static LabelHeader getVertexHeader(GraphVertexType<?> graphVertexType) {
+        Class typeClass = graphVertexType.getTypeClass();
+        if (typeClass == null) {
+            return new LabelHeader(null, graphVertexType.getVertexName() + ".", graphVertexType.getDataTypeMap());
+        }
+        return VERTEX_HEADERS.computeIfAbsent(typeClass, k -> new LabelHeader(null,
+                graphVertexType.getVertexName() + ".", graphVertexType.getDataTypeMap()));
+    }
+
+    private static LabelHeader getEdgeHeader(GraphEdgeType<?, ?, ?> graphEdgeType) {
+        Class edgeClass = graphEdgeType.getEdgeClass();
+        String labelClause = " of " + graphEdgeType.getEdgeName() + SET;
+        if (edgeClass == null) {
+            return new LabelHeader(labelClause, "", graphEdgeType.getDataTypeMap());
+        }
+        return EDGE_HEADERS.computeIfAbsent(edgeClass, k -> new LabelHeader(labelClause, "", graphEdgeType.getDataTypeMap()));
+    }
+
+    /**
+     * 一个类型的预计算语句片段
+     */
+    private static class LabelHeader {
+
+        private final String labelClause;
+
+        private final String fieldPrefix;
+
+        private final Map<String, GraphDataTypeEnum> dataTypeMap;
+
+        private final Map<String, FieldHeader> fieldHeaders = new ConcurrentHashMap<>();
+
+        private LabelHeader(String labelClause, String fieldPrefix, Map<String, GraphDataTypeEnum> dataTypeMap) {
+            this.labelClause = labelClause;
+            this.fieldPrefix = fieldPrefix;
+            this.dataTypeMap = dataTypeMap;
+        }
+
+        private FieldHeader getFieldHeader(String field) {
+            FieldHeader fieldHeader = this.fieldHeaders.get(field);
+            if (fieldHeader == null) {
+                boolean quoted = GraphDataTypeEnum.STRING.equals(this.dataTypeMap.get(field));
+                fieldHeader = new FieldHeader(this.fieldPrefix + field + (quoted ? "=\"" : "="), quoted);
+                this.fieldHeaders.put(field, fieldHeader);
+            }
+            return fieldHeader;
+        }
+
+    }
+
+    private static class FieldHeader {
+
+        private final String assignment;
+
+        private final boolean quoted;
+
+        private FieldHeader(String assignment, boolean quoted) {
+            this.assignment = assignment;
+            this.quoted = quoted;
+        }
+
+    }
+
+}
@@ -9,6 +9,7 @@ import io.github.anyzm.graph.ocean.dao.EdgeUpdateEngine;
 import io.github.anyzm.graph.ocean.dao.GraphUpdateEdgeEngineFactory;
 import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,4 +37,33 @@ public class NebulaUpdateEdgeEngineFactory implements GraphUpdateEdgeEngineFacto
         return new NebulaBatchEdgesUpdate<>(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities);
     }
 
+    @Override
+    public <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                     GraphWriteModeEnum writeMode) throws NebulaException {
+        return new NebulaBatchEdgesUpdate<>(graphEdgeEntities, writeMode);
+    }
+
+    @Override
+    public <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                     List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                                     List<GraphVertexEntity<T>> dstGraphVertexEntities,
+                                                     GraphWriteModeEnum writeMode) throws NebulaException {
+        return new NebulaBatchEdgesUpdate<>(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities, writeMode);
+    }
+
+    @Override
+    public <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                     GraphWriteModeEnum writeMode, int maxStatementBytes) throws NebulaException {
+        return new NebulaBatchEdgesUpdate<>(graphEdgeEntities, writeMode, maxStatementBytes);
+    }
+
+    @Override
+    public <S, T, E> EdgeUpdateEngine<S, T, E> build(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
+                                                     List<GraphVertexEntity<S>> srcGraphVertexEntities,
+                                                     List<GraphVertexEntity<T>> dstGraphVertexEntities,
+                                                     GraphWriteModeEnum writeMode, int maxStatementBytes) throws NebulaException {
+        return new NebulaBatchEdgesUpdate<>(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities, writeMode,
+                maxStatementBytes);
+    }
+
 }
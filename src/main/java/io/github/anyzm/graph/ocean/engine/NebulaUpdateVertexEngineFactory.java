@@ -8,6 +8,7 @@ package io.github.anyzm.graph.ocean.engine;
 import io.github.anyzm.graph.ocean.dao.GraphUpdateVertexEngineFactory;
 import io.github.anyzm.graph.ocean.dao.VertexUpdateEngine;
 import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import lombok.extern.slf4j.Slf4j;
 import java.util.List;
@@ -27,4 +28,15 @@ public class NebulaUpdateVertexEngineFactory implements GraphUpdateVertexEngineF
         return new NebulaBatchVertexUpdate<>(graphVertexEntities);
     }
 
+    @Override
+    public <T> VertexUpdateEngine build(List<GraphVertexEntity<T>> graphVertexEntities, GraphWriteModeEnum writeMode) throws NebulaException {
+        return new NebulaBatchVertexUpdate<>(graphVertexEntities, writeMode);
+    }
+
+    @Override
+    public <T> VertexUpdateEngine build(List<GraphVertexEntity<T>> graphVertexEntities, GraphWriteModeEnum writeMode,
+                                       int maxStatementBytes) throws NebulaException {
+        return new NebulaBatchVertexUpdate<>(graphVertexEntities, writeMode, maxStatementBytes);
+    }
+
 }
@@ -0,0 +1,32 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.enums;
+
+/**
+ * Description  CircuitBreakerStateEnum is used for
+ * 熔断器状态
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:00
+ * @version 1.0.0
+ */
+public enum CircuitBreakerStateEnum {
+
+    /**
+     * 正常放行
+     */
+    CLOSED,
+    /**
+     * 熔断中，调用快速失败
+     */
+    OPEN,
+    /**
+     * 熔断到期，放行少量探测调用，成功后关闭，失败后重新熔断
+     */
+    HALF_OPEN,
+    ;
+
+}
@@ -45,6 +45,26 @@ public enum ErrorEnum implements ResponseService {
 
     INVALID_VERTEX_TAG("016", "非法的顶点类型或者顶点类型为空"),
 
+    UPDATE_NOT_EXECUTED("017", "批量更新提前中断，该数据未执行"),
+
+    SESSION_BORROW_TIMEOUT("018", "获取session超时"),
+
+    SESSION_POOL_CLOSED("019", "session池已关闭"),
+
+    EXECUTE_TIMEOUT("020", "执行nebula超时"),
+
+    CIRCUIT_OPEN("021", "nebula调用熔断中，快速失败"),
+
+    BULKHEAD_FULL("022", "同类调用的并发数已达上限"),
+
+    COLUMN_NOT_EXIST("023", "查询结果中不存在该列"),
+
+    COLUMN_TYPE_NOT_MATCH("024", "列值类型与读取的类型不匹配"),
+
+    WRITE_BUFFER_FULL("025", "写缓冲中未写入的数据已达上限"),
+
+    NOT_SUPPORT_WRITE_MODE("026", "不支持的写入方式"),
+
     SYSTEM_ERROR("999", "系统繁忙"),
 
     ;
@@ -0,0 +1,28 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.enums;
+
+/**
+ * Description  GraphOperationTypeEnum is used for
+ * 调用类型，熔断和并发隔离按类型区分
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:00
+ * @version 1.0.0
+ */
+public enum GraphOperationTypeEnum {
+
+    /**
+     * 查询，executeQuery
+     */
+    QUERY,
+    /**
+     * 更新，execute
+     */
+    UPDATE,
+    ;
+
+}
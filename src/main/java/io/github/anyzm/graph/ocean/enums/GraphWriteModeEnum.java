@@ -0,0 +1,43 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.enums;
+
+/**
+ * Description  GraphWriteModeEnum is used for
+ * 批量写入方式
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 10:20
+ * @version 1.0.0
+ */
+public enum GraphWriteModeEnum {
+
+    /**
+     * UPSERT，逐条读改写，未写入的属性保持原值，默认值
+     */
+    UPSERT,
+    /**
+     * INSERT，一条语句写入多行，已存在的数据会被覆盖
+     */
+    INSERT,
+    /**
+     * INSERT IF NOT EXISTS，一条语句写入多行，已存在的数据不做修改
+     */
+    INSERT_IF_NOT_EXISTS,
+    ;
+
+    public boolean isInsert() {
+        return this != UPSERT;
+    }
+
+    /**
+     * 重复执行的结果是否不变，批量写入的分批失败时只有这类写入方式会重试
+     */
+    public boolean isIdempotent() {
+        return this != INSERT;
+    }
+
+}
@@ -0,0 +1,37 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.exception;
+
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import lombok.Getter;
+
+/**
+ * Description  NebulaTimeoutException is used for
+ * 调用超过截止时间，stage标识超时发生在获取session、执行还是结果解析阶段
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:40
+ * @version 1.0.0
+ */
+public class NebulaTimeoutException extends NebulaExecuteException {
+
+    /**
+     * 超时发生的阶段：borrow、execute、decode
+     */
+    @Getter
+    private final String stage;
+
+    @Getter
+    private final long timeoutMillis;
+
+    public NebulaTimeoutException(String stage, long timeoutMillis) {
+        super(ErrorEnum.EXECUTE_TIMEOUT.getResponseCode(), ErrorEnum.EXECUTE_TIMEOUT.getResponseMessage()
+                + ",stage=" + stage + ",timeoutMillis=" + timeoutMillis);
+        this.stage = stage;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+}
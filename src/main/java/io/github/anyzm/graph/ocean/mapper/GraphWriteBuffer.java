@@ -0,0 +1,395 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.mapper;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.anyzm.graph.ocean.dao.GraphEdgeEntityFactory;
+import io.github.anyzm.graph.ocean.dao.GraphMapper;
+import io.github.anyzm.graph.ocean.dao.GraphTypeManager;
+import io.github.anyzm.graph.ocean.dao.GraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphEdgeEntityFactory;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphTypeManager;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Description  GraphWriteBuffer is used for
+ * 异步写缓冲：多个线程提交的顶点、边先按类型合并，同一个顶点id或同一条(起点,终点,边)只保留最后一次写入，
+ * 缓冲数量达到阈值或到达刷新间隔时通过GraphMapper的批量写入方法统一写入nebula，顶点先于边写入。
+ * 每次提交返回的future在数据写入nebula后完成，写入失败时异常完成。
+ * 未写入的数量达到maxPending时，新的顶点或边(覆盖已在缓冲中的数据不受限制)会阻塞提交线程，
+ * 等待超过maxPendingWaitMillis后返回以WRITE_BUFFER_FULL异常完成的future
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 16:30
+ * @version 1.0.0
+ */
+@Slf4j
+public class GraphWriteBuffer implements Closeable {
+
+    /**
+     * 默认的maxPending为flushSize的倍数
+     */
+    private static final int DEFAULT_MAX_PENDING_MULTIPLE = 10;
+
+    private final GraphMapper graphMapper;
+
+    private final GraphVertexEntityFactory graphVertexEntityFactory;
+
+    private final GraphEdgeEntityFactory graphEdgeEntityFactory;
+
+    /**
+     * 缓冲数量达到该值时触发刷新
+     */
+    private final int flushSize;
+
+    /**
+     * 缓冲中未写入数据的上限
+     */
+    private final int maxPending;
+
+    /**
+     * 缓冲已满时提交线程的最长等待时间
+     */
+    private final long maxPendingWaitMillis;
+
+    private final GraphWriteModeEnum writeMode;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 缓冲已满时提交线程会在锁上等待，同样使用ReentrantLock避免占住虚拟线程的载体线程
+     */
+    private final ReentrantLock bufferLock = new ReentrantLock();
+
+    private final Condition notFull = this.bufferLock.newCondition();
+
+    /**
+     * 已提交到scheduler但尚未开始的刷新，达到flushSize后的多次提交只触发一次刷新
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * 刷新期间会阻塞在nebula调用上，使用ReentrantLock而不是synchronized，避免虚拟线程刷新时占住载体线程
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private Map<Class, Map<Object, Pending>> vertexBuffer = Maps.newLinkedHashMap();
+
+    private Map<Class, Map<Object, Pending>> edgeBuffer = Maps.newLinkedHashMap();
+
+    private int pendingCount;
+
+    private volatile boolean closed;
+
+    /**
+     * @param graphMapper         实际执行写入的mapper
+     * @param flushSize           缓冲数量达到该值时触发刷新
+     * @param flushIntervalMillis 定时刷新间隔
+     */
+    public GraphWriteBuffer(GraphMapper graphMapper, int flushSize, long flushIntervalMillis) {
+        this(graphMapper, flushSize, flushIntervalMillis, null);
+    }
+
+    /**
+     * @param graphMapper         实际执行写入的mapper
+     * @param flushSize           缓冲数量达到该值时触发刷新
+     * @param flushIntervalMillis 定时刷新间隔
+     * @param writeMode           写入方式，为空时使用注解上声明的写入方式
+     */
+    public GraphWriteBuffer(GraphMapper graphMapper, int flushSize, long flushIntervalMillis, GraphWriteModeEnum writeMode) {
+        this(graphMapper, flushSize, flushIntervalMillis, writeMode,
+                (int) Math.min(Integer.MAX_VALUE, (long) flushSize * DEFAULT_MAX_PENDING_MULTIPLE), Long.MAX_VALUE);
+    }
+
+    /**
+     * @param graphMapper          实际执行写入的mapper
+     * @param flushSize            缓冲数量达到该值时触发刷新
+     * @param flushIntervalMillis  定时刷新间隔
+     * @param writeMode            写入方式，为空时使用注解上声明的写入方式
+     * @param maxPending           缓冲中未写入数据的上限，不小于flushSize
+     * @param maxPendingWaitMillis 缓冲已满时提交线程的最长等待时间，为0时立即返回异常完成的future
+     */
+    public GraphWriteBuffer(GraphMapper graphMapper, int flushSize, long flushIntervalMillis, GraphWriteModeEnum writeMode,
+                            int maxPending, long maxPendingWaitMillis) {
+        CheckThrower.ifTrueThrow(graphMapper == null, ErrorEnum.PARAMETER_NOT_NULL);
+        CheckThrower.ifFalseThrow(flushSize >= 1 && flushIntervalMillis >= 1, "FlushSize and flushIntervalMillis must greater than zero");
+        CheckThrower.ifFalseThrow(maxPending >= flushSize && maxPendingWaitMillis >= 0,
+                "MaxPending must not less than flushSize and maxPendingWaitMillis must not less than zero");
+        GraphTypeManager graphTypeManager = new DefaultGraphTypeManager();
+        this.graphMapper = graphMapper;
+        this.graphVertexEntityFactory = new DefaultGraphVertexEntityFactory(graphTypeManager);
+        this.graphEdgeEntityFactory = new DefaultGraphEdgeEntityFactory(graphTypeManager);
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.maxPendingWaitMillis = maxPendingWaitMillis;
+        this.writeMode = writeMode;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("graph-ocean-write-buffer-%d").setDaemon(true).build());
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一个顶点，同一个顶点id只保留最后一次提交的数据
+     *
+     * @param entity 顶点
+     * @param <T>    顶点类型
+     * @return 写入nebula后完成的future
+     */
+    public <T> CompletableFuture<Void> addVertex(T entity) {
+        CheckThrower.ifTrueThrow(entity == null, ErrorEnum.PARAMETER_NOT_NULL);
+        // 合并只需要顶点id，属性在刷新时由mapper收集
+        String id = graphVertexEntityFactory.buildVertexId(entity);
+        CheckThrower.ifTrueThrow(id == null, ErrorEnum.NOT_SUPPORT_VERTEX_TAG);
+        return add(true, entity.getClass(), id, entity);
+    }
+
+    /**
+     * 提交一条边，同一条(起点,终点,边)只保留最后一次提交的数据
+     *
+     * @param entity 边
+     * @param <E>    边类型
+     * @return 写入nebula后完成的future
+     */
+    public <E> CompletableFuture<Void> addEdge(E entity) {
+        CheckThrower.ifTrueThrow(entity == null, ErrorEnum.PARAMETER_NOT_NULL);
+        GraphEdgeEntity<Object, Object, E> graphEdgeEntity = graphEdgeEntityFactory.buildGraphEdgeEntity(entity);
+        CheckThrower.ifTrueThrow(graphEdgeEntity == null, ErrorEnum.NOT_SUPPORT_EDGE_TAG);
+        return add(false, entity.getClass(), new EdgeKey(graphEdgeEntity.getSrcId(), graphEdgeEntity.getDstId()), entity);
+    }
+
+    public <T> CompletableFuture<Void> addVertices(List<T> entities) {
+        List<CompletableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(entities.size());
+        for (T entity : entities) {
+            futures.add(addVertex(entity));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    public <E> CompletableFuture<Void> addEdges(List<E> entities) {
+        List<CompletableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(entities.size());
+        for (E entity : entities) {
+            futures.add(addEdge(entity));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * @param key 顶点为顶点id，边为EdgeKey
+     */
+    private CompletableFuture<Void> add(boolean vertex, Class clazz, Object key, Object entity) {
+        CompletableFuture<Void> future;
+        boolean reachFlushSize;
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(this.maxPendingWaitMillis);
+        this.bufferLock.lock();
+        try {
+            Pending pending;
+            while (true) {
+                CheckThrower.ifTrueThrow(this.closed, "GraphWriteBuffer is closed");
+                // 等待期间缓冲可能已被刷新替换，每次都重新取当前的缓冲
+                Map<Class, Map<Object, Pending>> buffer = vertex ? this.vertexBuffer : this.edgeBuffer;
+                Map<Object, Pending> labelBuffer = buffer.get(clazz);
+                pending = labelBuffer == null ? null : labelBuffer.get(key);
+                if (pending == null && this.pendingCount < this.maxPending) {
+                    pending = new Pending();
+                    buffer.computeIfAbsent(clazz, k -> Maps.newLinkedHashMap()).put(key, pending);
+                    this.pendingCount++;
+                }
+                if (pending != null) {
+                    break;
+                }
+                scheduleFlush();
+                if (waitNanos <= 0) {
+                    CompletableFuture<Void> rejected = new CompletableFuture<>();
+                    rejected.completeExceptionally(new NebulaException(ErrorEnum.WRITE_BUFFER_FULL));
+                    return rejected;
+                }
+                try {
+                    waitNanos = this.notFull.awaitNanos(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    CompletableFuture<Void> interrupted = new CompletableFuture<>();
+                    interrupted.completeExceptionally(new NebulaException(e));
+                    return interrupted;
+                }
+            }
+            // 覆盖之前未写入的数据，之前的提交者与本次共用同一个future
+            pending.entity = entity;
+            future = pending.future;
+            reachFlushSize = this.pendingCount >= this.flushSize;
+        } finally {
+            this.bufferLock.unlock();
+        }
+        if (reachFlushSize) {
+            scheduleFlush();
+        }
+        return future;
+    }
+
+    /**
+     * 提交一次异步刷新，已有尚未开始的刷新时不再重复提交
+     */
+    private void scheduleFlush() {
+        if (!this.flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.scheduler.execute(this::flushQuietly);
+        } catch (RejectedExecutionException e) {
+            this.flushScheduled.set(false);
+            log.debug("写缓冲已关闭，由close完成最后一次刷新");
+        }
+    }
+
+    /**
+     *
+     * @return 缓冲中尚未写入的顶点和边数量
+     */
+    public int getPendingCount() {
+        this.bufferLock.lock();
+        try {
+            return this.pendingCount;
+        } finally {
+            this.bufferLock.unlock();
+        }
+    }
+
+    /**
+     * 同步刷新，返回时调用前提交的数据都已经写入nebula或者其future已异常完成
+     */
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            // 本次刷新会带走此前提交的全部数据，之后达到flushSize的提交需要重新触发刷新
+            this.flushScheduled.set(false);
+            Map<Class, Map<Object, Pending>> vertices;
+            Map<Class, Map<Object, Pending>> edges;
+            this.bufferLock.lock();
+            try {
+                if (this.pendingCount == 0) {
+                    return;
+                }
+                vertices = this.vertexBuffer;
+                edges = this.edgeBuffer;
+                this.vertexBuffer = Maps.newLinkedHashMap();
+                this.edgeBuffer = Maps.newLinkedHashMap();
+                this.pendingCount = 0;
+                this.notFull.signalAll();
+            } finally {
+                this.bufferLock.unlock();
+            }
+            for (Map<Object, Pending> labelBuffer : vertices.values()) {
+                write(labelBuffer, true);
+            }
+            for (Map<Object, Pending> labelBuffer : edges.values()) {
+                write(labelBuffer, false);
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    private void write(Map<Object, Pending> labelBuffer, boolean vertex) {
+        List<Object> entities = Lists.newArrayListWithExpectedSize(labelBuffer.size());
+        for (Pending pending : labelBuffer.values()) {
+            entities.add(pending.entity);
+        }
+        try {
+            if (vertex) {
+                this.graphMapper.saveVertexEntities(entities, this.writeMode);
+            } else {
+                this.graphMapper.saveEdgeEntities(entities, this.writeMode);
+            }
+            for (Pending pending : labelBuffer.values()) {
+                pending.future.complete(null);
+            }
+        } catch (Throwable e) {
+            log.error("写缓冲刷新nebula异常,size={}", entities.size(), e);
+            for (Pending pending : labelBuffer.values()) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable e) {
+            log.error("写缓冲刷新异常", e);
+        }
+    }
+
+    /**
+     * 关闭写缓冲，不再接受新的数据，并把缓冲中的数据全部写入nebula
+     */
+    @Override
+    public void close() {
+        this.bufferLock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            // 等待缓冲空间的提交线程不再等待
+            this.notFull.signalAll();
+        } finally {
+            this.bufferLock.unlock();
+        }
+        this.scheduler.shutdown();
+        try {
+            this.scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 合并边的key，起点和终点id分开保存，不拼接字符串
+     */
+    @EqualsAndHashCode
+    private static final class EdgeKey {
+
+        private final String srcId;
+
+        private final String dstId;
+
+        EdgeKey(String srcId, String dstId) {
+            this.srcId = srcId;
+            this.dstId = dstId;
+        }
+
+    }
+
+    private static class Pending {
+
+        private Object entity;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    }
+
+}
@@ -0,0 +1,256 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.mapper;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
+import io.github.anyzm.graph.ocean.dao.AsyncGraphMapper;
+import io.github.anyzm.graph.ocean.dao.GraphMapper;
+import io.github.anyzm.graph.ocean.domain.GraphQuery;
+import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Description  NebulaAsyncGraphMapper is used for
+ * 基于GraphMapper的异步实现，调用在指定的线程池上执行，
+ * 同时执行的调用数不超过maxConcurrency（默认与session池的maxTotal一致），超出的调用排队等待，不占用线程
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:10
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaAsyncGraphMapper implements AsyncGraphMapper, Closeable {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    @Getter
+    private final GraphMapper graphMapper;
+
+    private final Executor executor;
+
+    /**
+     * 线程池是否由本mapper创建，由本mapper创建的线程池在close时关闭
+     */
+    private final boolean ownExecutor;
+
+    @Getter
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final Queue<PendingCall<?>> pendingCalls = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 并发数与session池的maxTotal一致，未使用session池时为10，使用内部创建的线程池
+     */
+    public NebulaAsyncGraphMapper(NebulaGraphMapper graphMapper) {
+        this(graphMapper, getPoolSize(graphMapper));
+    }
+
+    /**
+     * 使用内部创建的线程池
+     *
+     * @param graphMapper    同步mapper
+     * @param maxConcurrency 同时执行的最大调用数，同时也是内部线程池的大小
+     */
+    public NebulaAsyncGraphMapper(GraphMapper graphMapper, int maxConcurrency) {
+        this(graphMapper, Executors.newFixedThreadPool(maxConcurrency, new ThreadFactoryBuilder()
+                .setNameFormat("graph-ocean-async-%d").setDaemon(true).build()), maxConcurrency, true);
+    }
+
+    /**
+     * @param graphMapper    同步mapper
+     * @param executor       执行调用的线程池，由调用方负责关闭
+     * @param maxConcurrency 同时执行的最大调用数
+     */
+    public NebulaAsyncGraphMapper(GraphMapper graphMapper, Executor executor, int maxConcurrency) {
+        this(graphMapper, executor, maxConcurrency, false);
+    }
+
+    /**
+     * 每个调用一个线程，java21上为虚拟线程，阻塞在session上的调用不占用平台线程，
+     * 并发数只受maxConcurrency和session池约束，可以设置得远大于平台线程池的大小
+     *
+     * @param graphMapper    同步mapper
+     * @param maxConcurrency 同时执行的最大调用数
+     * @return 异步mapper，close时关闭内部线程池
+     */
+    public static NebulaAsyncGraphMapper withVirtualThreads(GraphMapper graphMapper, int maxConcurrency) {
+        return new NebulaAsyncGraphMapper(graphMapper, VirtualThreads.newThreadPerTaskExecutor("graph-ocean-async-"),
+                maxConcurrency, true);
+    }
+
+    private NebulaAsyncGraphMapper(GraphMapper graphMapper, Executor executor, int maxConcurrency, boolean ownExecutor) {
+        CheckThrower.ifTrueThrow(graphMapper == null || executor == null, ErrorEnum.PARAMETER_NOT_NULL);
+        CheckThrower.ifFalseThrow(maxConcurrency >= 1, "MaxConcurrency must greater than zero");
+        this.graphMapper = graphMapper;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.ownExecutor = ownExecutor;
+    }
+
+    private static int getPoolSize(NebulaGraphMapper graphMapper) {
+        NebulaPoolSessionManager sessionManager = graphMapper.getNebulaPoolSessionManager();
+        if (sessionManager == null || sessionManager.getPoolConfig() == null) {
+            return DEFAULT_MAX_CONCURRENCY;
+        }
+        return sessionManager.getPoolConfig().getMaxTotal();
+    }
+
+    @Override
+    public <T> CompletableFuture<Integer> saveVertexEntitiesAsync(List<T> entities, GraphWriteModeEnum writeMode) {
+        return submit(() -> graphMapper.saveVertexEntities(entities, writeMode));
+    }
+
+    @Override
+    public <E> CompletableFuture<Integer> saveEdgeEntitiesAsync(List<E> entities, GraphWriteModeEnum writeMode) {
+        return submit(() -> graphMapper.saveEdgeEntities(entities, writeMode));
+    }
+
+    @Override
+    public CompletableFuture<Integer> saveEntitiesAsync(List<?> entities, GraphWriteModeEnum writeMode) {
+        return submit(() -> graphMapper.saveEntities(entities, writeMode));
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateSqlAsync(String sql) {
+        return submit(() -> graphMapper.executeUpdateSql(sql));
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateSqlAsync(String space, String sql) {
+        return submit(() -> graphMapper.executeUpdateSql(space, sql));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> executeQuerySqlAsync(String sql) {
+        return submit(() -> graphMapper.executeQuerySql(sql));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> executeQuerySqlAsync(String space, String sql) {
+        return submit(() -> graphMapper.executeQuerySql(space, sql));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> executeQuerySqlAsync(String sql, Class<T> clazz) {
+        return submit(() -> graphMapper.executeQuerySql(sql, clazz));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> executeQueryAsync(GraphQuery query) {
+        return submit(() -> graphMapper.executeQuery(query));
+    }
+
+    @Override
+    public CompletableFuture<QueryResult> executeQueryAsync(String space, GraphQuery query) {
+        return submit(() -> graphMapper.executeQuery(space, query));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> executeQueryAsync(GraphQuery query, Class<T> clazz) {
+        return submit(() -> graphMapper.executeQuery(query, clazz));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> goOutEdgeAsync(Class<T> edgeClazz, String... vertexIds) {
+        return submit(() -> graphMapper.goOutEdge(edgeClazz, vertexIds));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> goReverseEdgeAsync(Class<T> edgeClazz, String... vertexIds) {
+        return submit(() -> graphMapper.goReverseEdge(edgeClazz, vertexIds));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchVertexTagAsync(Class<T> vertexClazz, String... vertexIds) {
+        return submit(() -> graphMapper.fetchVertexTag(vertexClazz, vertexIds));
+    }
+
+    /**
+     *
+     * @return 排队等待执行的调用数
+     */
+    public int getPendingCount() {
+        return this.pendingCalls.size();
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        PendingCall<T> pendingCall = new PendingCall<>(call);
+        this.pendingCalls.add(pendingCall);
+        drain();
+        return pendingCall.future;
+    }
+
+    /**
+     * 有空闲的并发许可时把排队的调用提交到线程池，调用结束归还许可后再次检查队列
+     */
+    private void drain() {
+        while (!this.pendingCalls.isEmpty() && this.permits.tryAcquire()) {
+            PendingCall<?> pendingCall = this.pendingCalls.poll();
+            if (pendingCall == null) {
+                this.permits.release();
+                continue;
+            }
+            try {
+                this.executor.execute(() -> run(pendingCall));
+            } catch (RejectedExecutionException e) {
+                this.permits.release();
+                pendingCall.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private <T> void run(PendingCall<T> pendingCall) {
+        try {
+            pendingCall.future.complete(pendingCall.call.call());
+        } catch (Throwable e) {
+            pendingCall.future.completeExceptionally(e);
+        } finally {
+            this.permits.release();
+            drain();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.ownExecutor) {
+            ((ExecutorService) this.executor).shutdown();
+        }
+    }
+
+    private static class PendingCall<T> {
+
+        private final Callable<T> call;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private PendingCall(Callable<T> call) {
+            this.call = call;
+        }
+
+    }
+
+}
@@ -6,6 +6,8 @@
 package io.github.anyzm.graph.ocean.mapper;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.vesoft.nebula.client.graph.exception.AuthFailedException;
 import com.vesoft.nebula.client.graph.exception.ClientServerIncompatibleException;
 import com.vesoft.nebula.client.graph.exception.IOErrorException;
@@ -23,8 +25,11 @@ import io.github.anyzm.graph.ocean.domain.impl.*;
 import io.github.anyzm.graph.ocean.engine.*;
 import io.github.anyzm.graph.ocean.enums.EdgeDirectionEnum;
 import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
 import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
+import io.github.anyzm.graph.ocean.session.NebulaDeadline;
 import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
 import io.github.anyzm.graph.ocean.session.NebulaSessionWrapper;
 import lombok.Getter;
@@ -32,9 +37,14 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Description  NebulaGraphMapper is used for
@@ -46,10 +56,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NebulaGraphMapper implements GraphMapper {
 
-    private static final int BATCH_SIZE = 500;
-
-    private static final String SQL = "use %s ; %s;";
-
     @Setter
     @Getter
     private NebulaPoolSessionManager nebulaPoolSessionManager;
@@ -68,7 +74,61 @@ public class NebulaGraphMapper implements GraphMapper {
 
     private GraphTypeManager graphTypeManager;
 
+    /**
+     * 批量更新执行器，默认串行执行；替换为NebulaConcurrentBatchExecutor时分批并发执行，
+     * 仅保证顶点、边、其他语句三个层级之间的先后顺序，同一层级内的分批顺序不确定
+     */
+    @Setter
+    @Getter
+    private GraphBatchExecutor graphBatchExecutor = new NebulaSerialBatchExecutor();
+
+    /**
+     * 批量更新分批策略，默认每批最多500条语句、4M字节
+     */
+    @Setter
+    @Getter
+    private GraphBatchChunkPolicy graphBatchChunkPolicy = new FixedBatchChunkPolicy();
+
+    /**
+     * 流式保存时每个窗口的实体数，窗口内的实体构造、生成ngql并写入后才读取下一个窗口
+     */
+    @Setter
+    @Getter
+    private int streamWindowSize = DEFAULT_STREAM_WINDOW_SIZE;
+
+    /**
+     * 只读查询的对冲执行器，为空时不对冲，由调用方负责关闭
+     */
+    @Setter
+    @Getter
+    private NebulaHedgedReader hedgedReader;
+
+    /**
+     * 是否对本mapper的所有只读查询对冲，需要同时设置hedgedReader；为false时只有*Hedged方法对冲
+     */
+    @Setter
+    @Getter
+    private boolean hedgeReads;
+
+    /**
+     * 每次查询、单条更新的超时时间，覆盖获取session、执行和结果解析，小于等于0时不限制；
+     * 超时抛出NebulaTimeoutException，执行中的session被放弃，不再占用session池。
+     * 保存实体和executeBatchUpdateSql等批量写入不使用该超时，每批的超时由graphBatchExecutor的chunkTimeoutMillis决定
+     */
+    @Setter
+    @Getter
+    private long timeoutMillis;
+
+    /**
+     * 查询结果解析为实体时并行解析的最小行数，行数达到该值时在ForkJoinPool.commonPool上并行解析，小于等于0时始终串行解析；
+     * 并行解析要求行解析器和属性格式化器是线程安全的
+     */
+    @Setter
+    @Getter
+    private int parallelDecodeThreshold;
+
     private void init() {
+        warmUpSessions();
         this.graphVertexEntityFactory = new DefaultGraphVertexEntityFactory(graphTypeManager);
         this.graphEdgeEntityFactory = new DefaultGraphEdgeEntityFactory(graphTypeManager);
         NebulaCondition.setGraphTypeManager(graphTypeManager);
@@ -76,6 +136,20 @@ public class NebulaGraphMapper implements GraphMapper {
         NebulaEdgeQuery.setGraphTypeManager(graphTypeManager);
     }
 
+    /**
+     * 按session池配置预先建立切换到本mapper图空间的session
+     */
+    private void warmUpSessions() {
+        if (this.nebulaPoolSessionManager == null || this.nebulaPoolSessionManager.getPoolConfig() == null) {
+            return;
+        }
+        int warmUpSessions = this.nebulaPoolSessionManager.getPoolConfig().getWarmUpSessions();
+        if (warmUpSessions > 0) {
+            int created = this.nebulaPoolSessionManager.warmUp(warmUpSessions, this.space);
+            log.info("预热nebula session,space={},created={}", this.space, created);
+        }
+    }
+
     public NebulaGraphMapper(NebulaPoolSessionManager nebulaPoolSessionManager,
                              String space) {
         this.graphTypeManager = new DefaultGraphTypeManager();
@@ -98,104 +172,408 @@ public class NebulaGraphMapper implements GraphMapper {
         init();
     }
 
-    private <T> int batchUpdateVertex(List<GraphVertexEntity<T>> graphVertexEntityList) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
-        VertexUpdateEngine build = this.graphUpdateVertexEngineFactory.build(graphVertexEntityList);
-        List<String> sqlList = build.getSqlList();
-        return executeBatchUpdateSql(space, sqlList);
+    /**
+     * 按类型分组生成顶点更新语句，避免不同类型的顶点使用同一个tag
+     */
+    private <T> List<String> buildVertexSqlList(List<T> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        Map<Class, List<GraphVertexEntity<T>>> groups = Maps.newLinkedHashMap();
+        for (T entity : entities) {
+            GraphVertexEntity<T> graphVertexEntity = graphVertexEntityFactory.buildGraphVertexEntity(entity);
+            CheckThrower.ifTrueThrow(graphVertexEntity == null, ErrorEnum.NOT_SUPPORT_VERTEX_TAG);
+            log.debug("构造对象entity={},graphVertexEntity={}", entity, graphVertexEntity);
+            groups.computeIfAbsent(entity.getClass(), k -> Lists.newArrayList()).add(graphVertexEntity);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        for (List<GraphVertexEntity<T>> group : groups.values()) {
+            VertexUpdateEngine build = this.graphUpdateVertexEngineFactory.build(group, writeMode, graphBatchChunkPolicy.getMaxBytes());
+            sqlList.addAll(build.getSqlList());
+        }
+        return sqlList;
+    }
+
+    /**
+     * 按类型分组生成边更新语句
+     */
+    private <S, T, E> List<String> buildEdgeSqlList(List<E> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        Map<Class, List<GraphEdgeEntity<S, T, E>>> groups = Maps.newLinkedHashMap();
+        for (E entity : entities) {
+            GraphEdgeEntity<S, T, E> graphEdgeEntity = graphEdgeEntityFactory.buildGraphEdgeEntity(entity);
+            CheckThrower.ifTrueThrow(graphEdgeEntity == null, ErrorEnum.NOT_SUPPORT_EDGE_TAG);
+            log.debug("构造对象entity={},graphEdgeEntity={}", entity, graphEdgeEntity);
+            groups.computeIfAbsent(entity.getClass(), k -> Lists.newArrayList()).add(graphEdgeEntity);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        for (List<GraphEdgeEntity<S, T, E>> group : groups.values()) {
+            EdgeUpdateEngine<S, T, E> build = this.graphUpdateEdgeEngineFactory.build(group, writeMode, graphBatchChunkPolicy.getMaxBytes());
+            sqlList.addAll(build.getSqlList());
+        }
+        return sqlList;
     }
 
     @Override
     public <T> int saveVertexEntities(List<T> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveVertexEntities(entities, null);
+    }
+
+    @Override
+    public <T> int saveVertexEntities(List<T> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
         if (CollectionUtils.isEmpty(entities)) {
             return 0;
         }
-        List<GraphVertexEntity<T>> vertexEntities = Lists.newArrayListWithExpectedSize(entities.size());
-        for (T entity : entities) {
-            GraphVertexEntity<T> graphVertexEntity = graphVertexEntityFactory.buildGraphVertexEntity(entity);
-            vertexEntities.add(graphVertexEntity);
-            log.debug("构造对象entity={},graphVertexEntity={}", entity, graphVertexEntity);
+        log.debug("保存顶点信息到nebula,size={}", CollectionUtils.size(entities));
+        return executeEntityBatch(buildVertexSqlList(entities, writeMode), isIdempotent(entities, writeMode));
+    }
+
+    @Override
+    public <T> long saveVertexEntities(Iterator<T> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        long saved = 0;
+        List<T> window = Lists.newArrayListWithExpectedSize(streamWindowSize);
+        while (entities.hasNext()) {
+            window.add(entities.next());
+            if (window.size() >= streamWindowSize || !entities.hasNext()) {
+                saveVertexEntities(window, writeMode);
+                saved += window.size();
+                log.debug("流式保存顶点到nebula,saved={}", saved);
+                window.clear();
+            }
         }
-        log.debug("保存顶点信息到nebula,size={}", CollectionUtils.size(vertexEntities));
-        return batchUpdateVertex(vertexEntities);
+        return saved;
     }
 
-    private <S, T, E> int batchUpdateEdge(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
-        EdgeUpdateEngine<S, T, E> build = this.graphUpdateEdgeEngineFactory.build(graphEdgeEntities);
-        List<String> sqlList = build.getSqlList();
-        return executeBatchUpdateSql(space, sqlList);
+    @Override
+    public <E> long saveEdgeEntities(Iterator<E> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        long saved = 0;
+        List<E> window = Lists.newArrayListWithExpectedSize(streamWindowSize);
+        while (entities.hasNext()) {
+            window.add(entities.next());
+            if (window.size() >= streamWindowSize || !entities.hasNext()) {
+                saveEdgeEntities(window, writeMode);
+                saved += window.size();
+                log.debug("流式保存边到nebula,saved={}", saved);
+                window.clear();
+            }
+        }
+        return saved;
     }
 
     @Override
     public <S, T, E> int saveEdgeEntitiesWithVertex(List<E> entities, Function<String, S> srcVertexEntityFunction,
                                                     Function<String, T> dstVertexEntityFunction) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveEdgeEntitiesWithVertexBatch(entities, ids -> applyEach(ids, srcVertexEntityFunction),
+                ids -> applyEach(ids, dstVertexEntityFunction));
+    }
+
+    @Override
+    public <S, T, E> int saveEdgeEntitiesWithVertexBatch(List<E> entities,
+                                                         Function<Collection<String>, Map<String, S>> srcVertexEntitiesFunction,
+                                                         Function<Collection<String>, Map<String, T>> dstVertexEntitiesFunction) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
         if (CollectionUtils.isEmpty(entities)) {
             return 0;
         }
         List<GraphEdgeEntity<S, T, E>> graphEdgeEntities = Lists.newArrayListWithExpectedSize(entities.size());
-        List<GraphVertexEntity<S>> srcGraphVertexEntities = Lists.newArrayListWithExpectedSize(entities.size());
-        List<GraphVertexEntity<T>> dstGraphVertexEntities = Lists.newArrayListWithExpectedSize(entities.size());
+        // 同一批边里的起点、终点按id去重，每个顶点只构造和更新一次
+        Set<String> srcIds = Sets.newLinkedHashSet();
+        Set<String> dstIds = Sets.newLinkedHashSet();
+        boolean sameVertexType = true;
         for (E entity : entities) {
             GraphEdgeEntity<S, T, E> graphEdgeEntity = graphEdgeEntityFactory.buildGraphEdgeEntity(entity);
             log.debug("构造对象entity={},graphEdgeEntity={}", entity, graphEdgeEntity);
-            S srcEntity = srcVertexEntityFunction.apply(graphEdgeEntity.getSrcId());
-            T dstEntity = dstVertexEntityFunction.apply(graphEdgeEntity.getDstId());
-            GraphVertexEntity<S> srcVertexEntity = (GraphVertexEntity<S>) graphVertexEntityFactory.buildGraphVertexEntity(srcEntity);
-            GraphVertexEntity<T> dstVertexEntity = (GraphVertexEntity<T>) graphVertexEntityFactory.buildGraphVertexEntity(dstEntity);
-            srcGraphVertexEntities.add(srcVertexEntity);
-            dstGraphVertexEntities.add(dstVertexEntity);
+            srcIds.add(graphEdgeEntity.getSrcId());
+            dstIds.add(graphEdgeEntity.getDstId());
+            sameVertexType &= isSameVertexType(graphEdgeEntity);
             graphEdgeEntities.add(graphEdgeEntity);
         }
+        if (sameVertexType) {
+            // 起点和终点是同一种顶点时合并id，既是起点又是终点的顶点只查询和更新一次
+            srcIds.addAll(dstIds);
+            List<GraphVertexEntity<S>> graphVertexEntities = buildEndpointVertexEntities(srcIds, srcVertexEntitiesFunction);
+            return batchUpdateEdgeWithVertex(graphEdgeEntities, graphVertexEntities, Collections.emptyList());
+        }
+        List<GraphVertexEntity<S>> srcGraphVertexEntities = buildEndpointVertexEntities(srcIds, srcVertexEntitiesFunction);
+        List<GraphVertexEntity<T>> dstGraphVertexEntities = buildEndpointVertexEntities(dstIds, dstVertexEntitiesFunction);
         return batchUpdateEdgeWithVertex(graphEdgeEntities, srcGraphVertexEntities, dstGraphVertexEntities);
     }
 
+    private static boolean isSameVertexType(GraphEdgeEntity<?, ?, ?> graphEdgeEntity) {
+        GraphVertexType<?> srcVertexType = graphEdgeEntity.getSrcVertexType();
+        GraphVertexType<?> dstVertexType = graphEdgeEntity.getDstVertexType();
+        return srcVertexType != null && dstVertexType != null
+                && Objects.equals(srcVertexType.getTypeClass(), dstVertexType.getTypeClass());
+    }
+
+    private <V> Map<String, V> applyEach(Collection<String> ids, Function<String, V> vertexEntityFunction) {
+        Map<String, V> vertexEntities = Maps.newLinkedHashMapWithExpectedSize(ids.size());
+        for (String id : ids) {
+            vertexEntities.put(id, vertexEntityFunction.apply(id));
+        }
+        return vertexEntities;
+    }
+
+    private <V> List<GraphVertexEntity<V>> buildEndpointVertexEntities(Set<String> ids,
+                                                                       Function<Collection<String>, Map<String, V>> vertexEntitiesFunction) throws NebulaException {
+        Map<String, V> vertexEntities = vertexEntitiesFunction.apply(ids);
+        if (vertexEntities == null || vertexEntities.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        List<GraphVertexEntity<V>> graphVertexEntities = Lists.newArrayListWithExpectedSize(ids.size());
+        for (String id : ids) {
+            V vertexEntity = vertexEntities.get(id);
+            if (vertexEntity == null) {
+                continue;
+            }
+            GraphVertexEntity<V> graphVertexEntity = graphVertexEntityFactory.buildGraphVertexEntity(vertexEntity);
+            if (graphVertexEntity != null) {
+                graphVertexEntities.add(graphVertexEntity);
+            }
+        }
+        return graphVertexEntities;
+    }
+
     @Override
     public <S, T, E> int saveEdgeEntities(List<E> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveEdgeEntities(entities, null);
+    }
+
+    @Override
+    public <S, T, E> int saveEdgeEntities(List<E> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
         if (CollectionUtils.isEmpty(entities)) {
             return 0;
         }
-        List<GraphEdgeEntity<S, T, E>> graphEdgeEntities = Lists.newArrayListWithExpectedSize(entities.size());
-        for (E entity : entities) {
-            GraphEdgeEntity<S, T, E> graphEdgeEntity = graphEdgeEntityFactory.buildGraphEdgeEntity(entity);
-            log.debug("构造对象entity={},graphEdgeEntity={}", entity, graphEdgeEntity);
-            graphEdgeEntities.add(graphEdgeEntity);
+        return executeEntityBatch(buildEdgeSqlList(entities, writeMode), isIdempotent(entities, writeMode));
+    }
+
+    @Override
+    public int saveEntities(List<?> entities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return saveEntities(entities, null);
+    }
+
+    @Override
+    public int saveEntities(List<?> entities, GraphWriteModeEnum writeMode) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        if (CollectionUtils.isEmpty(entities)) {
+            return 0;
+        }
+        List<Object> vertices = Lists.newArrayList();
+        List<Object> edges = Lists.newArrayList();
+        for (Object entity : entities) {
+            CheckThrower.ifTrueThrow(entity == null, ErrorEnum.PARAMETER_NOT_NULL);
+            GraphLabel graphLabel = graphTypeManager.getGraphLabel(entity.getClass());
+            CheckThrower.ifTrueThrow(graphLabel == null, ErrorEnum.NOT_SUPPORT_VERTEX_TAG);
+            if (graphLabel.isEdge()) {
+                edges.add(entity);
+            } else {
+                vertices.add(entity);
+            }
+        }
+        // 顶点语句排在边语句之前，所有类型的语句一起分批提交
+        List<String> sqlList = Lists.newArrayList();
+        if (!vertices.isEmpty()) {
+            sqlList.addAll(buildVertexSqlList(vertices, writeMode));
+        }
+        if (!edges.isEmpty()) {
+            sqlList.addAll(buildEdgeSqlList(edges, writeMode));
         }
-        return batchUpdateEdge(graphEdgeEntities);
+        log.debug("保存顶点和边到nebula,vertexSize={},edgeSize={}", vertices.size(), edges.size());
+        return executeEntityBatch(sqlList, isIdempotent(entities, writeMode));
     }
 
     private <S, T, E> int batchUpdateEdgeWithVertex(List<GraphEdgeEntity<S, T, E>> graphEdgeEntities,
                                                     List<GraphVertexEntity<S>> srcGraphVertexEntities,
                                                     List<GraphVertexEntity<T>> graphVertexEntities) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
         EdgeUpdateEngine<S, T, E> build = this.graphUpdateEdgeEngineFactory.build(graphEdgeEntities,
-                srcGraphVertexEntities, graphVertexEntities);
+                srcGraphVertexEntities, graphVertexEntities, null, graphBatchChunkPolicy.getMaxBytes());
         List<String> sqlList = build.getSqlList();
-        return executeBatchUpdateSql(space, sqlList);
+        boolean idempotent = graphEdgeEntities.get(0).getGraphEdgeType().getWriteMode().isIdempotent();
+        for (GraphVertexEntity<S> graphVertexEntity : srcGraphVertexEntities) {
+            idempotent &= graphVertexEntity.getGraphVertexType().getWriteMode().isIdempotent();
+        }
+        for (GraphVertexEntity<T> graphVertexEntity : graphVertexEntities) {
+            idempotent &= graphVertexEntity.getGraphVertexType().getWriteMode().isIdempotent();
+        }
+        return executeEntityBatch(sqlList, idempotent);
     }
 
     @Override
-    public int executeBatchUpdateSql(String space, List<String> sqlList) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
-        for (int i = 0; i < sqlList.size(); i += BATCH_SIZE) {
-            List<String> sqls = sqlList.subList(i, Math.min(sqlList.size(), i + BATCH_SIZE));
-            String sql = sqls.stream().collect(Collectors.joining(";"));
-            NebulaSessionWrapper session = null;
-            try {
-                session = nebulaPoolSessionManager.getSession();
-                int execute = session.execute(String.format(SQL, space, sql));
-                CheckThrower.ifTrueThrow(execute != 0, ErrorEnum.UPDATE_NEBULA_EROR);
-            } finally {
-                if (session != null) {
-                    session.release();
-                }
+    public <T> GraphWriteResult<T> saveVertexEntitiesWithResult(List<T> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        if (CollectionUtils.isEmpty(entities)) {
+            return new GraphWriteResult<>(Lists.newArrayList(), Maps.newTreeMap(), new BatchUpdateResult());
+        }
+        // 按类型分组生成语句，同时记录每条语句写入的实体下标，多行INSERT语句失败时语句内的实体都记为失败
+        Map<Class, List<Integer>> groups = Maps.newLinkedHashMap();
+        List<GraphVertexEntity<T>> graphVertexEntities = Lists.newArrayListWithExpectedSize(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            GraphVertexEntity<T> graphVertexEntity = graphVertexEntityFactory.buildGraphVertexEntity(entities.get(i));
+            CheckThrower.ifTrueThrow(graphVertexEntity == null, ErrorEnum.NOT_SUPPORT_VERTEX_TAG);
+            graphVertexEntities.add(graphVertexEntity);
+            groups.computeIfAbsent(entities.get(i).getClass(), k -> Lists.newArrayList()).add(i);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        List<List<Integer>> statementEntities = Lists.newArrayList();
+        for (List<Integer> group : groups.values()) {
+            List<GraphVertexEntity<T>> groupEntities = Lists.newArrayListWithExpectedSize(group.size());
+            for (Integer index : group) {
+                groupEntities.add(graphVertexEntities.get(index));
+            }
+            VertexUpdateEngine build = this.graphUpdateVertexEngineFactory.build(groupEntities, writeMode, graphBatchChunkPolicy.getMaxBytes());
+            List<List<Integer>> statementRows = Lists.newArrayList();
+            sqlList.addAll(build.getSqlList(statementRows));
+            addStatementEntities(statementEntities, group, statementRows);
+        }
+        return toWriteResult(entities, statementEntities, executeBatch(space, sqlList, true, isIdempotent(entities, writeMode)));
+    }
+
+    @Override
+    public <E> GraphWriteResult<E> saveEdgeEntitiesWithResult(List<E> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        if (CollectionUtils.isEmpty(entities)) {
+            return new GraphWriteResult<>(Lists.newArrayList(), Maps.newTreeMap(), new BatchUpdateResult());
+        }
+        Map<Class, List<Integer>> groups = Maps.newLinkedHashMap();
+        List<GraphEdgeEntity<Object, Object, E>> graphEdgeEntities = Lists.newArrayListWithExpectedSize(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            GraphEdgeEntity<Object, Object, E> graphEdgeEntity = graphEdgeEntityFactory.buildGraphEdgeEntity(entities.get(i));
+            CheckThrower.ifTrueThrow(graphEdgeEntity == null, ErrorEnum.NOT_SUPPORT_EDGE_TAG);
+            graphEdgeEntities.add(graphEdgeEntity);
+            groups.computeIfAbsent(entities.get(i).getClass(), k -> Lists.newArrayList()).add(i);
+        }
+        List<String> sqlList = Lists.newArrayList();
+        List<List<Integer>> statementEntities = Lists.newArrayList();
+        for (List<Integer> group : groups.values()) {
+            List<GraphEdgeEntity<Object, Object, E>> groupEntities = Lists.newArrayListWithExpectedSize(group.size());
+            for (Integer index : group) {
+                groupEntities.add(graphEdgeEntities.get(index));
             }
+            EdgeUpdateEngine<Object, Object, E> build = this.graphUpdateEdgeEngineFactory.build(groupEntities, writeMode,
+                    graphBatchChunkPolicy.getMaxBytes());
+            List<List<Integer>> statementRows = Lists.newArrayList();
+            sqlList.addAll(build.getSqlList(statementRows));
+            addStatementEntities(statementEntities, group, statementRows);
         }
+        return toWriteResult(entities, statementEntities, executeBatch(space, sqlList, true, isIdempotent(entities, writeMode)));
+    }
+
+    /**
+     * 把一组实体的语句写入的组内下标换算为调用方传入的实体下标
+     *
+     * @param group 组内实体在调用方传入的实体中的下标
+     * @param statementRows 组内每条语句写入的组内下标
+     */
+    private static void addStatementEntities(List<List<Integer>> statementEntities, List<Integer> group,
+                                             List<List<Integer>> statementRows) {
+        for (List<Integer> rows : statementRows) {
+            List<Integer> indexes = Lists.newArrayListWithExpectedSize(rows.size());
+            for (Integer row : rows) {
+                indexes.add(group.get(row));
+            }
+            statementEntities.add(indexes);
+        }
+    }
+
+    /**
+     * 实体的所有语句都写入成功时实体才算成功
+     *
+     * @param statementEntities 第i条语句写入的实体下标
+     */
+    private <T> GraphWriteResult<T> toWriteResult(List<T> entities, List<List<Integer>> statementEntities, BatchUpdateResult result) {
+        Map<Integer, Throwable> failures = Maps.newTreeMap();
+        for (int statement = 0; statement < statementEntities.size(); statement++) {
+            if (result.isStatementSucceeded(statement)) {
+                continue;
+            }
+            Throwable cause = result.getStatementFailure(statement);
+            for (Integer index : statementEntities.get(statement)) {
+                failures.putIfAbsent(index, cause != null ? cause : new NebulaException(ErrorEnum.UPDATE_NOT_EXECUTED));
+            }
+        }
+        GraphWriteResult<T> writeResult = new GraphWriteResult<>(entities, failures, result);
+        log.debug("批量写入nebula,result={}", writeResult);
+        return writeResult;
+    }
+
+    /**
+     * 实体的写入方式都可以重复执行时才允许重试，传入的写入方式为空时取各实体类型上声明的写入方式
+     */
+    private boolean isIdempotent(List<?> entities, GraphWriteModeEnum writeMode) throws NebulaException {
+        if (writeMode != null) {
+            return writeMode.isIdempotent();
+        }
+        Set<Class> checked = Sets.newHashSet();
+        for (Object entity : entities) {
+            if (checked.add(entity.getClass())
+                    && !graphTypeManager.getGraphLabel(entity.getClass()).getWriteMode().isIdempotent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 提交由实体生成的语句
+     *
+     * @param idempotent 语句是否可以重复执行，可以时失败的分批按执行器的重试策略重试
+     */
+    private int executeEntityBatch(List<String> sqlList, boolean idempotent) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        throwIfFailed(executeBatch(space, sqlList, false, idempotent));
+        return 0;
+    }
+
+    /**
+     * @param isolateFailures 是否定位失败语句并继续执行后续分批，只有按实体返回写入结果时开启
+     * @param idempotent      语句是否可以重复执行
+     */
+    private BatchUpdateResult executeBatch(String space, List<String> sqlList, boolean isolateFailures, boolean idempotent) {
+        BatchUpdateResult result = graphBatchExecutor.execute(nebulaPoolSessionManager, space, sqlList, graphBatchChunkPolicy,
+                isolateFailures, idempotent);
+        log.debug("批量更新nebula,space={},result={}", space, result);
+        return result;
+    }
+
+    @Override
+    public int executeBatchUpdateSql(String space, List<String> sqlList) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        throwIfFailed(executeBatch(space, sqlList, false, false));
         return 0;
     }
 
+    private void throwIfFailed(BatchUpdateResult result) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        Throwable failure = result.getFirstFailure();
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof NotValidConnectionException) {
+            throw (NotValidConnectionException) failure;
+        }
+        if (failure instanceof IOErrorException) {
+            throw (IOErrorException) failure;
+        }
+        if (failure instanceof AuthFailedException) {
+            throw (AuthFailedException) failure;
+        }
+        if (failure instanceof ClientServerIncompatibleException) {
+            throw (ClientServerIncompatibleException) failure;
+        }
+        throw new NebulaException(failure);
+    }
+
     @Override
     public int executeUpdateSql(String space, String sql) throws NebulaException, NotValidConnectionException, IOErrorException, ClientServerIncompatibleException, AuthFailedException {
+        return executeUpdateSql(space, sql, this.timeoutMillis);
+    }
+
+    /**
+     * 指定本次调用的超时时间执行更新，超时抛出NebulaTimeoutException
+     *
+     * @param timeoutMillis 超时时间，小于等于0时不限制
+     */
+    public int executeUpdateSql(String space, String sql, long timeoutMillis) throws NebulaException, NotValidConnectionException, IOErrorException, ClientServerIncompatibleException, AuthFailedException {
+        NebulaDeadline deadline = NebulaDeadline.after(timeoutMillis);
         NebulaSessionWrapper session = null;
         try {
-            session = nebulaPoolSessionManager.getSession();
-            return session.execute(String.format(SQL, space, sql));
+            session = nebulaPoolSessionManager.getSession(GraphOperationTypeEnum.UPDATE, space, deadline);
+            return session.execute(space, sql, deadline);
         } finally {
             if (session != null) {
                 session.release();
@@ -215,10 +593,42 @@ public class NebulaGraphMapper implements GraphMapper {
 
     @Override
     public QueryResult executeQuerySql(String space, String sql) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return executeQuerySql(space, sql, this.timeoutMillis);
+    }
+
+    /**
+     * 指定本次调用的超时时间执行查询，超时抛出NebulaTimeoutException
+     *
+     * @param timeoutMillis 超时时间，小于等于0时不限制
+     */
+    public QueryResult executeQuerySql(String space, String sql, long timeoutMillis) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return query(space, sql, isHedgeReadsEnabled(), NebulaDeadline.after(timeoutMillis));
+    }
+
+    private boolean isHedgeReadsEnabled() {
+        return this.hedgeReads && this.hedgedReader != null;
+    }
+
+    /**
+     * 对冲执行查询，查询超过近期耗时的分位数仍未返回时在另一个session上再查一次，先返回的结果生效；
+     * 非只读语句不对冲，按普通查询执行
+     */
+    public QueryResult executeQuerySqlHedged(String space, String sql) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return query(space, sql, true, NebulaDeadline.after(this.timeoutMillis));
+    }
+
+    private QueryResult query(String space, String sql, boolean hedged, NebulaDeadline deadline) throws NebulaException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        if (hedged) {
+            CheckThrower.ifTrueThrow(this.hedgedReader == null, "HedgedReader is not set");
+            if (NebulaHedgedReader.isReadOnly(sql)) {
+                return this.hedgedReader.query(this.nebulaPoolSessionManager, space, sql, deadline);
+            }
+            log.debug("非只读语句不对冲,ngql={}", sql);
+        }
         NebulaSessionWrapper session = null;
         try {
-            session = nebulaPoolSessionManager.getSession();
-            return session.executeQueryDefined(String.format(SQL, space, sql));
+            session = nebulaPoolSessionManager.getSession(GraphOperationTypeEnum.QUERY, space, deadline);
+            return session.executeQueryDefined(space, sql, deadline);
         } finally {
             if (session != null) {
                 session.release();
@@ -229,9 +639,19 @@ public class NebulaGraphMapper implements GraphMapper {
     @Override
     public <T> List<T> executeQuerySql(String sql, Class<T> clazz) throws
             NebulaException, IllegalAccessException, InstantiationException, UnsupportedEncodingException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
-        QueryResult result = executeQuerySql(sql);
+        return queryEntities(sql, clazz, isHedgeReadsEnabled(), NebulaDeadline.after(this.timeoutMillis));
+    }
+
+    /**
+     * 查询并解析为实体，截止时间同时覆盖实体解析
+     */
+    private <T> List<T> queryEntities(String sql, Class<T> clazz, boolean hedged, NebulaDeadline deadline) throws
+            NebulaException, IllegalAccessException, InstantiationException, UnsupportedEncodingException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        QueryResult result = query(this.space, sql, hedged, deadline);
         GraphLabel graphLabel = graphTypeManager.getGraphLabel(clazz);
-        return result.getEntities(graphLabel, clazz);
+        List<T> entities = result.getEntities(graphLabel, graphTypeManager.getRowMapper(clazz), this.parallelDecodeThreshold);
+        deadline.check(NebulaDeadline.STAGE_DECODE);
+        return entities;
     }
 
     @Override
@@ -250,13 +670,35 @@ public class NebulaGraphMapper implements GraphMapper {
         return executeQuerySql(query.buildSql(), clazz);
     }
 
+    /**
+     * 指定本次调用的超时时间查询并解析为实体，超时抛出NebulaTimeoutException
+     *
+     * @param timeoutMillis 超时时间，小于等于0时不限制
+     */
+    public <T> List<T> executeQuery(GraphQuery query, Class<T> clazz, long timeoutMillis) throws
+            NebulaException, IllegalAccessException, InstantiationException, UnsupportedEncodingException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return queryEntities(query.buildSql(), clazz, isHedgeReadsEnabled(), NebulaDeadline.after(timeoutMillis));
+    }
+
     @Override
     public <T> List<T> goOutEdge(Class<T> edgeClazz, String... vertexIds) throws
             UnsupportedEncodingException, IllegalAccessException, InstantiationException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return executeQuery(buildGoOutEdgeQuery(edgeClazz, vertexIds), edgeClazz);
+    }
+
+    /**
+     * 对冲执行的goOutEdge，见{@link #executeQuerySqlHedged(String, String)}
+     */
+    public <T> List<T> goOutEdgeHedged(Class<T> edgeClazz, String... vertexIds) throws
+            UnsupportedEncodingException, IllegalAccessException, InstantiationException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return queryEntities(buildGoOutEdgeQuery(edgeClazz, vertexIds).buildSql(), edgeClazz, true,
+                NebulaDeadline.after(this.timeoutMillis));
+    }
+
+    private <T> EdgeQuery buildGoOutEdgeQuery(Class<T> edgeClazz, String... vertexIds) {
         GraphEdgeType<Object, Object, T> graphEdgeType = graphTypeManager.getGraphEdgeType(edgeClazz);
         String[] fieldsName = CollectionUtils.toStringArray(graphEdgeType.getAllFields());
-        EdgeQuery query = NebulaEdgeQuery.build().goFrom(edgeClazz, vertexIds).yield(edgeClazz, fieldsName);
-        return executeQuery(query, edgeClazz);
+        return NebulaEdgeQuery.build().goFrom(edgeClazz, vertexIds).yield(edgeClazz, fieldsName);
     }
 
     @Override
@@ -271,10 +713,22 @@ public class NebulaGraphMapper implements GraphMapper {
     @Override
     public <T> List<T> fetchVertexTag(Class<T> vertexClazz, String... vertexIds) throws
             UnsupportedEncodingException, IllegalAccessException, InstantiationException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return executeQuery(buildFetchVertexTagQuery(vertexClazz, vertexIds), vertexClazz);
+    }
+
+    /**
+     * 对冲执行的fetchVertexTag，见{@link #executeQuerySqlHedged(String, String)}
+     */
+    public <T> List<T> fetchVertexTagHedged(Class<T> vertexClazz, String... vertexIds) throws
+            UnsupportedEncodingException, IllegalAccessException, InstantiationException, ClientServerIncompatibleException, AuthFailedException, NotValidConnectionException, IOErrorException {
+        return queryEntities(buildFetchVertexTagQuery(vertexClazz, vertexIds).buildSql(), vertexClazz, true,
+                NebulaDeadline.after(this.timeoutMillis));
+    }
+
+    private <T> VertexQuery buildFetchVertexTagQuery(Class<T> vertexClazz, String... vertexIds) {
         GraphVertexType<T> graphVertexType = graphTypeManager.getGraphVertexType(vertexClazz);
         String[] fieldsName = CollectionUtils.toStringArray(graphVertexType.getAllFields());
-        VertexQuery query = NebulaVertexQuery.build().fetchPropOn(vertexClazz, vertexIds).yield(vertexClazz, fieldsName);
-        return executeQuery(query, vertexClazz);
+        return NebulaVertexQuery.build().fetchPropOn(vertexClazz, vertexIds).yield(vertexClazz, fieldsName);
     }
 
 }
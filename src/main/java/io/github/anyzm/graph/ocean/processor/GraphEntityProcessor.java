@@ -0,0 +1,578 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Description  GraphEntityProcessor is used for
+ * 编译期为每个@GraphVertex/@GraphEdge类在同一个包下生成XXX_GraphMapping(GraphEntityMapping的实现)：
+ * 图标签的字段描述、行解析器和实体属性收集，可见的字段直接读写，不可见的字段通过初始化时创建一次的MethodHandle读写。
+ * 无法安全生成的类(泛型类、非静态内部类、私有类、抽象类、有静态@GraphProperty字段或引用了不可见的类)只打印提示，运行时回退到反射
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 23:50
+ * @version 1.0.0
+ */
+@SupportedAnnotationTypes({GraphEntityProcessor.GRAPH_VERTEX, GraphEntityProcessor.GRAPH_EDGE})
+public class GraphEntityProcessor extends AbstractProcessor {
+
+    static final String GRAPH_VERTEX = "io.github.anyzm.graph.ocean.annotation.GraphVertex";
+
+    static final String GRAPH_EDGE = "io.github.anyzm.graph.ocean.annotation.GraphEdge";
+
+    private static final String GRAPH_PROPERTY = "io.github.anyzm.graph.ocean.annotation.GraphProperty";
+
+    private static final String GRAPH_VALUE_FORMATTER = "io.github.anyzm.graph.ocean.dao.GraphValueFormatter";
+
+    private static final String CLASS_SUFFIX = "_GraphMapping";
+
+    private static final String VERTEX_ID = "GRAPH_VERTEX_ID";
+
+    private static final String EDGE_SRC_ID = "GRAPH_EDGE_SRC_ID";
+
+    private static final String EDGE_DST_ID = "GRAPH_EDGE_DST_ID";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    types.add((TypeElement) element);
+                }
+            }
+        }
+        for (TypeElement type : types) {
+            try {
+                generate(type);
+            } catch (SkipException e) {
+                note(type, "graph-ocean未生成" + type.getQualifiedName() + "的映射，运行时使用反射：" + e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "graph-ocean生成" + type.getQualifiedName() + "的映射失败，运行时使用反射：" + e, type);
+            }
+        }
+        // 不独占注解，其他处理器仍然可以处理
+        return false;
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+
+    private void generate(TypeElement type) throws IOException, SkipException {
+        boolean vertex = findAnnotation(type, GRAPH_VERTEX) != null;
+        boolean edge = findAnnotation(type, GRAPH_EDGE) != null;
+        if (vertex && edge) {
+            throw new SkipException("同时标注了@GraphVertex和@GraphEdge");
+        }
+        checkType(type);
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String mappingName = flatName(type) + CLASS_SUFFIX;
+        String qualifiedMappingName = pkg.isEmpty() ? mappingName : pkg + "." + mappingName;
+        if (!this.generated.add(qualifiedMappingName)) {
+            return;
+        }
+        String typeName = type.getQualifiedName().toString();
+
+        // 与GraphHelper.collectGraphProperties相同：本类及父类的@GraphProperty字段
+        List<PropertyField> properties = new ArrayList<>();
+        // 与DefaultRowMapper相同：本类声明的非静态字段
+        List<PropertyField> columns = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null && !"java.lang.Object".equals(current.getQualifiedName().toString())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+                AnnotationMirror graphProperty = findAnnotation(field, GRAPH_PROPERTY);
+                if (graphProperty != null && isStatic) {
+                    throw new SkipException("静态字段" + field.getSimpleName() + "标注了@GraphProperty");
+                }
+                if (graphProperty != null) {
+                    properties.add(new PropertyField(current, field, graphProperty, pkg));
+                }
+                if (current == type && !isStatic) {
+                    columns.add(new PropertyField(current, field, graphProperty, pkg));
+                }
+            }
+            current = superclassOf(current);
+        }
+
+        StringBuilder code = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            code.append("package ").append(pkg).append(";\n\n");
+        }
+        code.append("/**\n * graph-ocean根据").append(type.getSimpleName())
+                .append("的注解生成的映射，请勿修改\n */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(mappingName)
+                .append(" implements io.github.anyzm.graph.ocean.dao.GraphEntityMapping<").append(typeName).append("> {\n\n");
+
+        boolean directConstructor = hasAccessibleConstructor(type);
+        if (!directConstructor) {
+            code.append("    private static final java.lang.invoke.MethodHandle CONSTRUCTOR = ")
+                    .append("io.github.anyzm.graph.ocean.common.GraphEntityMappings.constructor(").append(typeName).append(".class);\n\n");
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            PropertyField column = columns.get(i);
+            if (!column.writable()) {
+                code.append("    private static final java.lang.invoke.MethodHandle SET_").append(i)
+                        .append(" = io.github.anyzm.graph.ocean.common.GraphEntityMappings.setter(")
+                        .append(column.declaringClassLiteral()).append(", \"").append(column.name).append("\");\n\n");
+            }
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyField property = properties.get(i);
+            if (!property.readable()) {
+                code.append("    private static final java.lang.invoke.MethodHandle GET_").append(i)
+                        .append(" = io.github.anyzm.graph.ocean.common.GraphEntityMappings.getter(")
+                        .append(property.declaringClassLiteral()).append(", \"").append(property.name).append("\");\n\n");
+            }
+        }
+
+        code.append("    private static final java.util.List<io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor> DESCRIPTORS = ")
+                .append("java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyField property = properties.get(i);
+            code.append(i == 0 ? "\n" : ",\n").append("            new io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor(\"")
+                    .append(property.name).append("\", ").append(literal(property.key)).append(", ")
+                    .append("io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum.").append(property.dataType).append(", ")
+                    .append(property.required).append(", ")
+                    .append("io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum.").append(property.propertyType).append(", ")
+                    .append(property.formatterLiteral()).append(", ").append(property.formatterFactory()).append(")");
+        }
+        code.append("));\n\n");
+
+        code.append("    private static final io.github.anyzm.graph.ocean.dao.RowMapper<").append(typeName).append("> ROW_MAPPER =\n")
+                .append("            new io.github.anyzm.graph.ocean.dao.impl.AbstractRowMapper<").append(typeName).append(">(")
+                .append(typeName).append(".class, new String[]{");
+        for (int i = 0; i < columns.size(); i++) {
+            code.append(i == 0 ? "" : ", ").append(literal(columns.get(i).columnKey()));
+        }
+        code.append("}, new io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum[]{");
+        for (int i = 0; i < columns.size(); i++) {
+            String dataType = columns.get(i).columnDataType();
+            code.append(i == 0 ? "" : ", ").append(dataType == null ? "null" : "io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum." + dataType);
+        }
+        code.append("}) {\n\n")
+                .append("                @Override\n")
+                .append("                protected ").append(typeName).append(" newInstance() throws InstantiationException {\n");
+        if (directConstructor) {
+            code.append("                    return new ").append(typeName).append("();\n");
+        } else {
+            code.append("                    return (").append(typeName)
+                    .append(") io.github.anyzm.graph.ocean.common.GraphEntityMappings.newInstance(CONSTRUCTOR, getType());\n");
+        }
+        code.append("                }\n\n")
+                .append("                @Override\n")
+                .append("                protected void setProperty(").append(typeName)
+                .append(" obj, int index, Object value) throws IllegalAccessException {\n")
+                .append("                    switch (index) {\n");
+        for (int i = 0; i < columns.size(); i++) {
+            PropertyField column = columns.get(i);
+            code.append("                        case ").append(i).append(":\n");
+            if (column.writable()) {
+                code.append("                            obj.").append(column.name).append(" = (").append(column.boxedTypeName()).append(") value;\n");
+            } else {
+                code.append("                            io.github.anyzm.graph.ocean.common.GraphEntityMappings.set(SET_").append(i).append(", obj, value);\n");
+            }
+            code.append("                            return;\n");
+        }
+        code.append("                        default:\n")
+                .append("                    }\n")
+                .append("                }\n")
+                .append("            };\n\n");
+
+        code.append("    @Override\n")
+                .append("    public Class<").append(typeName).append("> getType() {\n")
+                .append("        return ").append(typeName).append(".class;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor> getPropertyDescriptors() {\n")
+                .append("        return DESCRIPTORS;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public io.github.anyzm.graph.ocean.dao.RowMapper<").append(typeName).append("> getRowMapper() {\n")
+                .append("        return ROW_MAPPER;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void collectProperties(").append(typeName)
+                .append(" input, io.github.anyzm.graph.ocean.domain.GraphLabel graphLabel, boolean srcIdAsField, boolean dstIdAsField,\n")
+                .append("                                  java.util.Map<String, Object> propertyMap, String[] ids) {\n")
+                .append("        Object value;\n");
+        for (int i = 0; i < properties.size(); i++) {
+            PropertyField property = properties.get(i);
+            String read = property.readable() ? property.readExpression("input")
+                    : "io.github.anyzm.graph.ocean.common.GraphEntityMappings.get(GET_" + i + ", input)";
+            code.append("        value = graphLabel.formatValue(").append(literal(property.key)).append(", ").append(read).append(");\n");
+            int idIndex = -1;
+            String asField = null;
+            if (vertex && VERTEX_ID.equals(property.propertyType)) {
+                idIndex = 0;
+                asField = "srcIdAsField";
+            } else if (edge && EDGE_SRC_ID.equals(property.propertyType)) {
+                idIndex = 0;
+                asField = "srcIdAsField";
+            } else if (edge && EDGE_DST_ID.equals(property.propertyType)) {
+                idIndex = 1;
+                asField = "dstIdAsField";
+            }
+            if (idIndex >= 0) {
+                code.append("        if (org.apache.commons.lang3.StringUtils.isNotBlank((String) value)) {\n")
+                        .append("            ids[").append(idIndex).append("] = (String) value;\n")
+                        .append("        }\n")
+                        .append("        if (").append(asField).append(" && value != null) {\n");
+            } else {
+                code.append("        if (value != null) {\n");
+            }
+            code.append("            propertyMap.put(").append(literal(property.key)).append(", value);\n")
+                    .append("        }\n");
+        }
+        code.append("    }\n\n}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedMappingName, type).openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    private void checkType(TypeElement type) throws SkipException {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new SkipException("抽象类");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            throw new SkipException("泛型类");
+        }
+        if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            throw new SkipException("局部类或匿名类");
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new SkipException("非静态内部类");
+        }
+        if (!isVisibleInPackage(type)) {
+            throw new SkipException("私有类");
+        }
+    }
+
+    /**
+     * @return 类及其外部类都不是private，同一个包中可以访问
+     */
+    private static boolean isVisibleInPackage(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * @return 类及其外部类都是public
+     */
+    private static boolean isPublic(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * @return 在pkg包中是否可以通过类名访问该类
+     */
+    private boolean isAccessible(TypeElement type, String pkg) {
+        return isPublic(type) || (isVisibleInPackage(type) && packageOf(type).equals(pkg));
+    }
+
+    private String packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    /**
+     * @return 与运行时GraphEntityMappings.mappingClassName一致，嵌套类的类名用_连接
+     */
+    private static String flatName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element element = type.getEnclosingElement();
+        while (element instanceof TypeElement) {
+            name.insert(0, element.getSimpleName() + "_");
+            element = element.getEnclosingElement();
+        }
+        return name.toString();
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    /**
+     * @return 同一个包中可以调用的无参构造方法，没有显式构造方法时为默认构造方法
+     */
+    private static boolean hasAccessibleConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+        }
+        return false;
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * 类型不能安全生成时抛出，运行时回退到反射
+     */
+    private static class SkipException extends Exception {
+
+        private SkipException(String message) {
+            super(message);
+        }
+
+    }
+
+    /**
+     * 一个字段及其@GraphProperty注解的值
+     */
+    private class PropertyField {
+
+        private final TypeElement declaringClass;
+
+        private final VariableElement field;
+
+        private final String name;
+
+        private final String pkg;
+
+        /**
+         * 注解的属性值，没有注解时为空
+         */
+        private final String key;
+
+        private final String dataType;
+
+        private final boolean required;
+
+        private final String propertyType;
+
+        private final TypeElement formatter;
+
+        private PropertyField(TypeElement declaringClass, VariableElement field, AnnotationMirror graphProperty, String pkg)
+                throws SkipException {
+            this.declaringClass = declaringClass;
+            this.field = field;
+            this.name = field.getSimpleName().toString();
+            this.pkg = pkg;
+            if (graphProperty == null) {
+                this.key = null;
+                this.dataType = null;
+                this.required = false;
+                this.propertyType = null;
+                this.formatter = null;
+                return;
+            }
+            String key = null;
+            String dataType = null;
+            boolean required = false;
+            String propertyType = null;
+            TypeElement formatter = null;
+            Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                    processingEnv.getElementUtils().getElementValuesWithDefaults(graphProperty);
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+                String member = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if ("value".equals(member)) {
+                    key = (String) value;
+                } else if ("dataType".equals(member)) {
+                    dataType = ((VariableElement) value).getSimpleName().toString();
+                } else if ("required".equals(member)) {
+                    required = (Boolean) value;
+                } else if ("propertyTypeEnum".equals(member)) {
+                    propertyType = ((VariableElement) value).getSimpleName().toString();
+                } else if ("formatter".equals(member)) {
+                    formatter = (TypeElement) ((DeclaredType) value).asElement();
+                }
+            }
+            this.key = key;
+            this.dataType = dataType;
+            this.required = required;
+            this.propertyType = propertyType;
+            this.formatter = formatter;
+            if (formatter != null && !isAccessible(formatter, pkg)) {
+                throw new SkipException("字段" + this.name + "的formatter不可访问");
+            }
+            if (!isAccessible(declaringClass, pkg)) {
+                throw new SkipException("父类" + declaringClass.getQualifiedName() + "不可访问");
+            }
+        }
+
+        /**
+         * @return 行解析时的列名，与DefaultRowMapper相同
+         */
+        private String columnKey() {
+            return this.key != null ? this.key : this.name;
+        }
+
+        /**
+         * @return 行解析时的数据类型，没有注解或为NULL时为空
+         */
+        private String columnDataType() {
+            return this.dataType == null || "NULL".equals(this.dataType) ? null : this.dataType;
+        }
+
+        private boolean isFieldAccessible() {
+            Set<Modifier> modifiers = this.field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            if (packageOf(this.declaringClass).equals(this.pkg)) {
+                return isVisibleInPackage(this.declaringClass);
+            }
+            return modifiers.contains(Modifier.PUBLIC) && isPublic(this.declaringClass);
+        }
+
+        private boolean readable() {
+            return isFieldAccessible();
+        }
+
+        /**
+         * @return 是否可以直接赋值，字段的类型不可访问时无法生成类型转换，通过MethodHandle赋值
+         */
+        private boolean writable() {
+            return isFieldAccessible() && !this.field.getModifiers().contains(Modifier.FINAL)
+                    && isTypeAccessible(processingEnv.getTypeUtils().erasure(this.field.asType()));
+        }
+
+        private boolean isTypeAccessible(TypeMirror type) {
+            if (type.getKind() == TypeKind.ARRAY) {
+                return isTypeAccessible(((javax.lang.model.type.ArrayType) type).getComponentType());
+            }
+            if (type.getKind() == TypeKind.DECLARED) {
+                return isAccessible((TypeElement) ((DeclaredType) type).asElement(), this.pkg);
+            }
+            return type.getKind().isPrimitive();
+        }
+
+        /**
+         * @return 按声明字段的类读取，父类字段被子类同名字段隐藏时仍然读取父类字段
+         */
+        private String readExpression(String input) {
+            return "((" + processingEnv.getTypeUtils().erasure(this.declaringClass.asType()) + ") " + input + ")." + this.name;
+        }
+
+        private String declaringClassLiteral() {
+            return processingEnv.getTypeUtils().erasure(this.declaringClass.asType()) + ".class";
+        }
+
+        private String boxedTypeName() {
+            TypeMirror type = this.field.asType();
+            if (type.getKind().isPrimitive()) {
+                return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+            }
+            return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+
+        private String formatterLiteral() {
+            return this.formatter == null ? GRAPH_VALUE_FORMATTER + ".class" : this.formatter.getQualifiedName() + ".class";
+        }
+
+        /**
+         * @return 创建格式化对象的构造方法引用，不能直接调用构造方法时为null，运行时通过反射创建
+         */
+        private String formatterFactory() {
+            if (this.formatter == null || this.formatter.getQualifiedName().contentEquals(GRAPH_VALUE_FORMATTER)
+                    || this.formatter.getModifiers().contains(Modifier.ABSTRACT)
+                    || (this.formatter.getNestingKind() == NestingKind.MEMBER && !this.formatter.getModifiers().contains(Modifier.STATIC))) {
+                return "null";
+            }
+            boolean samePackage = packageOf(this.formatter).equals(this.pkg);
+            List<ExecutableElement> constructors = ElementFilter.constructorsIn(this.formatter.getEnclosedElements());
+            for (ExecutableElement constructor : constructors) {
+                if (constructor.getParameters().isEmpty() && constructor.getThrownTypes().isEmpty()) {
+                    Set<Modifier> modifiers = constructor.getModifiers();
+                    boolean accessible = modifiers.contains(Modifier.PUBLIC) || (samePackage && !modifiers.contains(Modifier.PRIVATE));
+                    return accessible ? this.formatter.getQualifiedName() + "::new" : "null";
+                }
+            }
+            return "null";
+        }
+
+    }
+
+}
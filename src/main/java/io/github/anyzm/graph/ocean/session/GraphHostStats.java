@@ -0,0 +1,137 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import lombok.Getter;
+
+/**
+ * Description  GraphHostStats is used for
+ * 单个graphd的健康统计：耗时EWMA、错误率EWMA、连续失败次数以及隔离状态，
+ * 连续失败达到阈值后隔离一段时间，隔离到期后允许再次尝试，再失败一次立即重新隔离，成功一次恢复
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:40
+ * @version 1.0.0
+ */
+public class GraphHostStats {
+
+    /**
+     * 平均耗时、错误率的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    /**
+     * 计算得分时错误率的权重，错误率为10%的graphd得分是同耗时健康graphd的两倍
+     */
+    private static final double ERROR_PENALTY = 10;
+
+    /**
+     * host:port
+     */
+    @Getter
+    private final String host;
+
+    private double latencyEwma;
+
+    private double errorRateEwma;
+
+    private long requestCount;
+
+    private long errorCount;
+
+    private int consecutiveFailures;
+
+    private long quarantinedUntil;
+
+    private long quarantineCount;
+
+    GraphHostStats(String host) {
+        this.host = host;
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param latencyMillis      耗时
+     * @param succeeded          是否成功，只有连接类异常算失败
+     * @param quarantineFailures 连续失败达到该次数时隔离
+     * @param quarantineMillis   隔离时长
+     * @return 本次是否新进入隔离
+     */
+    synchronized boolean record(long latencyMillis, boolean succeeded, int quarantineFailures, long quarantineMillis) {
+        this.requestCount++;
+        this.errorRateEwma = EWMA_ALPHA * (succeeded ? 0 : 1) + (1 - EWMA_ALPHA) * this.errorRateEwma;
+        if (succeeded) {
+            this.latencyEwma = this.requestCount - this.errorCount == 1
+                    ? latencyMillis : EWMA_ALPHA * latencyMillis + (1 - EWMA_ALPHA) * this.latencyEwma;
+            this.consecutiveFailures = 0;
+            this.quarantinedUntil = 0;
+            return false;
+        }
+        this.errorCount++;
+        this.consecutiveFailures++;
+        long now = System.currentTimeMillis();
+        if (this.consecutiveFailures >= quarantineFailures && this.quarantinedUntil <= now) {
+            this.quarantinedUntil = now + quarantineMillis;
+            this.quarantineCount++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean isQuarantined() {
+        return this.quarantinedUntil > System.currentTimeMillis();
+    }
+
+    /**
+     *
+     * @return 选择graphd时的得分，越小越好，耗时EWMA按错误率放大
+     */
+    public synchronized double getScore() {
+        return this.latencyEwma * (1 + this.errorRateEwma * ERROR_PENALTY);
+    }
+
+    public synchronized double getLatencyEwma() {
+        return this.latencyEwma;
+    }
+
+    public synchronized double getErrorRate() {
+        return this.errorRateEwma;
+    }
+
+    public synchronized long getRequestCount() {
+        return this.requestCount;
+    }
+
+    public synchronized long getErrorCount() {
+        return this.errorCount;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return this.consecutiveFailures;
+    }
+
+    /**
+     *
+     * @return 隔离结束的时间戳，未隔离时为0或已过去的时间
+     */
+    public synchronized long getQuarantinedUntil() {
+        return this.quarantinedUntil;
+    }
+
+    public synchronized long getQuarantineCount() {
+        return this.quarantineCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GraphHostStats(host=" + host + ", latencyEwma=" + latencyEwma + ", errorRate=" + errorRateEwma
+                + ", requestCount=" + requestCount + ", errorCount=" + errorCount
+                + ", consecutiveFailures=" + consecutiveFailures + ", quarantined=" + isQuarantined()
+                + ", quarantineCount=" + quarantineCount + ")";
+    }
+
+}
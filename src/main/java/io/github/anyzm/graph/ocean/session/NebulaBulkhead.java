@@ -0,0 +1,105 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import com.google.common.collect.Maps;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description  NebulaBulkhead is used for
+ * 按调用类型限制同时执行的调用数，例如限制更新最多占用session池中的一部分session，
+ * 批量导入再多也不会挤占查询；达到上限时最多等待maxWaitMillis，仍然没有许可时抛出BULKHEAD_FULL
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:10
+ * @version 1.0.0
+ */
+public class NebulaBulkhead {
+
+    private final Map<GraphOperationTypeEnum, Semaphore> permits = Maps.newEnumMap(GraphOperationTypeEnum.class);
+
+    private final Map<GraphOperationTypeEnum, Integer> limits = Maps.newEnumMap(GraphOperationTypeEnum.class);
+
+    /**
+     * 达到上限时最多等待的毫秒数，0为立即失败
+     */
+    @Getter
+    private final long maxWaitMillis;
+
+    /**
+     * @param maxConcurrentQueries 同时执行的最大查询数，小于等于0时不限制
+     * @param maxConcurrentUpdates 同时执行的最大更新数，小于等于0时不限制
+     * @param maxWaitMillis        达到上限时最多等待的毫秒数，0为立即失败
+     */
+    public NebulaBulkhead(int maxConcurrentQueries, int maxConcurrentUpdates, long maxWaitMillis) {
+        CheckThrower.ifFalseThrow(maxWaitMillis >= 0, "MaxWaitMillis must not less than zero");
+        this.maxWaitMillis = maxWaitMillis;
+        limit(GraphOperationTypeEnum.QUERY, maxConcurrentQueries);
+        limit(GraphOperationTypeEnum.UPDATE, maxConcurrentUpdates);
+    }
+
+    private void limit(GraphOperationTypeEnum type, int maxConcurrent) {
+        if (maxConcurrent > 0) {
+            this.permits.put(type, new Semaphore(maxConcurrent));
+            this.limits.put(type, maxConcurrent);
+        }
+    }
+
+    /**
+     * 执行前获取许可，达到上限时抛出BULKHEAD_FULL
+     */
+    public void acquire(GraphOperationTypeEnum type) throws NebulaExecuteException {
+        Semaphore semaphore = this.permits.get(type);
+        if (semaphore == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            acquired = this.maxWaitMillis == 0 ? semaphore.tryAcquire()
+                    : semaphore.tryAcquire(this.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new NebulaExecuteException(ErrorEnum.BULKHEAD_FULL);
+        }
+    }
+
+    public void release(GraphOperationTypeEnum type) {
+        Semaphore semaphore = this.permits.get(type);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    /**
+     *
+     * @return 该类型的并发上限，不限制时为-1
+     */
+    public int getLimit(GraphOperationTypeEnum type) {
+        Integer limit = this.limits.get(type);
+        return limit == null ? -1 : limit;
+    }
+
+    /**
+     *
+     * @return 该类型正在执行的调用数
+     */
+    public int getActiveCount(GraphOperationTypeEnum type) {
+        Semaphore semaphore = this.permits.get(type);
+        return semaphore == null ? 0 : this.limits.get(type) - semaphore.availablePermits();
+    }
+
+}
@@ -0,0 +1,237 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import com.google.common.collect.Maps;
+import io.github.anyzm.graph.ocean.enums.CircuitBreakerStateEnum;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description  NebulaCircuitBreaker is used for
+ * 按(调用类型,图空间)熔断：最近slidingWindowSize次调用中连接类失败的比例达到阈值后熔断openMillis，
+ * 熔断期间调用直接抛出CIRCUIT_OPEN，不再占用session和nebula；到期后放行halfOpenCalls个探测调用，
+ * 探测成功则恢复，失败则重新熔断。语句错误说明nebula正常应答，按成功计算
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:05
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaCircuitBreaker {
+
+    /**
+     * 失败比例达到该值时熔断，(0,1]
+     */
+    @Getter
+    private final double failureRateThreshold;
+
+    /**
+     * 统计失败比例的最近调用数
+     */
+    @Getter
+    private final int slidingWindowSize;
+
+    /**
+     * 窗口内调用数达到该值后才判断是否熔断
+     */
+    @Getter
+    private final int minimumCalls;
+
+    /**
+     * 熔断时长
+     */
+    @Getter
+    private final long openMillis;
+
+    /**
+     * 半开状态下同时放行的探测调用数
+     */
+    @Getter
+    private final int halfOpenCalls;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * 最近20次调用中失败过半(至少10次调用)时熔断10秒，到期后放行1个探测调用
+     */
+    public NebulaCircuitBreaker() {
+        this(0.5, 20, 10, 10000, 1);
+    }
+
+    public NebulaCircuitBreaker(double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                                long openMillis, int halfOpenCalls) {
+        CheckThrower.ifFalseThrow(failureRateThreshold > 0 && failureRateThreshold <= 1,
+                "FailureRateThreshold must between zero and one");
+        CheckThrower.ifFalseThrow(slidingWindowSize >= 1 && minimumCalls >= 1 && minimumCalls <= slidingWindowSize,
+                "SlidingWindowSize and minimumCalls must greater than zero and minimumCalls must not greater than slidingWindowSize");
+        CheckThrower.ifFalseThrow(openMillis >= 1 && halfOpenCalls >= 1, "OpenMillis and halfOpenCalls must greater than zero");
+        this.failureRateThreshold = failureRateThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * 调用前获取许可，熔断中时抛出CIRCUIT_OPEN
+     */
+    public void acquirePermission(GraphOperationTypeEnum type, String space) throws NebulaExecuteException {
+        if (!circuit(type, space).tryAcquire()) {
+            log.debug("nebula调用熔断中，快速失败,type={},space={}", type, space);
+            throw new NebulaExecuteException(ErrorEnum.CIRCUIT_OPEN);
+        }
+    }
+
+    /**
+     * 获取许可后没有执行调用时归还许可
+     */
+    public void releasePermission(GraphOperationTypeEnum type, String space) {
+        circuit(type, space).release();
+    }
+
+    /**
+     * 记录一次调用结果
+     *
+     * @param succeeded 是否成功，只有连接类异常算失败
+     */
+    public void record(GraphOperationTypeEnum type, String space, boolean succeeded) {
+        Circuit circuit = circuit(type, space);
+        CircuitBreakerStateEnum previous = circuit.getState();
+        CircuitBreakerStateEnum current = circuit.record(succeeded);
+        if (previous != current) {
+            log.warn("nebula熔断状态变化 {} -> {},type={},space={}", previous, current, type, space);
+        }
+    }
+
+    public CircuitBreakerStateEnum getState(GraphOperationTypeEnum type, String space) {
+        Circuit circuit = this.circuits.get(key(type, space));
+        return circuit == null ? CircuitBreakerStateEnum.CLOSED : circuit.getState();
+    }
+
+    /**
+     *
+     * @return 每个(调用类型:图空间)的熔断状态，可用于监控展示
+     */
+    public Map<String, CircuitBreakerStateEnum> getStates() {
+        Map<String, CircuitBreakerStateEnum> states = Maps.newTreeMap();
+        for (Map.Entry<String, Circuit> entry : this.circuits.entrySet()) {
+            states.put(entry.getKey(), entry.getValue().getState());
+        }
+        return states;
+    }
+
+    private Circuit circuit(GraphOperationTypeEnum type, String space) {
+        return this.circuits.computeIfAbsent(key(type, space), k -> new Circuit());
+    }
+
+    private static String key(GraphOperationTypeEnum type, String space) {
+        return type.name() + ":" + (space == null ? "" : space);
+    }
+
+    /**
+     * 一个(调用类型,图空间)的熔断状态
+     */
+    private class Circuit {
+
+        private CircuitBreakerStateEnum state = CircuitBreakerStateEnum.CLOSED;
+
+        /**
+         * 最近的调用结果，true为失败
+         */
+        private final boolean[] outcomes = new boolean[slidingWindowSize];
+
+        private int outcomeCount;
+
+        private int outcomeIndex;
+
+        private int failureCount;
+
+        private long stateSince;
+
+        private int halfOpenInFlight;
+
+        private synchronized CircuitBreakerStateEnum getState() {
+            return this.state;
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.currentTimeMillis();
+            if (this.state == CircuitBreakerStateEnum.OPEN) {
+                if (now - this.stateSince < openMillis) {
+                    return false;
+                }
+                transitTo(CircuitBreakerStateEnum.HALF_OPEN, now);
+            }
+            if (this.state == CircuitBreakerStateEnum.HALF_OPEN) {
+                // 探测调用迟迟没有结果时不会一直卡在半开状态
+                if (this.halfOpenInFlight >= halfOpenCalls && now - this.stateSince < openMillis) {
+                    return false;
+                }
+                if (this.halfOpenInFlight >= halfOpenCalls) {
+                    this.halfOpenInFlight = 0;
+                    this.stateSince = now;
+                }
+                this.halfOpenInFlight++;
+            }
+            return true;
+        }
+
+        private synchronized void release() {
+            if (this.state == CircuitBreakerStateEnum.HALF_OPEN && this.halfOpenInFlight > 0) {
+                this.halfOpenInFlight--;
+            }
+        }
+
+        private synchronized CircuitBreakerStateEnum record(boolean succeeded) {
+            long now = System.currentTimeMillis();
+            if (this.state == CircuitBreakerStateEnum.HALF_OPEN) {
+                transitTo(succeeded ? CircuitBreakerStateEnum.CLOSED : CircuitBreakerStateEnum.OPEN, now);
+                return this.state;
+            }
+            if (this.state == CircuitBreakerStateEnum.OPEN) {
+                // 熔断前已经发出的调用，结果不再影响状态
+                return this.state;
+            }
+            if (this.outcomeCount == slidingWindowSize) {
+                if (this.outcomes[this.outcomeIndex]) {
+                    this.failureCount--;
+                }
+            } else {
+                this.outcomeCount++;
+            }
+            this.outcomes[this.outcomeIndex] = !succeeded;
+            if (!succeeded) {
+                this.failureCount++;
+            }
+            this.outcomeIndex = (this.outcomeIndex + 1) % slidingWindowSize;
+            if (this.outcomeCount >= minimumCalls && this.failureCount >= failureRateThreshold * this.outcomeCount) {
+                transitTo(CircuitBreakerStateEnum.OPEN, now);
+            }
+            return this.state;
+        }
+
+        private void transitTo(CircuitBreakerStateEnum state, long now) {
+            this.state = state;
+            this.stateSince = now;
+            this.halfOpenInFlight = 0;
+            if (state != CircuitBreakerStateEnum.HALF_OPEN) {
+                this.outcomeCount = 0;
+                this.outcomeIndex = 0;
+                this.failureCount = 0;
+            }
+        }
+
+    }
+
+}
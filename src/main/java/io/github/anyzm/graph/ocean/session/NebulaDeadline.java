@@ -0,0 +1,89 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import io.github.anyzm.graph.ocean.exception.NebulaTimeoutException;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description  NebulaDeadline is used for
+ * 一次调用的截止时间，覆盖获取session、执行和结果解析，各阶段共用同一个截止时间
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:40
+ * @version 1.0.0
+ */
+public final class NebulaDeadline {
+
+    public static final String STAGE_BORROW = "borrow";
+
+    public static final String STAGE_EXECUTE = "execute";
+
+    public static final String STAGE_DECODE = "decode";
+
+    /**
+     * 没有截止时间
+     */
+    public static final NebulaDeadline NONE = new NebulaDeadline(0, Long.MAX_VALUE);
+
+    @Getter
+    private final long timeoutMillis;
+
+    private final long deadlineNanos;
+
+    private NebulaDeadline(long timeoutMillis, long deadlineNanos) {
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param timeoutMillis 从现在开始的超时时间，小于等于0时没有截止时间
+     */
+    public static NebulaDeadline after(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return NONE;
+        }
+        return new NebulaDeadline(timeoutMillis, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public boolean isBounded() {
+        return this != NONE;
+    }
+
+    /**
+     *
+     * @return 剩余毫秒数，已过期时为0，没有截止时间时为Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        if (!isBounded()) {
+            return Long.MAX_VALUE;
+        }
+        long remainingNanos = this.deadlineNanos - System.nanoTime();
+        return remainingNanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remainingNanos + 999_999);
+    }
+
+    public boolean isExpired() {
+        return isBounded() && this.deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 已过期时抛出NebulaTimeoutException
+     *
+     * @param stage 当前阶段
+     */
+    public void check(String stage) throws NebulaTimeoutException {
+        if (isExpired()) {
+            throw timeout(stage);
+        }
+    }
+
+    public NebulaTimeoutException timeout(String stage) {
+        return new NebulaTimeoutException(stage, this.timeoutMillis);
+    }
+
+}
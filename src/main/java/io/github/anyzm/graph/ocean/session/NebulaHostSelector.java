@@ -0,0 +1,130 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import com.vesoft.nebula.client.graph.data.HostAddress;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description  NebulaHostSelector is used for
+ * 按graphd统计耗时和错误率，为session池选择graphd提供依据：
+ * 连续失败的graphd被隔离，新建session时避开被隔离或明显慢于最快graphd的节点，借用时优先选择得分低的graphd上的session
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:45
+ * @version 1.0.0
+ */
+@Slf4j
+public class NebulaHostSelector {
+
+    /**
+     * 连续失败达到该次数时隔离graphd
+     */
+    @Getter
+    private final int quarantineFailures;
+
+    /**
+     * 隔离时长
+     */
+    @Getter
+    private final long quarantineMillis;
+
+    /**
+     * 得分超过最快graphd的该倍数时，新建session不使用该graphd
+     */
+    @Getter
+    private final double slowFactor;
+
+    private final Map<String, GraphHostStats> hostStats = new ConcurrentHashMap<>();
+
+    /**
+     * 连续失败3次隔离30秒，慢于最快graphd两倍时不新建session
+     */
+    public NebulaHostSelector() {
+        this(3, 30000, 2.0);
+    }
+
+    public NebulaHostSelector(int quarantineFailures, long quarantineMillis, double slowFactor) {
+        CheckThrower.ifFalseThrow(quarantineFailures >= 1 && quarantineMillis >= 0 && slowFactor >= 1,
+                "QuarantineFailures must greater than zero and slowFactor must not less than one");
+        this.quarantineFailures = quarantineFailures;
+        this.quarantineMillis = quarantineMillis;
+        this.slowFactor = slowFactor;
+    }
+
+    /**
+     * @param address graphd地址
+     * @return host:port，地址为空时返回null
+     */
+    public static String hostKey(HostAddress address) {
+        return address == null ? null : address.getHost() + ":" + address.getPort();
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param host          graphd，为空时忽略
+     * @param latencyMillis 耗时
+     * @param succeeded     是否成功，只有连接类异常算失败
+     */
+    public void record(String host, long latencyMillis, boolean succeeded) {
+        if (host == null) {
+            return;
+        }
+        GraphHostStats stats = this.hostStats.computeIfAbsent(host, GraphHostStats::new);
+        if (stats.record(latencyMillis, succeeded, this.quarantineFailures, this.quarantineMillis)) {
+            log.warn("graphd连续失败{}次，隔离{}ms,stats={}", stats.getConsecutiveFailures(), this.quarantineMillis, stats);
+        }
+    }
+
+    public boolean isQuarantined(String host) {
+        GraphHostStats stats = host == null ? null : this.hostStats.get(host);
+        return stats != null && stats.isQuarantined();
+    }
+
+    /**
+     *
+     * @param host graphd
+     * @return 得分，越小越好，没有统计数据的graphd为0，优先被尝试
+     */
+    public double getScore(String host) {
+        GraphHostStats stats = host == null ? null : this.hostStats.get(host);
+        return stats == null ? 0 : stats.getScore();
+    }
+
+    /**
+     * 新建session时是否使用该graphd：未被隔离，且得分不超过最快的未隔离graphd的slowFactor倍
+     */
+    public boolean isPreferred(String host) {
+        if (isQuarantined(host)) {
+            return false;
+        }
+        double score = getScore(host);
+        double best = Double.MAX_VALUE;
+        for (GraphHostStats stats : this.hostStats.values()) {
+            if (!stats.isQuarantined()) {
+                best = Math.min(best, stats.getScore());
+            }
+        }
+        // 最快的graphd耗时不足1ms时按1ms计算，避免极小的耗时放大差异
+        return best == Double.MAX_VALUE || score <= this.slowFactor * Math.max(best, 1);
+    }
+
+    /**
+     *
+     * @return 每个graphd的统计，key为host:port，可用于监控展示
+     */
+    public Map<String, GraphHostStats> getHostStats() {
+        return Collections.unmodifiableMap(this.hostStats);
+    }
+
+}
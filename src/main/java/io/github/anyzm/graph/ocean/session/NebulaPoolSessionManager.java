@@ -5,23 +5,66 @@
  */
 package io.github.anyzm.graph.ocean.session;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
 import com.vesoft.nebula.client.graph.exception.ClientServerIncompatibleException;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import com.vesoft.nebula.client.graph.exception.AuthFailedException;
 import com.vesoft.nebula.client.graph.exception.IOErrorException;
 import com.vesoft.nebula.client.graph.exception.NotValidConnectionException;
 import com.vesoft.nebula.client.graph.net.NebulaPool;
+import com.vesoft.nebula.client.graph.net.Session;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Description  NebulaPoolSessionManager is used for
  *
  * @author Anyzm
  * Date  2021/7/15 - 18:17
- * nebula-session连接池包装类，让session获取更快捷
+ * nebula-session连接池包装类，让session获取更快捷。
+ * 传入NebulaSessionPoolConfig时getSession从session池中借用已认证并切换好图空间的session，release时归还到池中
  * @version 1.0.0
  */
-public class NebulaPoolSessionManager {
+@Slf4j
+public class NebulaPoolSessionManager implements Closeable {
+
+    private static final String USE_SPACE = "use %s";
+
+    /**
+     * 新建session时最多尝试的次数，用于避开被隔离或较慢的graphd
+     */
+    private static final int HOST_SELECT_ATTEMPTS = 3;
+
+    /**
+     * 连接的graphd未知的空闲session按该key分组
+     */
+    private static final String UNKNOWN_HOST = "";
+
+    /**
+     * 泄漏检测的最小间隔
+     */
+    private static final long LEAK_DETECTION_MIN_INTERVAL_MILLIS = 1000;
 
     private NebulaPool nebulaPool;
 
@@ -31,6 +74,70 @@ public class NebulaPoolSessionManager {
 
     private boolean reconnect;
 
+    /**
+     * session池配置，为空时不使用session池，每次getSession都创建新的session
+     */
+    @Getter
+    private NebulaSessionPoolConfig poolConfig;
+
+    /**
+     * 按graphd分组的空闲session，key为host:port，同一graphd上后归还的先借出，使不常用的session自然闲置
+     */
+    private final Map<String, LinkedBlockingDeque<NebulaSessionWrapper>> idleSessions = new ConcurrentHashMap<>();
+
+    private Semaphore borrowPermits;
+
+    private final AtomicInteger totalSessions = new AtomicInteger();
+
+    /**
+     * 已被放弃但底层调用尚未结束的session数，这些session仍计入totalSessions并占用借用许可
+     */
+    private final AtomicInteger abandonedSessions = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * 池化session上带截止时间的调用在该线程池上执行，java8上最多2倍maxTotal个线程：
+     * 被放弃的session关闭前仍计入maxTotal，同时执行的调用不超过maxTotal，多出的线程留给刚结束、尚未回到线程池的调用
+     */
+    private ExecutorService deadlineExecutor;
+
+    /**
+     * 执行空闲session检测和泄漏检测
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 当前存在的池化session，包括借出的和空闲的，用于统计按graphd的分布和检测泄漏
+     */
+    private final Set<NebulaSessionWrapper> pooledSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * session池的累计指标
+     */
+    @Getter
+    private final NebulaSessionPoolMetrics metrics = new NebulaSessionPoolMetrics();
+
+    /**
+     * 按graphd统计耗时和错误率，使用session池时新建和借用session都会参考
+     */
+    @Getter
+    private NebulaHostSelector hostSelector = new NebulaHostSelector();
+
+    /**
+     * 按(调用类型,图空间)熔断，为空时不熔断
+     */
+    @Setter
+    @Getter
+    private volatile NebulaCircuitBreaker circuitBreaker;
+
+    /**
+     * 按调用类型限制同时执行的调用数，为空时不限制
+     */
+    @Setter
+    @Getter
+    private volatile NebulaBulkhead bulkhead;
+
     public NebulaPoolSessionManager(NebulaPool nebulaPool, String userName, String password, boolean reconnect) {
         this.nebulaPool = nebulaPool;
         this.userName = userName;
@@ -38,19 +145,490 @@ public class NebulaPoolSessionManager {
         this.reconnect = reconnect;
     }
 
+    public NebulaPoolSessionManager(NebulaPool nebulaPool, String userName, String password, boolean reconnect,
+                                    NebulaSessionPoolConfig poolConfig) {
+        this(nebulaPool, userName, password, reconnect);
+        CheckThrower.ifTrueThrow(poolConfig == null, ErrorEnum.PARAMETER_NOT_NULL);
+        CheckThrower.ifFalseThrow(poolConfig.getMaxTotal() >= 1 && poolConfig.getMinIdle() >= 0
+                && poolConfig.getBorrowTimeoutMillis() >= 0, "Invalid session pool config");
+        this.poolConfig = poolConfig;
+        this.hostSelector = new NebulaHostSelector(poolConfig.getHostQuarantineFailures(),
+                poolConfig.getHostQuarantineMillis(), poolConfig.getHostSlowFactor());
+        this.borrowPermits = new Semaphore(poolConfig.getMaxTotal(), true);
+        this.deadlineExecutor = VirtualThreads.newBoundedExecutor("graph-ocean-deadline-",
+                (int) Math.min(Integer.MAX_VALUE, 2L * poolConfig.getMaxTotal()));
+        warmUp(poolConfig.getMinIdle(), null);
+        long leakThreshold = poolConfig.getLeakDetectionThresholdMillis();
+        if (poolConfig.getKeepAliveIntervalMillis() > 0 || leakThreshold > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("graph-ocean-session-keepalive-%d").setDaemon(true).build());
+        }
+        if (poolConfig.getKeepAliveIntervalMillis() > 0) {
+            this.scheduler.scheduleWithFixedDelay(this::keepAlive, poolConfig.getKeepAliveIntervalMillis(),
+                    poolConfig.getKeepAliveIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (leakThreshold > 0) {
+            // 疑似泄漏最晚在借出1.5倍阈值时报告
+            long interval = Math.max(leakThreshold / 2, LEAK_DETECTION_MIN_INTERVAL_MILLIS);
+            this.scheduler.scheduleWithFixedDelay(this::detectLeaks, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
     public NebulaSessionWrapper getSession() throws NotValidConnectionException, IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
-        NebulaSessionWrapper nebulaSessionWrapper = new NebulaSessionWrapper(this.nebulaPool.getSession(this.userName, this.password, this.reconnect));
+        if (this.poolConfig != null) {
+            return borrowSession(this.poolConfig.getBorrowTimeoutMillis(), NebulaDeadline.NONE);
+        }
+        NebulaSessionWrapper nebulaSessionWrapper = new NebulaSessionWrapper(
+                this.nebulaPool.getSession(this.userName, this.password, this.reconnect), this, false);
         return nebulaSessionWrapper;
     }
 
     public NebulaSessionWrapper getSession(String userName, String password, boolean reconnect) throws NotValidConnectionException,
             IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
-        return new NebulaSessionWrapper(this.nebulaPool.getSession(userName, password, reconnect));
+        return new NebulaSessionWrapper(this.nebulaPool.getSession(userName, password, reconnect), this, false);
     }
 
     public NebulaSessionWrapper getSession(boolean reconnect) throws NotValidConnectionException,
             IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
-        return new NebulaSessionWrapper(this.nebulaPool.getSession(this.userName, this.password, reconnect));
+        return new NebulaSessionWrapper(this.nebulaPool.getSession(this.userName, this.password, reconnect), this, false);
+    }
+
+    /**
+     * 在截止时间内获取session，session池的等待时间取borrowTimeoutMillis和剩余时间中较小的一个，
+     * 因截止时间未取到或取到时已超过截止时间时抛出NebulaTimeoutException
+     *
+     * @param deadline 截止时间
+     */
+    public NebulaSessionWrapper getSession(NebulaDeadline deadline) throws NotValidConnectionException, IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
+        if (!deadline.isBounded()) {
+            return getSession();
+        }
+        deadline.check(NebulaDeadline.STAGE_BORROW);
+        NebulaSessionWrapper session;
+        if (this.poolConfig != null) {
+            session = borrowSession(Math.min(this.poolConfig.getBorrowTimeoutMillis(), deadline.remainingMillis()), deadline);
+        } else {
+            session = getSession();
+        }
+        if (deadline.isExpired()) {
+            session.release();
+            throw deadline.timeout(NebulaDeadline.STAGE_BORROW);
+        }
+        return session;
+    }
+
+    /**
+     * 按调用类型借用session：先检查熔断并获取并发隔离许可，再在截止时间内借用session，
+     * 等待并发隔离许可期间不占用session；许可由session持有，归还或放弃session时释放
+     *
+     * @param type     调用类型
+     * @param space    图空间，作为熔断的维度
+     * @param deadline 截止时间
+     */
+    public NebulaSessionWrapper getSession(GraphOperationTypeEnum type, String space, NebulaDeadline deadline) throws NotValidConnectionException, IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
+        NebulaCircuitBreaker circuitBreaker = this.circuitBreaker;
+        NebulaBulkhead bulkhead = this.bulkhead;
+        if (circuitBreaker != null) {
+            circuitBreaker.acquirePermission(type, space);
+        }
+        try {
+            if (bulkhead != null) {
+                bulkhead.acquire(type);
+            }
+        } catch (Throwable e) {
+            if (circuitBreaker != null) {
+                circuitBreaker.releasePermission(type, space);
+            }
+            throw e;
+        }
+        NebulaSessionWrapper session;
+        try {
+            session = getSession(deadline);
+        } catch (Throwable e) {
+            if (bulkhead != null) {
+                bulkhead.release(type);
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.releasePermission(type, space);
+            }
+            throw e;
+        }
+        session.holdPermits(type, space, bulkhead, circuitBreaker);
+        return session;
+    }
+
+    private NebulaSessionWrapper borrowSession(long waitMillis, NebulaDeadline deadline) throws NotValidConnectionException, IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
+        CheckThrower.ifTrueThrow(this.closed, ErrorEnum.SESSION_POOL_CLOSED);
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = this.borrowPermits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            this.metrics.recordBorrowTimeout();
+            deadline.check(NebulaDeadline.STAGE_BORROW);
+        }
+        CheckThrower.ifFalseThrow(acquired, ErrorEnum.SESSION_BORROW_TIMEOUT);
+        try {
+            NebulaSessionWrapper session = pollIdleSession();
+            if (session == null) {
+                session = createPooledSession(null);
+            }
+            session.markBorrowed(this.poolConfig.getLeakDetectionThresholdMillis() > 0);
+            this.metrics.recordBorrow(System.nanoTime() - start);
+            return session;
+        } catch (Throwable e) {
+            this.borrowPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 从有空闲session且未被隔离的graphd中选出得分最低的一个，借出其最后归还的session，只比较graphd而不扫描每个session；
+     * 只剩被隔离graphd上的session时关闭其中一个并返回null，由调用方新建
+     */
+    private NebulaSessionWrapper pollIdleSession() {
+        for (int attempt = 0; attempt < HOST_SELECT_ATTEMPTS; attempt++) {
+            LinkedBlockingDeque<NebulaSessionWrapper> best = null;
+            LinkedBlockingDeque<NebulaSessionWrapper> quarantined = null;
+            double bestScore = Double.MAX_VALUE;
+            for (Map.Entry<String, LinkedBlockingDeque<NebulaSessionWrapper>> entry : this.idleSessions.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    continue;
+                }
+                String host = entry.getKey();
+                if (this.hostSelector.isQuarantined(host)) {
+                    quarantined = entry.getValue();
+                    continue;
+                }
+                double score = this.hostSelector.getScore(host);
+                if (best == null || score < bestScore) {
+                    best = entry.getValue();
+                    bestScore = score;
+                }
+            }
+            if (best == null && quarantined == null) {
+                return null;
+            }
+            if (best != null) {
+                NebulaSessionWrapper session = best.pollFirst();
+                if (session != null) {
+                    return session;
+                }
+            } else {
+                NebulaSessionWrapper session = quarantined.pollFirst();
+                if (session != null) {
+                    // 借用许可保证关闭一个空闲session后新建不会超过maxTotal
+                    log.info("关闭被隔离graphd上的空闲session,host={}", session.getGraphHost());
+                    destroySession(session);
+                    return null;
+                }
+            }
+            // 选中graphd上的session被并发借走，重新选择
+        }
+        for (LinkedBlockingDeque<NebulaSessionWrapper> sessions : this.idleSessions.values()) {
+            NebulaSessionWrapper session = sessions.pollFirst();
+            if (session != null) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param session 空闲session
+     * @return session所在graphd的空闲队列
+     */
+    private LinkedBlockingDeque<NebulaSessionWrapper> idleSessionsOf(NebulaSessionWrapper session) {
+        String host = session.getGraphHost();
+        return this.idleSessions.computeIfAbsent(host == null ? UNKNOWN_HOST : host, key -> new LinkedBlockingDeque<>());
+    }
+
+    /**
+     * 归还session，执行中出现连接异常或所在graphd被隔离的session直接关闭
+     */
+    void returnSession(NebulaSessionWrapper session) {
+        if (session.isLeakReported()) {
+            log.info("疑似泄漏的session已归还,heldMillis={}", System.currentTimeMillis() - session.getBorrowedAt());
+        }
+        try {
+            if (this.closed || session.isBroken() || this.hostSelector.isQuarantined(session.getGraphHost())) {
+                destroySession(session);
+            } else {
+                idleSessionsOf(session).offerFirst(session);
+            }
+        } finally {
+            this.borrowPermits.release();
+        }
+    }
+
+    /**
+     * 调用超过截止时间的session被放弃：不再参与借用、泄漏检测和按graphd的统计，
+     * 但在底层session关闭前仍计入session总数并占用借用许可，graphd上同时存在的session数不会超过maxTotal
+     */
+    void abandonSession(NebulaSessionWrapper session) {
+        this.pooledSessions.remove(session);
+        this.abandonedSessions.incrementAndGet();
+        this.metrics.recordAbandoned();
+    }
+
+    ExecutorService getDeadlineExecutor() {
+        return this.deadlineExecutor;
+    }
+
+    /**
+     * 被放弃的session在其调用结束后关闭，此时才归还借用许可
+     */
+    void abandonedSessionDestroyed(NebulaSessionWrapper session) {
+        this.abandonedSessions.decrementAndGet();
+        this.totalSessions.decrementAndGet();
+        this.metrics.recordDestroyed();
+        this.borrowPermits.release();
+        log.debug("被放弃的session已关闭,total={}", this.totalSessions.get());
+    }
+
+    /**
+     * @param space 创建后切换到的图空间，为空时使用配置的图空间
+     */
+    private NebulaSessionWrapper createPooledSession(String space) throws NotValidConnectionException, IOErrorException, AuthFailedException, NebulaException, ClientServerIncompatibleException {
+        NebulaSessionWrapper session = new NebulaSessionWrapper(newSessionOnPreferredHost(), this, true);
+        this.pooledSessions.add(session);
+        this.totalSessions.incrementAndGet();
+        this.metrics.recordCreated();
+        if (StringUtils.isBlank(space)) {
+            space = this.poolConfig.getSpace();
+        }
+        if (StringUtils.isNotBlank(space)) {
+            try {
+                session.execute(String.format(USE_SPACE, space));
+                session.setSpace(space);
+            } catch (Throwable e) {
+                destroySession(session);
+                throw e;
+            }
+        }
+        log.debug("创建池化session,total={}", this.totalSessions.get());
+        return session;
+    }
+
+    /**
+     * NebulaPool自行选择graphd，新建的session落在被隔离或较慢的graphd上时保留它并重新获取，
+     * 使NebulaPool换一个连接，最多尝试HOST_SELECT_ATTEMPTS次，最后一次无论落在哪个graphd都使用；
+     * 有线程在等待借用许可时不再重新获取，每次重新获取都要认证，会拉长这些线程的等待
+     */
+    private Session newSessionOnPreferredHost() throws NotValidConnectionException, IOErrorException, AuthFailedException, ClientServerIncompatibleException {
+        List<Session> rejected = Lists.newArrayListWithExpectedSize(HOST_SELECT_ATTEMPTS - 1);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Session session = this.nebulaPool.getSession(this.userName, this.password, this.reconnect);
+                String host = NebulaHostSelector.hostKey(session.getGraphHost());
+                if (attempt >= HOST_SELECT_ATTEMPTS || this.borrowPermits.hasQueuedThreads()
+                        || this.hostSelector.isPreferred(host)) {
+                    return session;
+                }
+                log.debug("新建session落在被隔离或较慢的graphd上，重新获取,host={}", host);
+                rejected.add(session);
+            }
+        } finally {
+            for (Session session : rejected) {
+                session.release();
+            }
+        }
+    }
+
+    private void destroySession(NebulaSessionWrapper session) {
+        this.pooledSessions.remove(session);
+        this.totalSessions.decrementAndGet();
+        this.metrics.recordDestroyed();
+        try {
+            session.destroy();
+        } catch (Exception e) {
+            log.warn("关闭session异常", e);
+        }
+    }
+
+    /**
+     * 预先创建session，直到池中的session数达到count，不超过maxTotal
+     *
+     * @param count 期望的session数
+     * @param space 新建session切换到的图空间，为空时使用配置的图空间
+     * @return 新建的session数
+     */
+    public int warmUp(int count, String space) {
+        if (this.poolConfig == null || this.closed) {
+            return 0;
+        }
+        int target = Math.min(count, this.poolConfig.getMaxTotal());
+        int created = 0;
+        // 占用借用许可，保证预热期间session总数不超过maxTotal
+        while (this.totalSessions.get() < target && this.borrowPermits.tryAcquire()) {
+            try {
+                NebulaSessionWrapper session = createPooledSession(space);
+                idleSessionsOf(session).offerLast(session);
+                created++;
+            } catch (Exception e) {
+                log.warn("预先创建session失败,created={}", created, e);
+                break;
+            } finally {
+                this.borrowPermits.release();
+            }
+        }
+        log.debug("预热session完成,created={},total={}", created, this.totalSessions.get());
+        return created;
+    }
+
+    /**
+     * 按检测开始时的快照逐个ping空闲session，每个session每轮只检测一次，关闭失效的session并补足minIdle，
+     * 检测中的session占用借用许可并移出空闲队列，不会被借出，期间已被借走的session跳过
+     */
+    private void keepAlive() {
+        try {
+            List<NebulaSessionWrapper> snapshot = Lists.newArrayList();
+            for (LinkedBlockingDeque<NebulaSessionWrapper> sessions : this.idleSessions.values()) {
+                snapshot.addAll(sessions);
+            }
+            for (NebulaSessionWrapper session : snapshot) {
+                if (this.closed || !this.borrowPermits.tryAcquire()) {
+                    break;
+                }
+                try {
+                    if (!idleSessionsOf(session).remove(session)) {
+                        continue;
+                    }
+                    boolean alive;
+                    try {
+                        alive = session.ping();
+                    } catch (Exception e) {
+                        alive = false;
+                    }
+                    if (alive) {
+                        idleSessionsOf(session).offerLast(session);
+                    } else {
+                        log.info("关闭失效的空闲session,space={}", session.getSpace());
+                        destroySession(session);
+                    }
+                } finally {
+                    this.borrowPermits.release();
+                }
+            }
+            warmUp(this.poolConfig.getMinIdle(), null);
+        } catch (Throwable e) {
+            log.warn("检测空闲session异常", e);
+        }
+    }
+
+    /**
+     * 借出超过leakDetectionThresholdMillis仍未归还的session按疑似泄漏打印借用时的调用栈，每次借出只报告一次
+     */
+    private void detectLeaks() {
+        try {
+            long threshold = this.poolConfig.getLeakDetectionThresholdMillis();
+            long now = System.currentTimeMillis();
+            for (NebulaSessionWrapper session : this.pooledSessions) {
+                long heldMillis = now - session.getBorrowedAt();
+                if (session.isBorrowed() && heldMillis > threshold && session.markLeakReported()) {
+                    this.metrics.recordLeak();
+                    log.warn("session借出{}ms仍未归还，疑似泄漏,host={},借用位置:", heldMillis, session.getGraphHost(),
+                            session.getBorrowTrace());
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("检测session泄漏异常", e);
+        }
+    }
+
+    /**
+     *
+     * @return 当前存在的池化session数
+     */
+    public int getTotalSessionCount() {
+        return this.totalSessions.get();
+    }
+
+    /**
+     *
+     * @return 已被放弃、底层调用尚未结束的session数，包含在getTotalSessionCount中
+     */
+    public int getAbandonedSessionCount() {
+        return this.abandonedSessions.get();
+    }
+
+    /**
+     *
+     * @return 空闲的池化session数
+     */
+    public int getIdleSessionCount() {
+        int count = 0;
+        for (LinkedBlockingDeque<NebulaSessionWrapper> sessions : this.idleSessions.values()) {
+            count += sessions.size();
+        }
+        return count;
+    }
+
+    /**
+     *
+     * @return 借出的池化session数，不包括被放弃的session
+     */
+    public int getActiveSessionCount() {
+        return Math.max(0, this.totalSessions.get() - this.abandonedSessions.get() - getIdleSessionCount());
+    }
+
+    /**
+     *
+     * @return 每个graphd上的池化session数，包括借出的和空闲的，key为host:port
+     */
+    public Map<String, Integer> getHostSessionCounts() {
+        return countByHost(false);
+    }
+
+    /**
+     *
+     * @return 每个graphd上借出的池化session数，key为host:port
+     */
+    public Map<String, Integer> getHostActiveSessionCounts() {
+        return countByHost(true);
+    }
+
+    private Map<String, Integer> countByHost(boolean activeOnly) {
+        Map<String, Integer> counts = Maps.newTreeMap();
+        for (NebulaSessionWrapper session : this.pooledSessions) {
+            if (session.getGraphHost() != null && (!activeOnly || session.isBorrowed())) {
+                counts.merge(session.getGraphHost(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     *
+     * @return 每个graphd的耗时、错误率和隔离状态，key为host:port，可用于监控展示
+     */
+    public Map<String, GraphHostStats> getHostStats() {
+        return this.hostSelector.getHostStats();
+    }
+
+    /**
+     * 关闭session池，空闲的session立即关闭，借出的session归还时关闭
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        if (this.deadlineExecutor != null) {
+            // 执行中的调用继续执行，结束后关闭各自的session
+            this.deadlineExecutor.shutdown();
+        }
+        for (LinkedBlockingDeque<NebulaSessionWrapper> sessions : this.idleSessions.values()) {
+            NebulaSessionWrapper session;
+            while ((session = sessions.pollFirst()) != null) {
+                destroySession(session);
+            }
+        }
     }
 
 }
@@ -0,0 +1,76 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Description  NebulaSessionPoolConfig is used for
+ * session池配置，池中的session已经完成认证并切换到指定的图空间
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 19:00
+ * @version 1.0.0
+ */
+@Getter
+@Setter
+@ToString
+public class NebulaSessionPoolConfig {
+
+    /**
+     * 创建时预先建立的空闲session数
+     */
+    private int minIdle = 0;
+
+    /**
+     * 最多同时存在的session数，包括借出的和空闲的
+     */
+    private int maxTotal = 10;
+
+    /**
+     * 没有可用session时最多等待的毫秒数
+     */
+    private long borrowTimeoutMillis = 3000;
+
+    /**
+     * session创建后切换到的图空间，为空时不切换
+     */
+    private String space;
+
+    /**
+     * 创建NebulaGraphMapper时预先建立并切换到其图空间的session数，用于消除发布后的冷启动延迟
+     */
+    private int warmUpSessions = 0;
+
+    /**
+     * 后台检测空闲session的间隔，检测时ping空闲session，关闭已经失效的session并补足minIdle，小于等于0时不检测
+     */
+    private long keepAliveIntervalMillis = 30000;
+
+    /**
+     * graphd连续失败达到该次数时隔离，隔离期间不在该graphd上新建或借出session
+     */
+    private int hostQuarantineFailures = 3;
+
+    /**
+     * graphd的隔离时长，到期后允许再次尝试
+     */
+    private long hostQuarantineMillis = 30000;
+
+    /**
+     * graphd的得分(耗时EWMA按错误率放大)超过最快graphd的该倍数时，新建session不使用该graphd
+     */
+    private double hostSlowFactor = 2.0;
+
+    /**
+     * session借出超过该毫秒数仍未归还时按疑似泄漏打印借用时的调用栈，小于等于0时不检测；
+     * 开启后每次借用都会记录调用栈，有一定开销，建议排查问题时开启
+     */
+    private long leakDetectionThresholdMillis = 0;
+
+}
@@ -0,0 +1,184 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description  NebulaSessionPoolMetrics is used for
+ * session池的累计指标：借用等待耗时分布、借用超时次数、session创建/关闭/放弃次数以及疑似泄漏次数，
+ * 配合NebulaPoolSessionManager的借出/空闲数和按graphd的session分布，用于评估maxTotal是否合适
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:40
+ * @version 1.0.0
+ */
+public class NebulaSessionPoolMetrics {
+
+    /**
+     * 借用等待耗时分布的桶上界，单位毫秒，超过最后一个上界的计入最后一个桶
+     */
+    private static final long[] BORROW_WAIT_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private final AtomicLongArray borrowWaitCounts = new AtomicLongArray(BORROW_WAIT_BUCKETS.length + 1);
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder borrowWaitMicros = new LongAdder();
+
+    private final AtomicLong maxBorrowWaitMicros = new AtomicLong();
+
+    private final LongAdder borrowTimeoutCount = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder destroyedCount = new LongAdder();
+
+    private final LongAdder abandonedCount = new LongAdder();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    /**
+     * 记录一次成功的借用
+     *
+     * @param waitNanos 从开始借用到拿到session的耗时，包括等待许可和新建session
+     */
+    void recordBorrow(long waitNanos) {
+        long micros = waitNanos / 1000;
+        this.borrowCount.increment();
+        this.borrowWaitMicros.add(micros);
+        this.maxBorrowWaitMicros.accumulateAndGet(micros, Math::max);
+        long millis = micros / 1000;
+        int bucket = 0;
+        while (bucket < BORROW_WAIT_BUCKETS.length && millis >= BORROW_WAIT_BUCKETS[bucket]) {
+            bucket++;
+        }
+        this.borrowWaitCounts.incrementAndGet(bucket);
+    }
+
+    void recordBorrowTimeout() {
+        this.borrowTimeoutCount.increment();
+    }
+
+    void recordCreated() {
+        this.createdCount.increment();
+    }
+
+    void recordDestroyed() {
+        this.destroyedCount.increment();
+    }
+
+    void recordAbandoned() {
+        this.abandonedCount.increment();
+    }
+
+    void recordLeak() {
+        this.leakCount.increment();
+    }
+
+    /**
+     *
+     * @return 借用等待耗时分布，key为桶的上界(如"<5ms"，最后一个为">=5000ms")，value为次数
+     */
+    public Map<String, Long> getBorrowWaitHistogram() {
+        Map<String, Long> histogram = Maps.newLinkedHashMap();
+        for (int i = 0; i < BORROW_WAIT_BUCKETS.length; i++) {
+            histogram.put("<" + BORROW_WAIT_BUCKETS[i] + "ms", this.borrowWaitCounts.get(i));
+        }
+        histogram.put(">=" + BORROW_WAIT_BUCKETS[BORROW_WAIT_BUCKETS.length - 1] + "ms",
+                this.borrowWaitCounts.get(BORROW_WAIT_BUCKETS.length));
+        return histogram;
+    }
+
+    /**
+     * 按分布估算借用等待耗时的分位数
+     *
+     * @param percentile 分位，(0,1]
+     * @return 分位所在桶的上界，落在最后一个桶时返回最大等待耗时，没有借用时返回0
+     */
+    public long getBorrowWaitPercentileMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < this.borrowWaitCounts.length(); i++) {
+            total += this.borrowWaitCounts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BORROW_WAIT_BUCKETS.length; i++) {
+            seen += this.borrowWaitCounts.get(i);
+            if (seen >= rank) {
+                return BORROW_WAIT_BUCKETS[i];
+            }
+        }
+        return getMaxBorrowWaitMillis();
+    }
+
+    public long getBorrowCount() {
+        return this.borrowCount.sum();
+    }
+
+    public double getAverageBorrowWaitMillis() {
+        long count = this.borrowCount.sum();
+        return count == 0 ? 0 : this.borrowWaitMicros.sum() / 1000.0 / count;
+    }
+
+    public long getMaxBorrowWaitMillis() {
+        return this.maxBorrowWaitMicros.get() / 1000;
+    }
+
+    /**
+     *
+     * @return 等待超过borrowTimeoutMillis仍然没有借到session的次数
+     */
+    public long getBorrowTimeoutCount() {
+        return this.borrowTimeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return this.createdCount.sum();
+    }
+
+    /**
+     *
+     * @return 关闭的session数，包括失效、被隔离graphd上的以及session池关闭时的session
+     */
+    public long getDestroyedCount() {
+        return this.destroyedCount.sum();
+    }
+
+    /**
+     *
+     * @return 调用超过截止时间被放弃的session数
+     */
+    public long getAbandonedCount() {
+        return this.abandonedCount.sum();
+    }
+
+    /**
+     *
+     * @return 借出超过leakDetectionThresholdMillis仍未归还的次数，每次借出最多计一次
+     */
+    public long getLeakCount() {
+        return this.leakCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "NebulaSessionPoolMetrics(borrowCount=" + getBorrowCount() + ", averageBorrowWaitMillis=" + getAverageBorrowWaitMillis()
+                + ", maxBorrowWaitMillis=" + getMaxBorrowWaitMillis() + ", borrowTimeoutCount=" + getBorrowTimeoutCount()
+                + ", createdCount=" + getCreatedCount() + ", destroyedCount=" + getDestroyedCount()
+                + ", abandonedCount=" + getAbandonedCount() + ", leakCount=" + getLeakCount()
+                + ", borrowWaitHistogram=" + getBorrowWaitHistogram() + ")";
+    }
+
+}
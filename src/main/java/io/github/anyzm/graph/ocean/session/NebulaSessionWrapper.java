@@ -8,16 +8,30 @@ package io.github.anyzm.graph.ocean.session;
 import com.vesoft.nebula.ErrorCode;
 import com.vesoft.nebula.client.graph.data.ResultSet;
 import com.vesoft.nebula.client.graph.net.Session;
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
 import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
 import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
 import io.github.anyzm.graph.ocean.exception.CheckThrower;
 import io.github.anyzm.graph.ocean.exception.NebulaException;
 import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
 import io.github.anyzm.graph.ocean.exception.NebulaVersionConflictException;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 /**
  * Description  NebulaSessionWrapper is used for
@@ -36,21 +50,161 @@ public class NebulaSessionWrapper implements NebulaSession {
 
     private static final String E_DATA_CONFLICT_ERROR = "E_DATA_CONFLICT_ERROR";
 
+    private static final String USE = "use ";
+
+    private static final String USE_SEPARATOR = " ; ";
+
+    private static final String STATEMENT_SEPARATOR = ";";
+
+    /**
+     * 语句中以use开头的子句，执行后session所在的图空间以nebula为准，不再使用记录的图空间
+     */
+    private static final Pattern USE_CLAUSE = Pattern.compile("(?:^|;)\\s*use\\s", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 不属于session池的session上带截止时间的调用的最大并发线程数(java8)
+     */
+    private static final int DEADLINE_MAX_THREADS = 256;
+
+    /**
+     * 不属于session池的session上带截止时间的调用在该线程池上执行，调用线程最多等待到截止时间，
+     * java21上为虚拟线程，java8上最多DEADLINE_MAX_THREADS个线程；池化session使用所属session池的线程池
+     */
+    private static final ExecutorService DEADLINE_EXECUTOR = VirtualThreads.newBoundedExecutor("graph-ocean-deadline-",
+            DEADLINE_MAX_THREADS);
+
+    /**
+     * 所属的session池，为空时release直接关闭session
+     */
+    private final NebulaPoolSessionManager owner;
+
+    /**
+     * 是否已借出，防止重复归还
+     */
+    private final AtomicBoolean borrowed = new AtomicBoolean(false);
+
+    /**
+     * 最近一次借出的时间戳
+     */
+    @Getter
+    private volatile long borrowedAt;
+
+    /**
+     * 最近一次借出时的调用栈，只在开启泄漏检测时记录
+     */
+    @Getter
+    private volatile Throwable borrowTrace;
+
+    /**
+     * 本次借出是否已经报告过疑似泄漏
+     */
+    private volatile boolean leakReported;
+
+    /**
+     * 执行时出现过连接异常，归还时不再放回池中
+     */
+    @Getter
+    private volatile boolean broken;
+
+    /**
+     * session当前所在的图空间，未知时为空，按图空间执行时只有与之不同才切换。
+     * 不使用session池时每次getSession都是新的session，图空间总是未知，每次执行都带use语句
+     */
+    @Getter
+    @Setter
+    private volatile String space;
+
+    /**
+     * 创建本session的管理器，提供graphd统计、熔断和并发隔离，为空时都不启用
+     */
+    private final NebulaPoolSessionManager manager;
+
+    /**
+     * session当前连接的graphd，host:port，重连后会变化
+     */
+    @Getter
+    private volatile String graphHost;
+
+    /**
+     * 调用超过截止时间后被放弃，release不再起作用，执行中的调用结束后由执行线程关闭底层session
+     */
+    @Getter
+    private volatile boolean abandoned;
+
+    private final AtomicBoolean abandonedDestroyed = new AtomicBoolean(false);
+
+    /**
+     * 放弃时已由session池记为被放弃，底层session关闭后通知session池归还借用许可
+     */
+    private volatile boolean abandonedByOwner;
+
+    /**
+     * callWithin提交的调用已经结束，与abandoned配合保证调用结束和放弃先后发生时都能关闭底层session
+     */
+    private volatile boolean callFinished;
+
+    /**
+     * 借用时已经获取的并发隔离许可和熔断许可对应的调用类型，该类型的调用不再逐次获取并发隔离许可，归还或放弃时释放
+     */
+    private final AtomicReference<GraphOperationTypeEnum> heldType = new AtomicReference<>();
+
+    private volatile String heldSpace;
+
+    private volatile NebulaBulkhead heldBulkhead;
+
+    /**
+     * 借用时获取的熔断许可，由第一次同类型同图空间的调用使用，之后为空
+     */
+    private volatile NebulaCircuitBreaker heldCircuitBreaker;
+
     public NebulaSessionWrapper(Session session) throws NebulaExecuteException, NebulaException {
+        this(session, null, false);
+    }
+
+    /**
+     * @param manager 创建本session的管理器
+     * @param pooled  是否为池化session，池化session release时归还到manager的session池
+     */
+    NebulaSessionWrapper(Session session, NebulaPoolSessionManager manager, boolean pooled)
+            throws NebulaExecuteException, NebulaException {
         CheckThrower.ifTrueThrow(session == null, ErrorEnum.SESSION_LACK);
         this.session = session;
+        this.manager = manager;
+        this.owner = pooled ? manager : null;
+        this.graphHost = NebulaHostSelector.hostKey(session.getGraphHost());
     }
 
     @Override
     public int execute(String statement) throws NebulaExecuteException {
+        return executeInSpace(this.space, statement);
+    }
+
+    /**
+     * @param space 语句执行的图空间，作为熔断的维度
+     */
+    private int executeInSpace(String space, String statement) throws NebulaExecuteException {
+        forgetSpaceIfSwitched(statement);
+        beforeExecute(GraphOperationTypeEnum.UPDATE, space);
+        try {
+            return doExecute(space, statement);
+        } finally {
+            afterExecute(GraphOperationTypeEnum.UPDATE);
+        }
+    }
+
+    private int doExecute(String space, String statement) throws NebulaExecuteException {
         ResultSet resultSet = null;
+        long start = System.currentTimeMillis();
         try {
             log.debug("execute执行nebula,ngql={}", statement);
             resultSet = this.session.execute(statement);
         } catch (Exception e) {
+            this.broken = true;
+            recordOutcome(GraphOperationTypeEnum.UPDATE, space, start, false);
             log.error("更新nebula异常 Thrift rpc call failed: {}", e.getMessage());
             throw new NebulaExecuteException(ErrorCode.E_RPC_FAILURE.getValue(), e.getMessage(), e);
         }
+        recordOutcome(GraphOperationTypeEnum.UPDATE, space, start, resultSet.getErrorCode() != ErrorCode.E_RPC_FAILURE.getValue());
         if (resultSet.getErrorCode() == ErrorCode.SUCCEEDED.getValue()) {
             return ErrorCode.SUCCEEDED.getValue();
         }
@@ -64,17 +218,276 @@ public class NebulaSessionWrapper implements NebulaSession {
         throw new NebulaExecuteException(resultSet.getErrorCode(), resultSet.getErrorMessage());
     }
 
+    /**
+     * 在指定的图空间执行更新，session已经在该图空间时不再拼接use语句
+     *
+     * @param space 图空间
+     * @param statement 语句
+     * @return 执行状态
+     * @throws NebulaExecuteException nebula执行异常
+     */
+    public int execute(String space, String statement) throws NebulaExecuteException {
+        if (isInSpace(space)) {
+            return execute(statement);
+        }
+        this.space = null;
+        int result = executeInSpace(space, prependUse(space, statement));
+        this.space = switchesSpace(statement) ? null : space;
+        return result;
+    }
+
+    /**
+     * 在指定的图空间把多条语句用;拼接为一次提交执行，需要切换图空间时use语句和各语句写入同一个缓冲，
+     * 提交的ngql只生成一次
+     *
+     * @param space 图空间
+     * @param statements 语句
+     * @return 执行状态
+     * @throws NebulaExecuteException nebula执行异常
+     */
+    public int execute(String space, List<String> statements) throws NebulaExecuteException {
+        if (isInSpace(space)) {
+            return execute(joinStatements(null, statements));
+        }
+        this.space = null;
+        int result = executeInSpace(space, joinStatements(space, statements));
+        this.space = switchesSpace(statements) ? null : space;
+        return result;
+    }
+
+    /**
+     * 在指定的图空间执行查询，session已经在该图空间时不再拼接use语句
+     *
+     * @param space 图空间
+     * @param statement 语句
+     * @return 查询结果
+     * @throws NebulaExecuteException nebula执行异常
+     */
+    public QueryResult executeQueryDefined(String space, String statement) throws NebulaExecuteException {
+        return toQueryResult(executeQuery(space, statement), statement);
+    }
+
+    /**
+     * 在指定的图空间执行查询，见{@link #executeQueryDefined(String, String)}
+     */
+    public ResultSet executeQuery(String space, String statement) throws NebulaExecuteException {
+        if (isInSpace(space)) {
+            return executeQuery(statement);
+        }
+        this.space = null;
+        ResultSet resultSet = queryInSpace(space, prependUse(space, statement));
+        this.space = switchesSpace(statement) ? null : space;
+        return resultSet;
+    }
+
+    /**
+     * 在截止时间内执行更新，超时抛出NebulaTimeoutException并放弃本session
+     *
+     * @param space     图空间
+     * @param statement 语句
+     * @param deadline  截止时间
+     * @return 执行状态
+     */
+    public int execute(String space, String statement, NebulaDeadline deadline) throws NebulaExecuteException {
+        if (!deadline.isBounded()) {
+            return execute(space, statement);
+        }
+        return callWithin(deadline, () -> execute(space, statement));
+    }
+
+    /**
+     * 在截止时间内执行多条语句，见{@link #execute(String, List)}
+     */
+    public int execute(String space, List<String> statements, NebulaDeadline deadline) throws NebulaExecuteException {
+        if (!deadline.isBounded()) {
+            return execute(space, statements);
+        }
+        return callWithin(deadline, () -> execute(space, statements));
+    }
+
+    /**
+     * 在截止时间内执行查询，超时抛出NebulaTimeoutException并放弃本session
+     */
+    public ResultSet executeQuery(String space, String statement, NebulaDeadline deadline) throws NebulaExecuteException {
+        if (!deadline.isBounded()) {
+            return executeQuery(space, statement);
+        }
+        return callWithin(deadline, () -> executeQuery(space, statement));
+    }
+
+    /**
+     * 在截止时间内执行查询并解析结果，解析完成时已超过截止时间同样抛出NebulaTimeoutException
+     */
+    public QueryResult executeQueryDefined(String space, String statement, NebulaDeadline deadline) throws NebulaExecuteException {
+        if (!deadline.isBounded()) {
+            return executeQueryDefined(space, statement);
+        }
+        QueryResult result = toQueryResult(executeQuery(space, statement, deadline), statement);
+        deadline.check(NebulaDeadline.STAGE_DECODE);
+        return result;
+    }
+
+    /**
+     * 在另一个线程上执行调用，调用线程最多等待到截止时间。nebula的调用无法中断，
+     * 超时后放弃本session：执行中的调用结束后关闭底层session，关闭前session仍计入session池的maxTotal
+     */
+    private <R> R callWithin(NebulaDeadline deadline, Callable<R> call) throws NebulaExecuteException {
+        deadline.check(NebulaDeadline.STAGE_EXECUTE);
+        this.callFinished = false;
+        ExecutorService executor = this.owner != null ? this.owner.getDeadlineExecutor() : DEADLINE_EXECUTOR;
+        Future<R> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    this.callFinished = true;
+                    if (this.abandoned) {
+                        destroyAbandoned();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程全部被执行中的调用占用，调用没有开始执行，session仍可正常归还
+            log.warn("带截止时间的调用线程已满，按超时处理,graphHost={}", this.graphHost);
+            throw deadline.timeout(NebulaDeadline.STAGE_EXECUTE);
+        }
+        try {
+            return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            throw deadline.timeout(NebulaDeadline.STAGE_EXECUTE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(future);
+            throw new NebulaExecuteException(ErrorEnum.SYSTEM_ERROR, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new NebulaExecuteException(ErrorEnum.SYSTEM_ERROR, cause);
+        }
+    }
+
+    private void abandon(Future<?> future) {
+        this.broken = true;
+        releasePermits();
+        if (this.owner != null && this.borrowed.compareAndSet(true, false)) {
+            this.owner.abandonSession(this);
+            this.abandonedByOwner = true;
+        }
+        // abandonedByOwner在abandoned之前写入，看到abandoned的执行线程关闭session时一定会通知session池
+        this.abandoned = true;
+        log.warn("nebula调用超过截止时间，放弃session,graphHost={}", this.graphHost);
+        // 执行线程在abandoned置位前已经结束时由这里关闭
+        if (this.callFinished || future.isDone()) {
+            destroyAbandoned();
+        }
+    }
+
+    private void destroyAbandoned() {
+        if (this.abandonedDestroyed.compareAndSet(false, true)) {
+            try {
+                this.session.release();
+            } catch (Exception e) {
+                log.warn("关闭被放弃的session异常", e);
+            } finally {
+                if (this.abandonedByOwner) {
+                    this.owner.abandonedSessionDestroyed(this);
+                }
+            }
+        }
+    }
+
+    private boolean isInSpace(String space) {
+        return space == null || space.equals(this.space);
+    }
+
+    /**
+     * 语句自带use子句时session可能已经切换到其它图空间，清空记录的图空间，之后按图空间执行时重新拼接use语句
+     */
+    private void forgetSpaceIfSwitched(String statement) {
+        if (this.space != null && switchesSpace(statement)) {
+            this.space = null;
+        }
+    }
+
+    static boolean switchesSpace(String statement) {
+        return statement != null && USE_CLAUSE.matcher(statement).find();
+    }
+
+    private static boolean switchesSpace(List<String> statements) {
+        for (String statement : statements) {
+            if (switchesSpace(statement)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按最终长度分配缓冲，space不为空时先写入use语句
+     */
+    static String joinStatements(String space, List<String> statements) {
+        int capacity = space == null ? 0 : USE.length() + space.length() + USE_SEPARATOR.length();
+        for (String statement : statements) {
+            capacity += statement.length() + STATEMENT_SEPARATOR.length();
+        }
+        StringBuilder builder = new StringBuilder(capacity);
+        if (space != null) {
+            builder.append(USE).append(space).append(USE_SEPARATOR);
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            if (i > 0) {
+                builder.append(STATEMENT_SEPARATOR);
+            }
+            builder.append(statements.get(i));
+        }
+        return builder.toString();
+    }
+
+    private static String prependUse(String space, String statement) {
+        return new StringBuilder(USE.length() + space.length() + USE_SEPARATOR.length() + statement.length())
+                .append(USE).append(space).append(USE_SEPARATOR).append(statement).toString();
+    }
+
     @Override
     public ResultSet executeQuery(String statement) throws NebulaExecuteException {
+        return queryInSpace(this.space, statement);
+    }
+
+    /**
+     * @param space 语句执行的图空间，作为熔断的维度
+     */
+    private ResultSet queryInSpace(String space, String statement) throws NebulaExecuteException {
+        forgetSpaceIfSwitched(statement);
+        beforeExecute(GraphOperationTypeEnum.QUERY, space);
+        try {
+            return doQuery(space, statement);
+        } finally {
+            afterExecute(GraphOperationTypeEnum.QUERY);
+        }
+    }
+
+    private ResultSet doQuery(String space, String statement) throws NebulaExecuteException {
         ResultSet resultSet = null;
+        long start = System.currentTimeMillis();
         try {
             log.debug("executeQuery执行nebula,ngql={}", statement);
             resultSet = this.session.execute(statement);
 
         } catch (Exception e) {
+            this.broken = true;
+            recordOutcome(GraphOperationTypeEnum.QUERY, space, start, false);
             log.error("查询nebula异常 code:{}, msg:{}, nGql:{} ", ErrorCode.E_RPC_FAILURE, e.getMessage(), statement);
             throw new NebulaExecuteException(ErrorEnum.QUERY_NEBULA_EROR, e);
         }
+        recordOutcome(GraphOperationTypeEnum.QUERY, space, start,
+                resultSet == null || resultSet.getErrorCode() != ErrorCode.E_RPC_FAILURE.getValue());
         if (resultSet != null && resultSet.getErrorCode() != ErrorCode.SUCCEEDED.getValue()) {
             log.error("查询nebula异常:{},{},nGql:{}", resultSet.getErrorCode(), resultSet.getErrorMessage(), statement);
             throw new NebulaExecuteException(ErrorEnum.QUERY_NEBULA_EROR);
@@ -84,16 +497,161 @@ public class NebulaSessionWrapper implements NebulaSession {
 
     @Override
     public QueryResult executeQueryDefined(String statement) throws NebulaExecuteException {
-        ResultSet resultSet = executeQuery(statement);
+        return toQueryResult(executeQuery(statement), statement);
+    }
+
+    private QueryResult toQueryResult(ResultSet resultSet, String statement) {
         if (!resultSet.isSucceeded()) {
             log.warn("executeQueryDefined execute fail,sql:" + statement);
             return new QueryResult();
         }
-        return new QueryResult(IntStream.range(0, resultSet.rowsSize()).mapToObj(i -> resultSet.rowValues(i)).collect(Collectors.toList()));
+        return new QueryResult(resultSet);
+    }
+
+    /**
+     * 执行前检查熔断并获取并发隔离许可，熔断中或并发已满时直接抛出异常，不发往nebula；
+     * 借用时已经持有该类型许可的session只检查熔断
+     */
+    private void beforeExecute(GraphOperationTypeEnum type, String space) throws NebulaExecuteException {
+        if (this.manager == null) {
+            return;
+        }
+        NebulaCircuitBreaker circuitBreaker = this.manager.getCircuitBreaker();
+        if (type == this.heldType.get()) {
+            if (this.heldCircuitBreaker != null && Objects.equals(space, this.heldSpace)) {
+                this.heldCircuitBreaker = null;
+            } else if (circuitBreaker != null) {
+                circuitBreaker.acquirePermission(type, space);
+            }
+            return;
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.acquirePermission(type, space);
+        }
+        NebulaBulkhead bulkhead = this.manager.getBulkhead();
+        if (bulkhead == null) {
+            return;
+        }
+        try {
+            bulkhead.acquire(type);
+        } catch (NebulaExecuteException e) {
+            if (circuitBreaker != null) {
+                circuitBreaker.releasePermission(type, space);
+            }
+            throw e;
+        }
+    }
+
+    private void afterExecute(GraphOperationTypeEnum type) {
+        if (type == this.heldType.get()) {
+            return;
+        }
+        NebulaBulkhead bulkhead = this.manager == null ? null : this.manager.getBulkhead();
+        if (bulkhead != null) {
+            bulkhead.release(type);
+        }
+    }
+
+    /**
+     * 按session当前连接的graphd以及(调用类型,图空间)记录本次调用，
+     * 只有连接类异常算失败，语句错误不影响graphd的健康统计和熔断
+     */
+    private void recordOutcome(GraphOperationTypeEnum type, String space, long start, boolean succeeded) {
+        if (this.manager == null) {
+            return;
+        }
+        try {
+            this.graphHost = NebulaHostSelector.hostKey(this.session.getGraphHost());
+        } catch (Exception e) {
+            log.debug("获取session连接的graphd异常", e);
+        }
+        this.manager.getHostSelector().record(this.graphHost, System.currentTimeMillis() - start, succeeded);
+        NebulaCircuitBreaker circuitBreaker = this.manager.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            circuitBreaker.record(type, space, succeeded);
+        }
+    }
+
+    /**
+     * 记录借用时获取的许可，见{@link NebulaPoolSessionManager#getSession(GraphOperationTypeEnum, String, NebulaDeadline)}
+     */
+    void holdPermits(GraphOperationTypeEnum type, String space, NebulaBulkhead bulkhead, NebulaCircuitBreaker circuitBreaker) {
+        this.heldSpace = space;
+        this.heldBulkhead = bulkhead;
+        this.heldCircuitBreaker = circuitBreaker;
+        this.heldType.set(type);
+    }
+
+    /**
+     * 释放借用时获取的许可，只释放一次，熔断许可没有被调用使用时一并归还
+     */
+    private void releasePermits() {
+        GraphOperationTypeEnum type = this.heldType.getAndSet(null);
+        if (type == null) {
+            return;
+        }
+        NebulaBulkhead bulkhead = this.heldBulkhead;
+        NebulaCircuitBreaker circuitBreaker = this.heldCircuitBreaker;
+        this.heldBulkhead = null;
+        this.heldCircuitBreaker = null;
+        if (bulkhead != null) {
+            bulkhead.release(type);
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.releasePermission(type, this.heldSpace);
+        }
     }
 
     @Override
     public void release() {
+        if (this.abandoned) {
+            return;
+        }
+        releasePermits();
+        if (this.owner == null) {
+            this.session.release();
+            return;
+        }
+        if (this.borrowed.compareAndSet(true, false)) {
+            this.owner.returnSession(this);
+        }
+    }
+
+    /**
+     * @param traceBorrow 是否记录借用时的调用栈
+     */
+    void markBorrowed(boolean traceBorrow) {
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrowTrace = traceBorrow ? new Throwable("session借用位置") : null;
+        this.leakReported = false;
+        this.borrowed.set(true);
+    }
+
+    boolean isBorrowed() {
+        return this.borrowed.get();
+    }
+
+    /**
+     * 标记本次借出已报告疑似泄漏
+     *
+     * @return 本次借出是否第一次报告
+     */
+    boolean markLeakReported() {
+        if (this.leakReported) {
+            return false;
+        }
+        this.leakReported = true;
+        return true;
+    }
+
+    boolean isLeakReported() {
+        return this.leakReported;
+    }
+
+    /**
+     * 关闭底层session
+     */
+    void destroy() {
         this.session.release();
     }
 
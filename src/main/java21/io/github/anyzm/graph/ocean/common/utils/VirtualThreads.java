@@ -0,0 +1,53 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.common.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Description  VirtualThreads is used for
+ * java21的实现，打包在multi-release jar的META-INF/versions/21下，每个任务一个虚拟线程，
+ * 阻塞在session调用上的任务不占用平台线程
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:20
+ * @version 1.0.0
+ */
+public class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return 当前运行环境是否使用虚拟线程
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程池，由调用方负责关闭
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+    }
+
+    /**
+     * 虚拟线程不占用平台线程，不限制数量，每个任务一个虚拟线程
+     *
+     * @param namePrefix 线程名前缀
+     * @param maxThreads java8实现的最大线程数，这里不使用
+     * @return 线程池，由调用方负责关闭
+     */
+    public static ExecutorService newBoundedExecutor(String namePrefix, int maxThreads) {
+        return newThreadPerTaskExecutor(namePrefix);
+    }
+
+}
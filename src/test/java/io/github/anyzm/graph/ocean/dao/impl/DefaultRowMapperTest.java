@@ -0,0 +1,234 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.dao.impl;
+
+import com.google.common.collect.Lists;
+import com.vesoft.nebula.DataSet;
+import com.vesoft.nebula.ErrorCode;
+import com.vesoft.nebula.NullType;
+import com.vesoft.nebula.Row;
+import com.vesoft.nebula.Value;
+import com.vesoft.nebula.client.graph.data.DateWrapper;
+import com.vesoft.nebula.client.graph.data.ResultSet;
+import com.vesoft.nebula.client.graph.data.ValueWrapper;
+import com.vesoft.nebula.client.graph.exception.InvalidValueException;
+import com.vesoft.nebula.graph.ExecutionResponse;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.common.utils.FieldUtils;
+import io.github.anyzm.graph.ocean.domain.GraphLabel;
+import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Description  DefaultRowMapperTest is used for
+ * 同一个ResultSet分别用原反射解析方式和DefaultRowMapper解析，结果一致；未指定类型的DATE列改为asDate取值
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 18:20
+ * @version 1.0.0
+ */
+public class DefaultRowMapperTest {
+
+    private static final int ROWS = 200;
+
+    @Test
+    public void testSameEntitiesAsReflectivePath() throws Exception {
+        ResultSet resultSet = profiles(ROWS);
+        QueryResult queryResult = new QueryResult(resultSet);
+        List<Profile> expected = Lists.newArrayListWithExpectedSize(ROWS);
+        for (ResultSet.Record record : queryResult) {
+            expected.add(legacyParseResult(record, null, Profile.class));
+        }
+        List<Profile> actual = queryResult.getEntities(null, Profile.class);
+        assertEquals(ROWS, actual.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertProfileEquals(expected.get(i), actual.get(i));
+        }
+        // 空值不赋值
+        assertNull(actual.get(1).city);
+        assertEquals(Long.valueOf(3), actual.get(3).uid);
+        assertEquals("nick3", actual.get(3).nick);
+        assertEquals(Double.valueOf(1.5), actual.get(3).score);
+        assertEquals(Boolean.FALSE, actual.get(3).vip);
+        assertEquals(Long.valueOf(23), actual.get(3).age);
+        assertEquals("c0", actual.get(3).city);
+    }
+
+    @Test
+    public void testResolvedColumnsSameAsByName() throws Exception {
+        ResultSet resultSet = profiles(10);
+        DefaultRowMapper<Profile> rowMapper = DefaultRowMapper.of(Profile.class);
+        int[] columnIndexes = rowMapper.resolveColumns(resultSet.keys());
+        for (int i = 0; i < resultSet.rowsSize(); i++) {
+            ResultSet.Record record = resultSet.rowValues(i);
+            assertProfileEquals(rowMapper.mapRow(record, null), rowMapper.mapRow(record, null, columnIndexes));
+        }
+    }
+
+    /**
+     * 原方式未指定类型的DATE列用asDouble取值，直接抛出异常；DefaultRowMapper改为asDate
+     */
+    @Test
+    public void testUntypedDateUsesAsDate() throws Exception {
+        ResultSet resultSet = resultSet(Lists.newArrayList("uid", "birthday"),
+                Lists.newArrayList(new Row(Lists.newArrayList(Value.iVal(7),
+                        Value.dVal(new com.vesoft.nebula.Date((short) 2022, (byte) 10, (byte) 18))))));
+        ResultSet.Record record = resultSet.rowValues(0);
+        try {
+            legacyParseResult(record, null, Birthday.class);
+            fail("legacy path should read an untyped DATE column with asDouble");
+        } catch (InvalidValueException e) {
+            // expected
+        }
+        Birthday birthday = DefaultRowMapper.of(Birthday.class).mapRow(record, null);
+        assertEquals(Long.valueOf(7), birthday.uid);
+        assertEquals(new DateWrapper(new com.vesoft.nebula.Date((short) 2022, (byte) 10, (byte) 18)), birthday.birthday);
+    }
+
+    private static void assertProfileEquals(Profile expected, Profile actual) {
+        assertEquals(expected.uid, actual.uid);
+        assertEquals(expected.nick, actual.nick);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.vip, actual.vip);
+        assertEquals(expected.age, actual.age);
+        assertEquals(expected.city, actual.city);
+    }
+
+    private static List<Profile> legacyEntities(QueryResult queryResult)
+            throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        List<Profile> list = Lists.newArrayListWithExpectedSize(queryResult.size());
+        for (ResultSet.Record record : queryResult) {
+            list.add(legacyParseResult(record, null, Profile.class));
+        }
+        return list;
+    }
+
+    static ResultSet profiles(int size) {
+        List<Row> rows = Lists.newArrayListWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(Lists.newArrayList(Value.iVal(i), Value.sVal(("nick" + i).getBytes(StandardCharsets.UTF_8)),
+                    Value.fVal(i * 0.5), Value.bVal(i % 2 == 0), Value.iVal(20 + i),
+                    i == 1 ? Value.nVal(NullType.__NULL__) : Value.sVal(("c" + (i % 3)).getBytes(StandardCharsets.UTF_8)))));
+        }
+        return resultSet(Lists.newArrayList("uid", "nick", "score", "vip", "age", "city"), rows);
+    }
+
+    static ResultSet resultSet(List<String> columnNames, List<Row> rows) {
+        List<byte[]> columns = Lists.newArrayListWithExpectedSize(columnNames.size());
+        for (String columnName : columnNames) {
+            columns.add(columnName.getBytes(StandardCharsets.UTF_8));
+        }
+        ExecutionResponse response = new ExecutionResponse();
+        response.setError_code(ErrorCode.SUCCEEDED);
+        response.setData(new DataSet(columns, rows));
+        response.setSpace_name("test".getBytes(StandardCharsets.UTF_8));
+        return new ResultSet(response, 0);
+    }
+
+    private static <T> void dealFieldReformat(GraphLabel graphLabel, String key, Field field, T obj, Object databaseValue) throws IllegalAccessException {
+        Object value = graphLabel != null ? graphLabel.reformatValue(key, databaseValue) : databaseValue;
+        field.set(obj, value);
+    }
+
+    /**
+     * 引入DefaultRowMapper之前QueryResult逐行解析实体的方式
+     */
+    private static <T> T legacyParseResult(ResultSet.Record record, GraphLabel graphLabel, Class<T> clazz) throws IllegalAccessException, InstantiationException, UnsupportedEncodingException {
+        T obj = clazz.newInstance();
+        List<Field> fieldsList = FieldUtils.listFields(clazz);
+        for (Field field : fieldsList) {
+            GraphProperty annotation = field.getAnnotation(GraphProperty.class);
+            String key = annotation != null ? annotation.value() : field.getName();
+            if (record.contains(key)) {
+                ValueWrapper valueWrapper = record.get(key);
+                if (!valueWrapper.isNull()) {
+                    field.setAccessible(true);
+                    if (annotation != null && !GraphDataTypeEnum.NULL.equals(annotation.dataType())) {
+                        switch (annotation.dataType()) {
+                            case INT:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asLong());
+                                break;
+                            case STRING:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asString());
+                                break;
+                            case DATE:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDate());
+                                break;
+                            case DATE_TIME:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDateTime());
+                                break;
+                            case BOOLEAN:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asBoolean());
+                                break;
+                            case TIMESTAMP:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asTime());
+                                break;
+                            case DOUBLE:
+                                dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
+                                break;
+                            default:
+                        }
+                        continue;
+                    }
+                    if (valueWrapper.isLong()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asLong());
+                    } else if (valueWrapper.isBoolean()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asBoolean());
+                    } else if (valueWrapper.isDouble()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
+                    } else if (valueWrapper.isDate()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDouble());
+                    } else if (valueWrapper.isDateTime()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asDateTime());
+                    } else if (valueWrapper.isTime()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asTime());
+                    } else if (valueWrapper.isString()) {
+                        dealFieldReformat(graphLabel, key, field, obj, valueWrapper.asString());
+                    }
+                }
+            }
+        }
+        return obj;
+    }
+
+    public static class Profile {
+
+        @GraphProperty(value = "uid", dataType = GraphDataTypeEnum.INT)
+        private Long uid;
+
+        @GraphProperty(value = "nick", dataType = GraphDataTypeEnum.STRING)
+        private String nick;
+
+        private Double score;
+
+        private Boolean vip;
+
+        private Long age;
+
+        private String city;
+
+    }
+
+    public static class Birthday {
+
+        @GraphProperty(value = "uid", dataType = GraphDataTypeEnum.INT)
+        private Long uid;
+
+        private DateWrapper birthday;
+
+    }
+
+}
@@ -0,0 +1,364 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.domain.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.vesoft.nebula.DataSet;
+import com.vesoft.nebula.ErrorCode;
+import com.vesoft.nebula.NullType;
+import com.vesoft.nebula.Row;
+import com.vesoft.nebula.Value;
+import com.vesoft.nebula.client.graph.data.ResultSet;
+import com.vesoft.nebula.graph.ExecutionResponse;
+import io.github.anyzm.graph.ocean.dao.RowMapper;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultRowMapper;
+import io.github.anyzm.graph.ocean.domain.GraphLabel;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Description  QueryResultTest is used for
+ * 基于ResultSet按需解析的QueryResult：只读视图、合并后的拼接视图、解析实体、按列读取以及按下标切分的并行解析
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:40
+ * @version 1.0.0
+ */
+public class QueryResultTest {
+
+    @Test
+    public void testResultSetView() throws Exception {
+        QueryResult queryResult = new QueryResult(items(0, 3));
+        assertEquals(3, queryResult.size());
+        assertEquals(Lists.newArrayList("id", "name"), queryResult.getColumnNames());
+        assertEquals(Lists.newArrayList(0L, 1L, 2L), ids(queryResult));
+        assertEquals(3, queryResult.stream().count());
+        // getData时复制为普通列表，之后可以修改
+        List<ResultSet.Record> data = queryResult.getData();
+        assertTrue(data instanceof ArrayList);
+        data.remove(0);
+        assertEquals(2, queryResult.size());
+        assertSame(data, queryResult.getData());
+    }
+
+    @Test
+    public void testMergeResultSetViews() throws Exception {
+        QueryResult queryResult = new QueryResult(items(0, 3)).mergeQueryResult(new QueryResult(items(3, 2)));
+        assertEquals(5, queryResult.size());
+        assertEquals(Lists.newArrayList(0L, 1L, 2L, 3L, 4L), ids(queryResult));
+        assertEquals(Lists.newArrayList("id", "name"), queryResult.getColumnNames());
+        List<ResultSet.Record> data = queryResult.getData();
+        assertEquals(4L, data.get(4).get("id").asLong());
+    }
+
+    @Test
+    public void testConcatIndexAcrossParts() throws Exception {
+        QueryResult queryResult = new QueryResult(items(0, 2))
+                .mergeQueryResult(new QueryResult(items(2, 0)))
+                .mergeQueryResult(new QueryResult(items(2, 3)))
+                .mergeQueryResult(new QueryResult(items(5, 1)));
+        assertEquals(6, queryResult.size());
+        assertEquals(Lists.newArrayList(0L, 1L, 2L, 3L, 4L, 5L), ids(queryResult));
+        assertEquals(3L, queryResult.getData().get(3).get("id").asLong());
+    }
+
+    @Test
+    public void testMergePlainIntoViewCopiesPlainRows() throws Exception {
+        List<ResultSet.Record> plain = records(items(10, 2));
+        QueryResult queryResult = new QueryResult(items(0, 2))
+                .mergeQueryResult(new QueryResult(plain, Lists.newArrayList("id", "name")));
+        // 合并后修改原列表不影响合并结果
+        plain.clear();
+        assertEquals(4, queryResult.size());
+        assertEquals(Lists.newArrayList(0L, 1L, 10L, 11L), ids(queryResult));
+    }
+
+    @Test
+    public void testMergeDifferentColumnsDropsColumnNames() throws Exception {
+        QueryResult queryResult = new QueryResult(items(0, 1))
+                .mergeQueryResult(new QueryResult(resultSet(Lists.newArrayList("id"),
+                        Lists.newArrayList(new Row(Lists.newArrayList(Value.iVal(9)))))));
+        assertNull(queryResult.getColumnNames());
+        List<Item> entities = queryResult.getEntities(null, Item.class);
+        assertEquals(2, entities.size());
+        assertEquals("name0", entities.get(0).name);
+        assertEquals(Long.valueOf(9), entities.get(1).id);
+        assertNull(entities.get(1).name);
+    }
+
+    @Test
+    public void testMergeIntoEmpty() throws Exception {
+        QueryResult queryResult = new QueryResult().mergeQueryResult(new QueryResult(items(0, 2)));
+        assertEquals(2, queryResult.size());
+        assertEquals(Lists.newArrayList("id", "name"), queryResult.getColumnNames());
+        assertSame(queryResult, queryResult.mergeQueryResult(new QueryResult()));
+        assertSame(queryResult, queryResult.mergeQueryResult(null));
+        assertEquals(2, queryResult.size());
+    }
+
+    @Test
+    public void testEntitiesFromConcat() throws Exception {
+        QueryResult queryResult = new QueryResult(items(0, 2))
+                .mergeQueryResult(new QueryResult(records(items(2, 2)), Lists.newArrayList("id", "name")));
+        List<Item> entities = queryResult.getEntities(null, Item.class);
+        assertEquals(4, entities.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Long.valueOf(i), entities.get(i).id);
+        }
+        // 第1行name为空，不赋值
+        assertNull(entities.get(1).name);
+        assertEquals("name3", entities.get(3).name);
+    }
+
+    @Test
+    public void testPrimitiveColumns() {
+        QueryResult queryResult = new QueryResult(scores());
+        assertArrayEquals(new long[]{0, 1, 0, 3}, queryResult.longColumn("id", 0));
+        assertArrayEquals(new long[]{10, 11, -1, 13}, queryResult.longColumn("level", -1));
+        // 整数值转换为浮点值
+        assertArrayEquals(new double[]{0.5, 11, Double.NaN, 1.5}, queryResult.doubleColumn("score", Double.NaN), 0);
+        assertArrayEquals(new boolean[]{true, false, true, false}, queryResult.booleanColumn("vip", true));
+        assertArrayEquals(new boolean[]{true, false, false, false}, queryResult.booleanColumn("vip"));
+    }
+
+    @Test
+    public void testStringColumnDictionary() {
+        StringColumn column = new QueryResult(scores()).stringColumn("city");
+        assertEquals(4, column.size());
+        assertEquals(Lists.newArrayList("bj", "sh"), column.getDictionary());
+        assertEquals(2, column.cardinality());
+        assertArrayEquals(new int[]{0, 1, StringColumn.NULL_CODE, 0}, column.getCodes());
+        assertArrayEquals(new int[]{2, 1}, column.counts());
+        assertEquals("bj", column.get(3));
+        assertNull(column.get(2));
+    }
+
+    @Test
+    public void testColumnsAcrossMergedResults() {
+        QueryResult queryResult = new QueryResult(items(0, 2))
+                .mergeQueryResult(new QueryResult(records(items(2, 2)), Lists.newArrayList("id", "name")))
+                .mergeQueryResult(new QueryResult(items(4, 1)));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4}, queryResult.longColumn("id"));
+        StringColumn names = queryResult.stringColumn("name");
+        assertEquals("name0", names.get(0));
+        assertNull(names.get(1));
+        assertEquals("name4", names.get(4));
+    }
+
+    @Test
+    public void testColumnMissingFromSomeParts() {
+        QueryResult queryResult = new QueryResult(items(0, 1))
+                .mergeQueryResult(new QueryResult(resultSet(Lists.newArrayList("id"),
+                        Lists.newArrayList(new Row(Lists.newArrayList(Value.iVal(9)))))));
+        // 合并了不同列的结果时，行中没有该列按空值处理
+        assertEquals(StringColumn.NULL_CODE, queryResult.stringColumn("name").getCodes()[1]);
+        assertArrayEquals(new long[]{0, 9}, queryResult.longColumn("id"));
+    }
+
+    @Test
+    public void testColumnNotExist() {
+        try {
+            new QueryResult(scores()).longColumn("missing");
+            fail("missing column should throw");
+        } catch (NebulaException e) {
+            assertEquals(ErrorEnum.COLUMN_NOT_EXIST.getResponseMessage(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testColumnTypeNotMatch() {
+        try {
+            new QueryResult(scores()).longColumn("city");
+            fail("string column read as long should throw");
+        } catch (NebulaException e) {
+            assertEquals(ErrorEnum.COLUMN_TYPE_NOT_MATCH.getResponseMessage(), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParallelEntitiesKeepRowOrder() throws Exception {
+        QueryResult lazy = new QueryResult(items(0, 500));
+        QueryResult concat = new QueryResult(items(0, 200))
+                .mergeQueryResult(new QueryResult(records(items(200, 100)), Lists.newArrayList("id", "name")))
+                .mergeQueryResult(new QueryResult(items(300, 200)));
+        QueryResult plain = new QueryResult(records(items(0, 500)));
+        for (QueryResult queryResult : Lists.newArrayList(lazy, concat, plain)) {
+            List<Item> serial = queryResult.getEntities(null, DefaultRowMapper.of(Item.class));
+            List<Item> parallel = queryResult.getEntities(null, DefaultRowMapper.of(Item.class), 100);
+            assertEquals(500, parallel.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals(Long.valueOf(i), parallel.get(i).id);
+                assertEquals(serial.get(i).name, parallel.get(i).name);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBelowThresholdDecodesSerially() throws Exception {
+        Set<Thread> threads = Sets.newConcurrentHashSet();
+        QueryResult queryResult = new QueryResult(items(0, 50));
+        List<Item> entities = queryResult.getEntities(null, new RecordingRowMapper(threads), 100);
+        assertEquals(50, entities.size());
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        assertEquals(50, queryResult.getEntities(null, new RecordingRowMapper(threads), 0).size());
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+    }
+
+    @Test(expected = InstantiationException.class)
+    public void testParallelRethrowsCheckedException() throws Exception {
+        new QueryResult(items(0, 500)).getEntities(null, new RecordingRowMapper(null), 100);
+    }
+
+    @Test
+    public void testSpliteratorSplitsByIndex() {
+        for (QueryResult queryResult : Lists.newArrayList(new QueryResult(items(0, 10)),
+                new QueryResult(items(0, 4)).mergeQueryResult(new QueryResult(items(4, 6))))) {
+            Spliterator<ResultSet.Record> second = queryResult.spliterator();
+            assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+            assertEquals(10, second.estimateSize());
+            Spliterator<ResultSet.Record> first = second.trySplit();
+            assertEquals(5, first.estimateSize());
+            assertEquals(5, second.estimateSize());
+            List<Long> ids = Lists.newArrayList();
+            first.forEachRemaining(record -> ids.add(id(record)));
+            second.tryAdvance(record -> ids.add(id(record)));
+            assertEquals(4, second.estimateSize());
+            second.forEachRemaining(record -> ids.add(id(record)));
+            assertEquals(Lists.newArrayList(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids);
+            assertNull(second.trySplit());
+        }
+    }
+
+    private static long id(ResultSet.Record record) {
+        try {
+            return record.get("id").asLong();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<Long> ids(QueryResult queryResult) throws Exception {
+        List<Long> ids = Lists.newArrayList();
+        for (ResultSet.Record record : queryResult) {
+            ids.add(record.get("id").asLong());
+        }
+        return ids;
+    }
+
+    static List<ResultSet.Record> records(ResultSet resultSet) {
+        List<ResultSet.Record> records = Lists.newArrayList();
+        for (int i = 0; i < resultSet.rowsSize(); i++) {
+            records.add(resultSet.rowValues(i));
+        }
+        return records;
+    }
+
+    /**
+     * @return id从offset开始的size行，id为1的行name为空
+     */
+    static ResultSet items(int offset, int size) {
+        List<Row> rows = Lists.newArrayListWithExpectedSize(size);
+        for (int i = offset; i < offset + size; i++) {
+            rows.add(new Row(Lists.newArrayList(Value.iVal(i),
+                    i == 1 ? Value.nVal(NullType.__NULL__) : Value.sVal(("name" + i).getBytes(StandardCharsets.UTF_8)))));
+        }
+        return resultSet(Lists.newArrayList("id", "name"), rows);
+    }
+
+    /**
+     * @return 第2行level、score、vip、city为空
+     */
+    static ResultSet scores() {
+        List<Row> rows = Lists.newArrayList();
+        rows.add(new Row(Lists.newArrayList(Value.iVal(0), Value.iVal(10), Value.fVal(0.5), Value.bVal(true), string("bj"))));
+        rows.add(new Row(Lists.newArrayList(Value.iVal(1), Value.iVal(11), Value.iVal(11), Value.bVal(false), string("sh"))));
+        rows.add(new Row(Lists.newArrayList(Value.iVal(0), nullValue(), nullValue(), nullValue(), nullValue())));
+        rows.add(new Row(Lists.newArrayList(Value.iVal(3), Value.iVal(13), Value.fVal(1.5), Value.bVal(false), string("bj"))));
+        return resultSet(Lists.newArrayList("id", "level", "score", "vip", "city"), rows);
+    }
+
+    private static Value string(String value) {
+        return Value.sVal(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Value nullValue() {
+        return Value.nVal(NullType.__NULL__);
+    }
+
+    static ResultSet resultSet(List<String> columnNames, List<Row> rows) {
+        List<byte[]> columns = Lists.newArrayListWithExpectedSize(columnNames.size());
+        for (String columnName : columnNames) {
+            columns.add(columnName.getBytes(StandardCharsets.UTF_8));
+        }
+        ExecutionResponse response = new ExecutionResponse();
+        response.setError_code(ErrorCode.SUCCEEDED);
+        response.setData(new DataSet(columns, rows));
+        response.setSpace_name("test".getBytes(StandardCharsets.UTF_8));
+        return new ResultSet(response, 0);
+    }
+
+    /**
+     * 记录解析线程的行解析器，threads为空时解析第一行就抛出InstantiationException
+     */
+    private static class RecordingRowMapper implements RowMapper<Item> {
+
+        private final Set<Thread> threads;
+
+        private RecordingRowMapper(Set<Thread> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public Class<Item> getType() {
+            return Item.class;
+        }
+
+        @Override
+        public int[] resolveColumns(List<String> columnNames) {
+            return new int[0];
+        }
+
+        @Override
+        public Item mapRow(ResultSet.Record record, GraphLabel graphLabel, int[] columnIndexes) throws InstantiationException {
+            return mapRow(record, graphLabel);
+        }
+
+        @Override
+        public Item mapRow(ResultSet.Record record, GraphLabel graphLabel) throws InstantiationException {
+            if (this.threads == null) {
+                throw new InstantiationException("no instance");
+            }
+            this.threads.add(Thread.currentThread());
+            return new Item();
+        }
+
+    }
+
+    public static class Item {
+
+        private Long id;
+
+        private String name;
+
+    }
+
+}
@@ -0,0 +1,100 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  AdaptiveBatchChunkPolicyTest is used for
+ * AIMD调整单批条数
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:30
+ * @version 1.0.0
+ */
+public class AdaptiveBatchChunkPolicyTest {
+
+    private static AdaptiveBatchChunkPolicy policy(int initialStatements) {
+        return new AdaptiveBatchChunkPolicy(initialStatements, 50, 300, 1024, 200, 50, 0.5);
+    }
+
+    @Test
+    public void testInitialStatementsClamped() {
+        assertEquals(50, policy(1).getMaxStatements());
+        assertEquals(300, policy(10000).getMaxStatements());
+        assertEquals(100, policy(100).getMaxStatements());
+        assertEquals(1024, policy(100).getMaxBytes());
+    }
+
+    @Test
+    public void testAdditiveIncreaseOnFullFastChunk() {
+        AdaptiveBatchChunkPolicy policy = policy(100);
+        policy.feedback(100, 512, 10, true);
+        assertEquals(150, policy.getMaxStatements());
+        policy.feedback(150, 512, 10, true);
+        policy.feedback(200, 512, 10, true);
+        policy.feedback(250, 512, 10, true);
+        assertEquals(300, policy.getMaxStatements());
+        policy.feedback(300, 512, 10, true);
+        assertEquals(300, policy.getMaxStatements());
+    }
+
+    @Test
+    public void testNoIncreaseWhenChunkCutByBytes() {
+        AdaptiveBatchChunkPolicy policy = policy(100);
+        policy.feedback(60, 1024, 10, true);
+        assertEquals(100, policy.getMaxStatements());
+        assertEquals(0, policy.getIncreaseCount());
+        assertEquals(0, policy.getDecreaseCount());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnSlowChunk() {
+        AdaptiveBatchChunkPolicy policy = policy(300);
+        policy.feedback(300, 512, 500, true);
+        assertEquals(150, policy.getMaxStatements());
+        policy.feedback(150, 512, 500, true);
+        assertEquals(75, policy.getMaxStatements());
+        policy.feedback(75, 512, 500, true);
+        assertEquals(50, policy.getMaxStatements());
+        assertEquals(3, policy.getDecreaseCount());
+    }
+
+    @Test
+    public void testDecreaseOnFailure() {
+        AdaptiveBatchChunkPolicy policy = policy(200);
+        policy.feedback(200, 512, 10, false);
+        assertEquals(100, policy.getMaxStatements());
+        assertTrue(policy.getErrorRate() > 0);
+    }
+
+    @Test
+    public void testStatistics() {
+        AdaptiveBatchChunkPolicy policy = policy(100);
+        policy.feedback(100, 400, 100, true);
+        assertEquals(100, policy.getLatencyEwma(), 0.0001);
+        policy.feedback(50, 200, 200, true);
+        assertEquals(0.2 * 200 + 0.8 * 100, policy.getLatencyEwma(), 0.0001);
+        assertEquals(2, policy.getChunkCount());
+        assertEquals(75, policy.getAverageStatements(), 0.0001);
+        assertEquals(300, policy.getAverageBytes(), 0.0001);
+        assertEquals(0, policy.getErrorRate(), 0.0001);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidBounds() {
+        new AdaptiveBatchChunkPolicy(100, 200, 100, 1024, 200, 50, 0.5);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidDecrease() {
+        new AdaptiveBatchChunkPolicy(100, 50, 300, 1024, 200, 50, 1);
+    }
+
+}
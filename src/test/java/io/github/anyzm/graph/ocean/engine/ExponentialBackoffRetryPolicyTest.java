@@ -0,0 +1,95 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.vesoft.nebula.ErrorCode;
+import com.vesoft.nebula.client.graph.exception.IOErrorException;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  ExponentialBackoffRetryPolicyTest is used for
+ * 指数退避重试策略的可重试异常判断和等待时间范围
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 18:45
+ * @version 1.0.0
+ */
+public class ExponentialBackoffRetryPolicyTest {
+
+    @Test
+    public void testDefaults() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        assertEquals(ExponentialBackoffRetryPolicy.DEFAULT_MAX_ATTEMPTS, policy.getMaxAttempts());
+    }
+
+    @Test
+    public void testRetryableCauses() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        assertTrue(policy.isRetryable(new IOErrorException(IOErrorException.E_CONNECT_BROKEN, "broken")));
+        assertTrue(policy.isRetryable(new NebulaExecuteException(ErrorCode.E_RPC_FAILURE.getValue(), "rpc failure")));
+        // 包装在其他异常里也能识别
+        assertTrue(policy.isRetryable(new RuntimeException(new IOErrorException(IOErrorException.E_TIME_OUT, "timeout"))));
+        assertTrue(policy.isRetryable(new IllegalStateException(
+                new NebulaExecuteException(ErrorCode.E_RPC_FAILURE.getValue(), "rpc failure"))));
+    }
+
+    @Test
+    public void testNotRetryableCauses() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy();
+        assertFalse(policy.isRetryable(null));
+        assertFalse(policy.isRetryable(new NebulaExecuteException(ErrorCode.E_SYNTAX_ERROR.getValue(), "syntax error")));
+        assertFalse(policy.isRetryable(new NebulaExecuteException(ErrorCode.E_EXECUTION_ERROR.getValue(), "execution error")));
+        assertFalse(policy.isRetryable(new IllegalArgumentException("bad argument")));
+    }
+
+    @Test
+    public void testBackoffGrowsWithinJitterRange() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(10, 100, 2000);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(50, 100, policy.getBackoffMillis(1));
+            assertBetween(100, 200, policy.getBackoffMillis(2));
+            assertBetween(200, 400, policy.getBackoffMillis(3));
+            assertBetween(800, 1600, policy.getBackoffMillis(5));
+        }
+    }
+
+    @Test
+    public void testBackoffCappedAtMax() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(100, 100, 2000);
+        for (int i = 0; i < 100; i++) {
+            assertBetween(1000, 2000, policy.getBackoffMillis(6));
+            // 移位溢出时也取上限
+            assertBetween(1000, 2000, policy.getBackoffMillis(64));
+        }
+    }
+
+    @Test
+    public void testZeroBackoff() {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(3, 0, 0);
+        assertEquals(0, policy.getBackoffMillis(1));
+        assertEquals(0, policy.getBackoffMillis(3));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidMaxAttempts() {
+        new ExponentialBackoffRetryPolicy(0, 100, 2000);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidBackoff() {
+        new ExponentialBackoffRetryPolicy(3, 200, 100);
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+    }
+
+}
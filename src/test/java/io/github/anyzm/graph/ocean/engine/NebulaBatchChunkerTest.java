@@ -0,0 +1,132 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  NebulaBatchChunkerTest is used for
+ * 按语句条数和字节数切分分批
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:35
+ * @version 1.0.0
+ */
+public class NebulaBatchChunkerTest {
+
+    /**
+     * 每条10字节
+     */
+    private static List<String> statements(int count) {
+        List<String> sqlList = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            sqlList.add(String.format("STMT-%05d", i));
+        }
+        return sqlList;
+    }
+
+    private static List<BatchChunk> chunks(NebulaBatchChunker chunker) {
+        List<BatchChunk> chunks = Lists.newArrayList();
+        while (chunker.hasNext()) {
+            chunks.add(chunker.next());
+        }
+        return chunks;
+    }
+
+    @Test
+    public void testSplitByStatements() {
+        List<BatchChunk> chunks = chunks(new NebulaBatchChunker(statements(7), new FixedBatchChunkPolicy(3, 1024)));
+        assertEquals(3, chunks.size());
+        assertEquals(0, chunks.get(0).getFromIndex());
+        assertEquals(3, chunks.get(0).getToIndex());
+        assertEquals(6, chunks.get(2).getFromIndex());
+        assertEquals(1, chunks.get(2).getStatementCount());
+        assertEquals("STMT-00000;STMT-00001;STMT-00002", chunks.get(0).getSql());
+        assertEquals(32, chunks.get(0).getByteSize());
+        assertEquals(2, chunks.get(2).getIndex());
+    }
+
+    @Test
+    public void testSplitByBytes() {
+        // 两条加分隔符21字节，三条32字节
+        List<BatchChunk> chunks = chunks(new NebulaBatchChunker(statements(5), new FixedBatchChunkPolicy(100, 25)));
+        assertEquals(3, chunks.size());
+        assertEquals(2, chunks.get(0).getStatementCount());
+        assertEquals(21, chunks.get(0).getByteSize());
+        assertEquals(2, chunks.get(1).getStatementCount());
+        assertEquals(1, chunks.get(2).getStatementCount());
+    }
+
+    @Test
+    public void testOversizedStatementStandsAlone() {
+        List<String> sqlList = Lists.newArrayList("STMT-00000", "STMT-00001-TOO-LONG", "STMT-00002");
+        List<BatchChunk> chunks = chunks(new NebulaBatchChunker(sqlList, new FixedBatchChunkPolicy(100, 12)));
+        assertEquals(3, chunks.size());
+        assertEquals("STMT-00001-TOO-LONG", chunks.get(1).getSql());
+    }
+
+    @Test
+    public void testUtf8Bytes() {
+        // 每条3个汉字9字节
+        List<String> sqlList = Lists.newArrayList("张三丰", "李四光", "王五六");
+        List<BatchChunk> chunks = chunks(new NebulaBatchChunker(sqlList, new FixedBatchChunkPolicy(100, 19)));
+        assertEquals(2, chunks.size());
+        assertEquals(19, chunks.get(0).getByteSize());
+    }
+
+    @Test
+    public void testChunkIsViewOfStatements() {
+        List<String> sqlList = statements(5);
+        List<BatchChunk> chunks = chunks(new NebulaBatchChunker(sqlList, new FixedBatchChunkPolicy(3, 1024)));
+        assertEquals(sqlList.subList(3, 5), chunks.get(1).getStatements());
+        assertSame(sqlList.get(3), chunks.get(1).getStatements().get(0));
+    }
+
+    /**
+     * 分批字节数不包含use语句，默认上限加上use语句仍不超过graphd默认的max_allowed_query_size
+     */
+    @Test
+    public void testDefaultBudgetLeavesRoomForUse() {
+        String statement = Strings.repeat("S", 999);
+        List<String> sqlList = Collections.nCopies(5000, statement);
+        BatchChunk chunk = new NebulaBatchChunker(sqlList, new FixedBatchChunkPolicy(10000, GraphBatchChunkPolicy.DEFAULT_MAX_BYTES)).next();
+        String use = "use " + Strings.repeat("s", 256) + " ; ";
+        assertTrue(chunk.getByteSize() + use.length() <= 4 * 1024 * 1024);
+        assertTrue(chunk.getByteSize() > 4 * 1024 * 1024 - 64 * 1024 - 1000);
+    }
+
+    @Test
+    public void testPolicyReadPerChunk() {
+        AdaptiveBatchChunkPolicy policy = new AdaptiveBatchChunkPolicy(2, 1, 10, 1024, 100, 2, 0.5);
+        NebulaBatchChunker chunker = new NebulaBatchChunker(statements(20), policy);
+        BatchChunk first = chunker.next();
+        assertEquals(2, first.getStatementCount());
+        policy.feedback(first.getStatementCount(), first.getByteSize(), 1, true);
+        assertEquals(4, chunker.next().getStatementCount());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testExhausted() {
+        NebulaBatchChunker chunker = new NebulaBatchChunker(statements(1), new FixedBatchChunkPolicy());
+        chunker.next();
+        assertFalse(chunker.hasNext());
+        chunker.next();
+    }
+
+}
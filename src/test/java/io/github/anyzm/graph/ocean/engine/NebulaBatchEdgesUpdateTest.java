@@ -0,0 +1,124 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.annotation.GraphEdge;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphEdgeEntityFactory;
+import io.github.anyzm.graph.ocean.domain.impl.GraphEdgeEntity;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.engine.NebulaBatchVertexUpdateTest.Person;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  NebulaBatchEdgesUpdateTest is used for
+ * 多行INSERT边语句的拆分以及起点终点语句的写入方式
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:20
+ * @version 1.0.0
+ */
+public class NebulaBatchEdgesUpdateTest {
+
+    private static final String HEADER = "INSERT EDGE knows(weight) VALUES ";
+
+    private static final Pattern ROW_SRC = Pattern.compile("\"(P\\d+)\"\\s*->");
+
+    @Test
+    public void testSplitByBytes() {
+        int rowBytes = StringUtil.utf8Length(new NebulaBatchEdgesUpdate<>(edges(1), GraphWriteModeEnum.INSERT)
+                .getSqlList().get(0)) - StringUtil.utf8Length(HEADER);
+        int maxBytes = StringUtil.utf8Length(HEADER) + 2 * rowBytes + 1;
+        List<String> sqlList = new NebulaBatchEdgesUpdate<>(edges(5), GraphWriteModeEnum.INSERT, maxBytes).getSqlList();
+        assertEquals(3, sqlList.size());
+        for (String sql : sqlList) {
+            assertTrue(sql.startsWith(HEADER));
+            assertTrue(StringUtil.utf8Length(sql) <= maxBytes);
+        }
+        assertEquals(NebulaBatchVertexUpdateTest.ids(5), rowSrcIds(sqlList));
+    }
+
+    @Test
+    public void testRowCap() {
+        List<String> sqlList = new NebulaBatchEdgesUpdate<>(edges(1001), GraphWriteModeEnum.INSERT).getSqlList();
+        assertEquals(2, sqlList.size());
+        assertEquals(1000, rowSrcIds(sqlList.subList(0, 1)).size());
+    }
+
+    @Test
+    public void testEndpointsFollowWriteMode() {
+        List<GraphVertexEntity<Person>> persons = NebulaBatchVertexUpdateTest.persons(2, "name");
+        List<String> sqlList = new NebulaBatchEdgesUpdate<>(edges(1), persons.subList(0, 1), persons.subList(1, 2),
+                GraphWriteModeEnum.INSERT_IF_NOT_EXISTS).getSqlList();
+        assertEquals(3, sqlList.size());
+        assertTrue(sqlList.get(0).startsWith("INSERT EDGE IF NOT EXISTS knows("));
+        assertTrue(sqlList.get(1).startsWith("INSERT VERTEX IF NOT EXISTS person("));
+        assertTrue(sqlList.get(2).startsWith("INSERT VERTEX IF NOT EXISTS person("));
+    }
+
+    @Test
+    public void testEndpointsUseDeclaredModeWithoutWriteMode() {
+        List<GraphVertexEntity<Person>> persons = NebulaBatchVertexUpdateTest.persons(2, "name");
+        List<String> sqlList = new NebulaBatchEdgesUpdate<>(edges(1), persons.subList(0, 1), persons.subList(1, 2))
+                .getSqlList();
+        assertEquals(3, sqlList.size());
+        assertTrue(sqlList.get(0).startsWith("UPSERT EDGE"));
+        assertTrue(sqlList.get(1).startsWith("UPSERT VERTEX"));
+        assertTrue(sqlList.get(2).startsWith("UPSERT VERTEX"));
+    }
+
+    private static List<GraphEdgeEntity<Person, Person, Knows>> edges(int count) {
+        DefaultGraphEdgeEntityFactory factory = new DefaultGraphEdgeEntityFactory();
+        List<GraphEdgeEntity<Person, Person, Knows>> entities = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(factory.buildGraphEdgeEntity(new Knows("P" + i, "P" + (i + 1), i)));
+        }
+        return entities;
+    }
+
+    private static List<String> rowSrcIds(List<String> sqlList) {
+        List<String> ids = Lists.newArrayList();
+        for (String sql : sqlList) {
+            Matcher matcher = ROW_SRC.matcher(sql);
+            while (matcher.find()) {
+                ids.add(matcher.group(1));
+            }
+        }
+        return ids;
+    }
+
+    @GraphEdge(value = "knows", srcVertex = Person.class, dstVertex = Person.class, srcIdAsField = false, dstIdAsField = false)
+    public static class Knows {
+
+        @GraphProperty(value = "src_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_EDGE_SRC_ID)
+        private String srcId;
+
+        @GraphProperty(value = "dst_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_EDGE_DST_ID)
+        private String dstId;
+
+        @GraphProperty(value = "weight", dataType = GraphDataTypeEnum.INT)
+        private Integer weight;
+
+        public Knows(String srcId, String dstId, Integer weight) {
+            this.srcId = srcId;
+            this.dstId = dstId;
+            this.weight = weight;
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.annotation.GraphVertex;
+import io.github.anyzm.graph.ocean.common.utils.StringUtil;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  NebulaBatchVertexUpdateTest is used for
+ * 多行INSERT按行数和字节数拆分语句
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:10
+ * @version 1.0.0
+ */
+public class NebulaBatchVertexUpdateTest {
+
+    private static final String HEADER = "INSERT VERTEX person(name,person_id) VALUES ";
+
+    private static final Pattern ROW_ID = Pattern.compile("\"(P\\d+)\" :\\(");
+
+    @Test
+    public void testSingleStatementWithinBudget() {
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(10, "name"), GraphWriteModeEnum.INSERT).getSqlList();
+        assertEquals(1, sqlList.size());
+        assertTrue(sqlList.get(0).startsWith(HEADER));
+        assertEquals(ids(10), rowIds(sqlList));
+    }
+
+    @Test
+    public void testStatementRows() {
+        int rowBytes = StringUtil.utf8Length(singleRowSql("name")) - StringUtil.utf8Length(HEADER);
+        int maxBytes = StringUtil.utf8Length(HEADER) + 3 * rowBytes + 2;
+        List<List<Integer>> statementRows = Lists.newArrayList();
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(10, "name"), GraphWriteModeEnum.INSERT, maxBytes)
+                .getSqlList(statementRows);
+        assertEquals(sqlList.size(), statementRows.size());
+        assertEquals(Lists.newArrayList(Lists.newArrayList(0, 1, 2), Lists.newArrayList(3, 4, 5),
+                Lists.newArrayList(6, 7, 8), Lists.newArrayList(9)), statementRows);
+
+        statementRows.clear();
+        sqlList = new NebulaBatchVertexUpdate<>(persons(2, "name"), GraphWriteModeEnum.UPSERT).getSqlList(statementRows);
+        assertEquals(2, sqlList.size());
+        assertEquals(Lists.newArrayList(Lists.newArrayList(0), Lists.newArrayList(1)), statementRows);
+    }
+
+    @Test
+    public void testSplitByBytes() {
+        int rowBytes = StringUtil.utf8Length(singleRowSql("name")) - StringUtil.utf8Length(HEADER);
+        int maxBytes = StringUtil.utf8Length(HEADER) + 3 * rowBytes + 2;
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(10, "name"), GraphWriteModeEnum.INSERT, maxBytes)
+                .getSqlList();
+        assertEquals(4, sqlList.size());
+        for (String sql : sqlList) {
+            assertTrue(sql.startsWith(HEADER));
+            assertTrue(StringUtil.utf8Length(sql) <= maxBytes);
+        }
+        assertEquals(ids(10), rowIds(sqlList));
+    }
+
+    @Test
+    public void testBudgetCountsUtf8Bytes() {
+        // 按字符数能放下两行，按UTF-8字节数只能放下一行
+        int rowChars = singleRowSql("张三李四").length() - HEADER.length();
+        int maxBytes = StringUtil.utf8Length(HEADER) + 2 * rowChars + 1;
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(4, "张三李四"), GraphWriteModeEnum.INSERT, maxBytes)
+                .getSqlList();
+        assertEquals(4, sqlList.size());
+        for (String sql : sqlList) {
+            assertTrue(StringUtil.utf8Length(sql) <= maxBytes);
+        }
+    }
+
+    @Test
+    public void testOversizedRowStandsAlone() {
+        int maxBytes = StringUtil.utf8Length(HEADER) + 1;
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(3, "name"), GraphWriteModeEnum.INSERT, maxBytes)
+                .getSqlList();
+        assertEquals(3, sqlList.size());
+        assertEquals(ids(3), rowIds(sqlList));
+    }
+
+    @Test
+    public void testRowCap() {
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(2500, "n"), GraphWriteModeEnum.INSERT, Integer.MAX_VALUE)
+                .getSqlList();
+        assertEquals(3, sqlList.size());
+        assertEquals(1000, rowIds(sqlList.subList(0, 1)).size());
+        assertEquals(1000, rowIds(sqlList.subList(1, 2)).size());
+        assertEquals(500, rowIds(sqlList.subList(2, 3)).size());
+    }
+
+    @Test
+    public void testInsertIfNotExistsHeader() {
+        List<String> sqlList = new NebulaBatchVertexUpdate<>(persons(2, "name"), GraphWriteModeEnum.INSERT_IF_NOT_EXISTS)
+                .getSqlList();
+        assertEquals(1, sqlList.size());
+        assertTrue(sqlList.get(0).startsWith("INSERT VERTEX IF NOT EXISTS person("));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidBudget() {
+        new NebulaBatchVertexUpdate<>(persons(1, "name"), GraphWriteModeEnum.INSERT, 0);
+    }
+
+    private static String singleRowSql(String name) {
+        return new NebulaBatchVertexUpdate<>(persons(1, name), GraphWriteModeEnum.INSERT).getSqlList().get(0);
+    }
+
+    static List<GraphVertexEntity<Person>> persons(int count, String name) {
+        DefaultGraphVertexEntityFactory factory = new DefaultGraphVertexEntityFactory();
+        List<GraphVertexEntity<Person>> entities = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(factory.buildGraphVertexEntity(new Person("P" + i, name)));
+        }
+        return entities;
+    }
+
+    static List<String> ids(int count) {
+        List<String> ids = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("P" + i);
+        }
+        return ids;
+    }
+
+    static List<String> rowIds(List<String> sqlList) {
+        List<String> ids = Lists.newArrayList();
+        for (String sql : sqlList) {
+            Matcher matcher = ROW_ID.matcher(sql);
+            while (matcher.find()) {
+                ids.add(matcher.group(1));
+            }
+        }
+        return ids;
+    }
+
+    @GraphVertex(value = "person", keyPolicy = GraphKeyPolicy.string_key)
+    public static class Person {
+
+        @GraphProperty(value = "person_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_VERTEX_ID)
+        private String id;
+
+        @GraphProperty(value = "name", dataType = GraphDataTypeEnum.STRING)
+        private String name;
+
+        public Person(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Description  NebulaConcurrentBatchExecutorTest is used for
+ * 并发执行时分批的依赖层级划分
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:40
+ * @version 1.0.0
+ */
+public class NebulaConcurrentBatchExecutorTest {
+
+    private static final String INSERT_VERTEX = "INSERT VERTEX person(name) VALUES \"P1\":(\"a\")";
+
+    private static final String UPSERT_VERTEX = "UPSERT VERTEX ON person \"P1\" SET name = \"a\"";
+
+    private static final String INSERT_EDGE = "INSERT EDGE knows(weight) VALUES \"P1\"->\"P2\":(1)";
+
+    private static final String UPSERT_EDGE = "upsert edge on knows \"P1\"->\"P2\" SET weight = 1";
+
+    private static final String DELETE_VERTEX = "DELETE VERTEX \"P1\"";
+
+    private static final String DELETE_EDGE = "DELETE EDGE knows \"P1\"->\"P2\"";
+
+    private static final String OTHER = "UPDATE CONFIGS storage:wal_ttl=3600";
+
+    @Test
+    public void testStatementLevel() {
+        int vertex = NebulaConcurrentBatchExecutor.statementLevel(INSERT_VERTEX);
+        int edge = NebulaConcurrentBatchExecutor.statementLevel(INSERT_EDGE);
+        int other = NebulaConcurrentBatchExecutor.statementLevel(OTHER);
+        assertEquals(vertex, NebulaConcurrentBatchExecutor.statementLevel(UPSERT_VERTEX));
+        assertEquals(vertex, NebulaConcurrentBatchExecutor.statementLevel("  " + DELETE_VERTEX));
+        assertEquals(edge, NebulaConcurrentBatchExecutor.statementLevel(UPSERT_EDGE));
+        assertEquals(edge, NebulaConcurrentBatchExecutor.statementLevel(DELETE_EDGE));
+        assertNotEquals(vertex, edge);
+        assertNotEquals(vertex, other);
+        assertNotEquals(edge, other);
+    }
+
+    @Test
+    public void testChunkLevel() {
+        List<String> sqlList = Lists.newArrayList(INSERT_VERTEX, UPSERT_VERTEX, INSERT_EDGE, UPSERT_EDGE);
+        int vertexChunk = NebulaConcurrentBatchExecutor.chunkLevel(sqlList, chunk(0, 2));
+        int edgeChunk = NebulaConcurrentBatchExecutor.chunkLevel(sqlList, chunk(2, 4));
+        int mixedChunk = NebulaConcurrentBatchExecutor.chunkLevel(sqlList, chunk(1, 3));
+        assertEquals(NebulaConcurrentBatchExecutor.statementLevel(INSERT_VERTEX), vertexChunk);
+        assertEquals(NebulaConcurrentBatchExecutor.statementLevel(INSERT_EDGE), edgeChunk);
+        assertNotEquals(vertexChunk, mixedChunk);
+        assertNotEquals(edgeChunk, mixedChunk);
+    }
+
+    private static BatchChunk chunk(int fromIndex, int toIndex) {
+        return new BatchChunk(0, fromIndex, toIndex, 0, Lists.newArrayList());
+    }
+
+}
@@ -0,0 +1,66 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import com.google.common.collect.Lists;
+import com.vesoft.nebula.ErrorCode;
+import io.github.anyzm.graph.ocean.domain.impl.BatchUpdateResult;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import io.github.anyzm.graph.ocean.session.NebulaPoolSessionManager;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Description  NebulaSerialBatchExecutorTest is used for
+ * 只有声明可以重复执行的语句才按重试策略重试
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:30
+ * @version 1.0.0
+ */
+public class NebulaSerialBatchExecutorTest {
+
+    private static final List<String> SQL_LIST = Lists.newArrayList("DELETE VERTEX \"P1\"", "DELETE VERTEX \"P2\"");
+
+    @Test
+    public void testRetriesIdempotentStatements() {
+        FailingExecutor executor = new FailingExecutor();
+        BatchUpdateResult result = executor.execute(null, "s", SQL_LIST, new FixedBatchChunkPolicy(), false, true);
+        assertEquals(ExponentialBackoffRetryPolicy.DEFAULT_MAX_ATTEMPTS, executor.attempts);
+        assertNotNull(result.getFirstFailure());
+    }
+
+    @Test
+    public void testRawStatementsNotRetried() {
+        FailingExecutor executor = new FailingExecutor();
+        BatchUpdateResult result = executor.execute(null, "s", SQL_LIST, new FixedBatchChunkPolicy());
+        assertEquals(1, executor.attempts);
+        assertNotNull(result.getFirstFailure());
+    }
+
+    /**
+     * 每次提交都以E_RPC_FAILURE失败
+     */
+    private static class FailingExecutor extends NebulaSerialBatchExecutor {
+
+        private int attempts;
+
+        FailingExecutor() {
+            setRetryPolicy(new ExponentialBackoffRetryPolicy(ExponentialBackoffRetryPolicy.DEFAULT_MAX_ATTEMPTS, 0, 0));
+        }
+
+        @Override
+        protected void executeChunkSql(NebulaPoolSessionManager sessionManager, String space, List<String> statements) {
+            this.attempts++;
+            throw new NebulaExecuteException(ErrorCode.E_RPC_FAILURE.getValue(), "rpc failure");
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.engine;
+
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.annotation.GraphVertex;
+import io.github.anyzm.graph.ocean.common.GraphHelper;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexType;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Description  NebulaStatementEncoderTest is used for
+ * NebulaStatementEncoder与原String.format生成方式的输出一致性
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:50
+ * @version 1.0.0
+ */
+public class NebulaStatementEncoderTest {
+
+    private static final String VERTEX_UPSET_SQL = "UPSERT VERTEX %s SET %s";
+
+    @Test
+    public void testSameOutputAsStringFormat() {
+        DefaultGraphVertexEntityFactory factory = new DefaultGraphVertexEntityFactory();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            GraphVertexEntity<Account> entity = factory.buildGraphVertexEntity(new Account("A" + i, "name" + i, i));
+            builder.setLength(0);
+            assertEquals(formatUpsertVertex(entity), NebulaStatementEncoder.encodeUpsertVertex(builder, entity).toString());
+        }
+    }
+
+    /**
+     * 引入NebulaStatementEncoder之前NebulaBatchVertexUpdate生成UPSERT VERTEX语句的方式
+     */
+    private static String formatUpsertVertex(GraphVertexEntity<?> graphVertexEntity) {
+        GraphVertexType<?> graphVertexType = graphVertexEntity.getGraphVertexType();
+        Set<Map.Entry<String, Object>> entries = graphVertexEntity.getProps().entrySet();
+        String queryId = GraphHelper.getQueryId(graphVertexType, graphVertexEntity.getId());
+        StringBuilder builder = new StringBuilder();
+        Map<String, GraphDataTypeEnum> dataTypeMap = graphVertexType.getDataTypeMap();
+        for (Map.Entry<String, Object> entry : entries) {
+            GraphDataTypeEnum graphDataTypeEnum = dataTypeMap.get(entry.getKey());
+            if (GraphDataTypeEnum.STRING.equals(graphDataTypeEnum)) {
+                builder.append(',').append(graphVertexType.getVertexName()).append('.')
+                        .append(entry.getKey()).append("=\"").append(entry.getValue()).append("\"");
+            } else {
+                builder.append(',').append(graphVertexType.getVertexName()).append('.')
+                        .append(entry.getKey()).append("=").append(entry.getValue());
+            }
+        }
+        String sqlSet = builder.delete(0, 1).toString();
+        return String.format(VERTEX_UPSET_SQL, queryId, sqlSet);
+    }
+
+    @GraphVertex(value = "account", keyPolicy = GraphKeyPolicy.string_key)
+    public static class Account {
+
+        @GraphProperty(value = "account_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_VERTEX_ID)
+        private String id;
+
+        @GraphProperty(value = "name", dataType = GraphDataTypeEnum.STRING)
+        private String name;
+
+        @GraphProperty(value = "age", dataType = GraphDataTypeEnum.INT)
+        private Integer age;
+
+        public Account(String id, String name, Integer age) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+}
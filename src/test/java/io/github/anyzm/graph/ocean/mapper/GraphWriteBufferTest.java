@@ -0,0 +1,210 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.mapper;
+
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.annotation.GraphEdge;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.annotation.GraphVertex;
+import io.github.anyzm.graph.ocean.dao.GraphMapper;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import io.github.anyzm.graph.ocean.exception.NebulaException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Description  GraphWriteBufferTest is used for
+ * 写缓冲的合并、刷新触发、顶点先于边写入以及未写入数量上限
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 17:45
+ * @version 1.0.0
+ */
+public class GraphWriteBufferTest {
+
+    /**
+     * 记录写入的mapper，gate打开前写入会阻塞
+     */
+    private final List<String> writes = Collections.synchronizedList(Lists.newArrayList());
+
+    private final AtomicInteger flushCalls = new AtomicInteger();
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private GraphWriteBuffer buffer;
+
+    private GraphMapper recordingMapper() {
+        return (GraphMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{GraphMapper.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("saveVertexEntities") || method.getName().equals("saveEdgeEntities")) {
+                        this.gate.await();
+                        this.flushCalls.incrementAndGet();
+                        for (Object entity : (List) args[0]) {
+                            this.writes.add(entity.toString());
+                        }
+                        return ((List) args[0]).size();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @After
+    public void tearDown() {
+        this.gate.countDown();
+        if (this.buffer != null) {
+            this.buffer.close();
+        }
+    }
+
+    @Test
+    public void testLastWriteWinsPerKey() throws Exception {
+        this.gate.countDown();
+        this.buffer = new GraphWriteBuffer(recordingMapper(), 100, 60000);
+        CompletableFuture<Void> first = this.buffer.addVertex(new Node("N1", "a"));
+        CompletableFuture<Void> second = this.buffer.addVertex(new Node("N1", "b"));
+        assertSame(first, second);
+        assertEquals(1, this.buffer.getPendingCount());
+        this.buffer.flush();
+        first.get(1, TimeUnit.SECONDS);
+        assertEquals(Lists.newArrayList("N1=b"), this.writes);
+        assertEquals(0, this.buffer.getPendingCount());
+    }
+
+    @Test
+    public void testVerticesBeforeEdges() throws Exception {
+        this.gate.countDown();
+        this.buffer = new GraphWriteBuffer(recordingMapper(), 100, 60000);
+        this.buffer.addEdge(new Link("N1", "N2"));
+        this.buffer.addVertex(new Node("N1", "a"));
+        this.buffer.flush();
+        assertEquals(Lists.newArrayList("N1=a", "N1->N2"), this.writes);
+    }
+
+    @Test
+    public void testEdgeKeyKeepsEndpointsApart() throws Exception {
+        this.gate.countDown();
+        this.buffer = new GraphWriteBuffer(recordingMapper(), 100, 60000);
+        // 拼接为字符串时两条边的key都是N1->N2->N3
+        this.buffer.addEdge(new Link("N1->N2", "N3"));
+        this.buffer.addEdge(new Link("N1", "N2->N3"));
+        assertEquals(2, this.buffer.getPendingCount());
+        this.buffer.flush();
+        assertEquals(Lists.newArrayList("N1->N2->N3", "N1->N2->N3"), this.writes);
+    }
+
+    @Test
+    public void testReachingFlushSizeSchedulesOneFlush() throws Exception {
+        this.buffer = new GraphWriteBuffer(recordingMapper(), 2, 60000, null, 1000, 0);
+        List<CompletableFuture<Void>> futures = Lists.newArrayList();
+        // 第一次刷新阻塞在gate上，期间超过flushSize的提交只合并出一次待执行的刷新
+        for (int i = 0; i < 10; i++) {
+            futures.add(this.buffer.addVertex(new Node("N" + i, "a")));
+        }
+        this.gate.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(10, this.writes.size());
+        assertTrue("flushCalls=" + this.flushCalls.get(), this.flushCalls.get() <= 2);
+    }
+
+    @Test
+    public void testFullBufferFailsAfterWait() throws Exception {
+        this.buffer = new GraphWriteBuffer(recordingMapper(), 2, 60000, null, 2, 50);
+        List<CompletableFuture<Void>> accepted = Lists.newArrayList();
+        // 前两个被刷新线程取走并阻塞，再两个占满缓冲
+        for (int i = 0; i < 4; i++) {
+            accepted.add(this.buffer.addVertex(new Node("N" + i, "a")));
+        }
+        waitUntilPending(2);
+        long start = System.nanoTime();
+        CompletableFuture<Void> rejected = this.buffer.addVertex(new Node("N9", "a"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        try {
+            rejected.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NebulaException);
+            assertEquals(ErrorEnum.WRITE_BUFFER_FULL.getResponseMessage(), e.getCause().getMessage());
+        }
+        // 覆盖已在缓冲中的数据不受上限限制
+        assertFalse(this.buffer.addVertex(new Node("N3", "b")).isDone());
+        this.gate.countDown();
+        CompletableFuture.allOf(accepted.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        assertFalse(this.writes.contains("N9=a"));
+        assertTrue(this.writes.contains("N3=b"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMaxPendingBelowFlushSize() {
+        new GraphWriteBuffer(recordingMapper(), 10, 60000, null, 5, 0);
+    }
+
+    private void waitUntilPending(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.buffer.getPendingCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, this.buffer.getPendingCount());
+    }
+
+    @GraphVertex(value = "node", keyPolicy = GraphKeyPolicy.string_key)
+    public static class Node {
+
+        @GraphProperty(value = "node_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_VERTEX_ID)
+        private String id;
+
+        @GraphProperty(value = "name", dataType = GraphDataTypeEnum.STRING)
+        private String name;
+
+        public Node(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return this.id + "=" + this.name;
+        }
+    }
+
+    @GraphEdge(value = "link", srcVertex = Node.class, dstVertex = Node.class)
+    public static class Link {
+
+        @GraphProperty(value = "src_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_EDGE_SRC_ID)
+        private String srcId;
+
+        @GraphProperty(value = "dst_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_EDGE_DST_ID)
+        private String dstId;
+
+        public Link(String srcId, String dstId) {
+            this.srcId = srcId;
+            this.dstId = dstId;
+        }
+
+        @Override
+        public String toString() {
+            return this.srcId + "->" + this.dstId;
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.processor;
+
+import com.google.common.collect.Lists;
+import com.vesoft.nebula.DataSet;
+import com.vesoft.nebula.ErrorCode;
+import com.vesoft.nebula.NullType;
+import com.vesoft.nebula.Row;
+import com.vesoft.nebula.Value;
+import com.vesoft.nebula.client.graph.data.ResultSet;
+import com.vesoft.nebula.graph.ExecutionResponse;
+import io.github.anyzm.graph.ocean.annotation.GraphVertex;
+import io.github.anyzm.graph.ocean.common.GraphEntityMappings;
+import io.github.anyzm.graph.ocean.dao.GraphEntityMapping;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultRowMapper;
+import io.github.anyzm.graph.ocean.domain.GraphPropertyDescriptor;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.domain.impl.QueryResult;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  GraphEntityProcessorTest is used for
+ * 用注解处理器编译示例实体，生成的XXX_GraphMapping与反射方式收集的属性、解析的实体一致
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:10
+ * @version 1.0.0
+ */
+public class GraphEntityProcessorTest {
+
+    private static final String SAMPLE_CLASS = "sample.Member";
+
+    private static final String SAMPLE_SOURCE = "package sample;\n"
+            + "\n"
+            + "import io.github.anyzm.graph.ocean.annotation.GraphProperty;\n"
+            + "import io.github.anyzm.graph.ocean.annotation.GraphVertex;\n"
+            + "import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;\n"
+            + "import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;\n"
+            + "import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;\n"
+            + "\n"
+            + "@GraphVertex(value = \"member\", keyPolicy = GraphKeyPolicy.string_key)\n"
+            + "public class Member extends Base {\n"
+            + "    @GraphProperty(value = \"member_id\", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_VERTEX_ID)\n"
+            + "    private String id;\n"
+            + "    @GraphProperty(value = \"name\", dataType = GraphDataTypeEnum.STRING)\n"
+            + "    private String name;\n"
+            + "    @GraphProperty(value = \"age\", dataType = GraphDataTypeEnum.INT)\n"
+            + "    private Long age;\n"
+            + "    private Double score;\n"
+            + "    private static String ignored;\n"
+            + "}\n"
+            + "\n"
+            + "class Base {\n"
+            + "    @GraphProperty(value = \"city\", dataType = GraphDataTypeEnum.STRING)\n"
+            + "    protected String city;\n"
+            + "}\n";
+
+    private static Path workDir;
+
+    /**
+     * 注解处理器编译的类
+     */
+    private static Class<?> generatedType;
+
+    /**
+     * -proc:none编译的类，走反射
+     */
+    private static Class<?> reflectiveType;
+
+    private static URLClassLoader generatedLoader;
+
+    private static URLClassLoader reflectiveLoader;
+
+    @BeforeClass
+    public static void compileSample() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        workDir = Files.createTempDirectory("graph-entity-processor");
+        Path source = workDir.resolve("src/sample/Member.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, SAMPLE_SOURCE.getBytes(StandardCharsets.UTF_8));
+        Path generatedOut = Files.createDirectories(workDir.resolve("generated"));
+        Path reflectiveOut = Files.createDirectories(workDir.resolve("reflective"));
+        compile(compiler, source, generatedOut, true);
+        compile(compiler, source, reflectiveOut, false);
+        assertTrue(Files.exists(generatedOut.resolve("sample/Member_GraphMapping.class")));
+        assertFalse(Files.exists(reflectiveOut.resolve("sample/Member_GraphMapping.class")));
+        ClassLoader parent = GraphEntityProcessorTest.class.getClassLoader();
+        generatedLoader = new URLClassLoader(new URL[]{generatedOut.toUri().toURL()}, parent);
+        reflectiveLoader = new URLClassLoader(new URL[]{reflectiveOut.toUri().toURL()}, parent);
+        generatedType = Class.forName(SAMPLE_CLASS, true, generatedLoader);
+        reflectiveType = Class.forName(SAMPLE_CLASS, true, reflectiveLoader);
+    }
+
+    @AfterClass
+    public static void cleanUp() throws IOException {
+        if (generatedLoader != null) {
+            generatedLoader.close();
+        }
+        if (reflectiveLoader != null) {
+            reflectiveLoader.close();
+        }
+        if (workDir != null) {
+            try (Stream<Path> paths = Files.walk(workDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void testMappingGenerated() {
+        GraphEntityMapping<?> mapping = GraphEntityMappings.find(generatedType);
+        assertNotNull(mapping);
+        assertSame(generatedType, mapping.getType());
+        assertEquals("sample.Member_GraphMapping", GraphEntityMappings.mappingClassName(generatedType));
+        assertNull(GraphEntityMappings.find(reflectiveType));
+        assertTrue(GraphEntityMappings.getRowMapper(reflectiveType) instanceof DefaultRowMapper);
+        assertTrue(generatedType.isAnnotationPresent(GraphVertex.class));
+    }
+
+    @Test
+    public void testPropertyDescriptorsMatchReflection() {
+        List<GraphPropertyDescriptor> descriptors = GraphEntityMappings.find(generatedType).getPropertyDescriptors();
+        List<String> properties = Lists.newArrayList();
+        for (GraphPropertyDescriptor descriptor : descriptors) {
+            properties.add(descriptor.getProperty());
+            Field field = field(reflectiveType, descriptor.getFieldName());
+            GraphPropertyDescriptor expected = GraphPropertyDescriptor.of(field);
+            assertEquals(expected.getProperty(), descriptor.getProperty());
+            assertEquals(expected.getDataType(), descriptor.getDataType());
+            assertEquals(expected.isRequired(), descriptor.isRequired());
+            assertEquals(expected.getPropertyTypeEnum(), descriptor.getPropertyTypeEnum());
+            assertEquals(expected.getFormatter(), descriptor.getFormatter());
+        }
+        assertEquals(Lists.newArrayList("member_id", "name", "age", "city"), properties);
+    }
+
+    @Test
+    public void testCollectPropertiesMatchesReflection() throws Exception {
+        DefaultGraphVertexEntityFactory factory = new DefaultGraphVertexEntityFactory();
+        GraphVertexEntity<?> generated = factory.buildGraphVertexEntity(member(generatedType));
+        GraphVertexEntity<?> reflective = factory.buildGraphVertexEntity(member(reflectiveType));
+        assertEquals("M1", generated.getId());
+        assertEquals(reflective.getId(), generated.getId());
+        assertEquals(reflective.getProps(), generated.getProps());
+    }
+
+    @Test
+    public void testRowMapperMatchesReflection() throws Exception {
+        List<Row> rows = Lists.newArrayList(
+                new Row(Lists.newArrayList(string("M1"), string("tom"), Value.iVal(18), Value.fVal(0.5), string("bj"))),
+                new Row(Lists.newArrayList(string("M2"), Value.nVal(NullType.__NULL__), Value.iVal(20),
+                        Value.nVal(NullType.__NULL__), string("sh"))));
+        QueryResult queryResult = new QueryResult(resultSet(
+                Lists.newArrayList("member_id", "name", "age", "score", "city"), rows));
+        List<?> generated = queryResult.getEntities(null, generatedType);
+        List<?> reflective = queryResult.getEntities(null, reflectiveType);
+        assertEquals(2, generated.size());
+        for (int i = 0; i < generated.size(); i++) {
+            for (String fieldName : Lists.newArrayList("id", "name", "age", "score", "city")) {
+                assertEquals(fieldName, value(reflective.get(i), fieldName), value(generated.get(i), fieldName));
+            }
+        }
+        assertEquals("tom", value(generated.get(0), "name"));
+        assertEquals(0.5, value(generated.get(0), "score"));
+        assertNull(value(generated.get(1), "name"));
+    }
+
+    private static void compile(JavaCompiler compiler, Path source, Path output, boolean process) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Lists.newArrayList("-d", output.toString(), "-classpath", classpath());
+            if (!process) {
+                options.add("-proc:none");
+            }
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(source.toFile()));
+            if (process) {
+                task.setProcessors(Lists.newArrayList(new GraphEntityProcessor()));
+            }
+            assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        }
+    }
+
+    /**
+     * surefire可能只把启动jar放在java.class.path中，编译示例类需要的目录和jar显式加上
+     */
+    private static String classpath() {
+        List<String> entries = Lists.newArrayList();
+        for (Class<?> clazz : Lists.newArrayList(GraphVertex.class, ResultSet.class, Lists.class)) {
+            entries.add(new File(clazz.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath());
+        }
+        entries.add(System.getProperty("java.class.path"));
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static Object member(Class<?> type) throws Exception {
+        Object member = type.getDeclaredConstructor().newInstance();
+        field(type, "id").set(member, "M1");
+        field(type, "name").set(member, "tom");
+        field(type, "age").set(member, 18L);
+        field(type, "score").set(member, 0.5);
+        field(type, "city").set(member, "bj");
+        return member;
+    }
+
+    private static Object value(Object obj, String fieldName) throws IllegalAccessException {
+        return field(obj.getClass(), fieldName).get(obj);
+    }
+
+    private static Field field(Class<?> type, String fieldName) {
+        for (Class<?> clazz = type; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // 在父类中查找
+            }
+        }
+        throw new IllegalArgumentException(fieldName);
+    }
+
+    private static Value string(String value) {
+        return Value.sVal(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResultSet resultSet(List<String> columnNames, List<Row> rows) {
+        List<byte[]> columns = Lists.newArrayListWithExpectedSize(columnNames.size());
+        for (String columnName : columnNames) {
+            columns.add(columnName.getBytes(StandardCharsets.UTF_8));
+        }
+        ExecutionResponse response = new ExecutionResponse();
+        response.setError_code(ErrorCode.SUCCEEDED);
+        response.setData(new DataSet(columns, rows));
+        response.setSpace_name("test".getBytes(StandardCharsets.UTF_8));
+        return new ResultSet(response, 0);
+    }
+
+}
@@ -0,0 +1,114 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Description  GraphHostStatsTest is used for
+ * graphd健康统计的EWMA、连续失败隔离与恢复，以及NebulaHostSelector按隔离状态和得分选择graphd
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 20:50
+ * @version 1.0.0
+ */
+public class GraphHostStatsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testLatencyEwma() {
+        GraphHostStats stats = new GraphHostStats("h1:9669");
+        assertFalse(stats.record(100, true, 3, 1000));
+        // 第一次成功直接取耗时
+        assertEquals(100, stats.getLatencyEwma(), DELTA);
+        stats.record(200, true, 3, 1000);
+        assertEquals(0.2 * 200 + 0.8 * 100, stats.getLatencyEwma(), DELTA);
+        assertEquals(0, stats.getErrorRate(), DELTA);
+        assertEquals(stats.getLatencyEwma(), stats.getScore(), DELTA);
+        assertEquals(2, stats.getRequestCount());
+        assertEquals(0, stats.getErrorCount());
+    }
+
+    @Test
+    public void testFirstSuccessAfterFailuresSeedsLatency() {
+        GraphHostStats stats = new GraphHostStats("h1:9669");
+        stats.record(5000, false, 3, 1000);
+        stats.record(50, true, 3, 1000);
+        // 失败的耗时不计入平均耗时
+        assertEquals(50, stats.getLatencyEwma(), DELTA);
+    }
+
+    @Test
+    public void testErrorRateRaisesScore() {
+        GraphHostStats stats = new GraphHostStats("h1:9669");
+        stats.record(100, true, 3, 1000);
+        stats.record(100, false, 3, 1000);
+        assertEquals(0.2, stats.getErrorRate(), DELTA);
+        assertEquals(100 * (1 + 0.2 * 10), stats.getScore(), DELTA);
+        assertEquals(1, stats.getErrorCount());
+        assertEquals(1, stats.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testQuarantineAfterConsecutiveFailures() {
+        GraphHostStats stats = new GraphHostStats("h1:9669");
+        assertFalse(stats.record(10, false, 3, 60000));
+        assertFalse(stats.record(10, false, 3, 60000));
+        assertFalse(stats.isQuarantined());
+        assertTrue(stats.record(10, false, 3, 60000));
+        assertTrue(stats.isQuarantined());
+        assertEquals(1, stats.getQuarantineCount());
+        // 隔离期间再失败不重复计数
+        assertFalse(stats.record(10, false, 3, 60000));
+        assertEquals(1, stats.getQuarantineCount());
+        // 成功一次恢复
+        stats.record(10, true, 3, 60000);
+        assertFalse(stats.isQuarantined());
+        assertEquals(0, stats.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testRequarantineAfterExpiry() throws InterruptedException {
+        GraphHostStats stats = new GraphHostStats("h1:9669");
+        stats.record(10, false, 2, 20);
+        assertTrue(stats.record(10, false, 2, 20));
+        Thread.sleep(40);
+        assertFalse(stats.isQuarantined());
+        // 隔离到期后再失败一次立即重新隔离
+        assertTrue(stats.record(10, false, 2, 20));
+        assertTrue(stats.isQuarantined());
+        assertEquals(2, stats.getQuarantineCount());
+    }
+
+    @Test
+    public void testSelectorAvoidsQuarantinedAndSlowHosts() {
+        NebulaHostSelector selector = new NebulaHostSelector(2, 60000, 2.0);
+        selector.record("fast:9669", 10, true);
+        selector.record("slow:9669", 50, true);
+        selector.record("broken:9669", 10, false);
+        selector.record("broken:9669", 10, false);
+        selector.record(null, 10, false);
+        assertTrue(selector.isPreferred("fast:9669"));
+        assertFalse(selector.isPreferred("slow:9669"));
+        assertTrue(selector.isQuarantined("broken:9669"));
+        assertFalse(selector.isPreferred("broken:9669"));
+        // 没有统计数据的graphd优先被尝试
+        assertEquals(0, selector.getScore("new:9669"), DELTA);
+        assertTrue(selector.isPreferred("new:9669"));
+        assertEquals(3, selector.getHostStats().size());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidSelector() {
+        new NebulaHostSelector(0, 1000, 2.0);
+    }
+
+}
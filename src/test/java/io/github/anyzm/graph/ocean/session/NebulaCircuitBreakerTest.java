@@ -0,0 +1,167 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import io.github.anyzm.graph.ocean.enums.CircuitBreakerStateEnum;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.enums.GraphOperationTypeEnum;
+import io.github.anyzm.graph.ocean.exception.NebulaExecuteException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Description  NebulaCircuitBreakerTest is used for
+ * 按(调用类型,图空间)熔断的状态转换，以及按调用类型限制并发的NebulaBulkhead
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:20
+ * @version 1.0.0
+ */
+public class NebulaCircuitBreakerTest {
+
+    private static final GraphOperationTypeEnum QUERY = GraphOperationTypeEnum.QUERY;
+
+    private static final GraphOperationTypeEnum UPDATE = GraphOperationTypeEnum.UPDATE;
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        NebulaCircuitBreaker breaker = new NebulaCircuitBreaker(0.5, 10, 4, 60000, 1);
+        for (int i = 0; i < 3; i++) {
+            breaker.acquirePermission(QUERY, "s1");
+            breaker.record(QUERY, "s1", false);
+        }
+        assertEquals(CircuitBreakerStateEnum.CLOSED, breaker.getState(QUERY, "s1"));
+        breaker.record(QUERY, "s1", false);
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getState(QUERY, "s1"));
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        NebulaCircuitBreaker breaker = new NebulaCircuitBreaker(0.5, 4, 4, 60000, 1);
+        breaker.record(QUERY, "s1", true);
+        breaker.record(QUERY, "s1", true);
+        breaker.record(QUERY, "s1", false);
+        breaker.record(QUERY, "s1", true);
+        assertEquals(CircuitBreakerStateEnum.CLOSED, breaker.getState(QUERY, "s1"));
+        // 最早的成功滑出窗口后失败过半
+        breaker.record(QUERY, "s1", false);
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getState(QUERY, "s1"));
+        assertCircuitOpen(breaker, QUERY, "s1");
+    }
+
+    @Test
+    public void testCircuitsIsolatedByTypeAndSpace() {
+        NebulaCircuitBreaker breaker = new NebulaCircuitBreaker(0.5, 2, 2, 60000, 1);
+        breaker.record(QUERY, "s1", false);
+        breaker.record(QUERY, "s1", false);
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getState(QUERY, "s1"));
+        assertEquals(CircuitBreakerStateEnum.CLOSED, breaker.getState(QUERY, "s2"));
+        assertEquals(CircuitBreakerStateEnum.CLOSED, breaker.getState(UPDATE, "s1"));
+        breaker.acquirePermission(QUERY, "s2");
+        breaker.acquirePermission(UPDATE, "s1");
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getStates().get("QUERY:s1"));
+    }
+
+    @Test
+    public void testHalfOpenProbeCloses() throws InterruptedException {
+        NebulaCircuitBreaker breaker = openBreaker();
+        Thread.sleep(40);
+        breaker.acquirePermission(QUERY, "s1");
+        assertEquals(CircuitBreakerStateEnum.HALF_OPEN, breaker.getState(QUERY, "s1"));
+        // 半开状态只放行halfOpenCalls个探测调用
+        assertCircuitOpen(breaker, QUERY, "s1");
+        breaker.record(QUERY, "s1", true);
+        assertEquals(CircuitBreakerStateEnum.CLOSED, breaker.getState(QUERY, "s1"));
+        breaker.acquirePermission(QUERY, "s1");
+    }
+
+    @Test
+    public void testHalfOpenProbeFailureReopens() throws InterruptedException {
+        NebulaCircuitBreaker breaker = openBreaker();
+        Thread.sleep(40);
+        breaker.acquirePermission(QUERY, "s1");
+        breaker.record(QUERY, "s1", false);
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getState(QUERY, "s1"));
+        assertCircuitOpen(breaker, QUERY, "s1");
+    }
+
+    @Test
+    public void testReleasedProbeFreesHalfOpenSlot() throws InterruptedException {
+        NebulaCircuitBreaker breaker = openBreaker();
+        Thread.sleep(40);
+        breaker.acquirePermission(QUERY, "s1");
+        breaker.releasePermission(QUERY, "s1");
+        breaker.acquirePermission(QUERY, "s1");
+        assertEquals(CircuitBreakerStateEnum.HALF_OPEN, breaker.getState(QUERY, "s1"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidThreshold() {
+        new NebulaCircuitBreaker(0, 10, 5, 1000, 1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidMinimumCalls() {
+        new NebulaCircuitBreaker(0.5, 10, 11, 1000, 1);
+    }
+
+    @Test
+    public void testBulkheadLimitsPerType() {
+        NebulaBulkhead bulkhead = new NebulaBulkhead(2, 0, 0);
+        assertEquals(2, bulkhead.getLimit(QUERY));
+        assertEquals(-1, bulkhead.getLimit(UPDATE));
+        bulkhead.acquire(QUERY);
+        bulkhead.acquire(QUERY);
+        assertEquals(2, bulkhead.getActiveCount(QUERY));
+        try {
+            bulkhead.acquire(QUERY);
+            fail("bulkhead should be full");
+        } catch (NebulaExecuteException e) {
+            assertEquals(ErrorEnum.BULKHEAD_FULL.getResponseCode(), e.getCode());
+        }
+        // 不限制的类型不受影响
+        bulkhead.acquire(UPDATE);
+        assertEquals(0, bulkhead.getActiveCount(UPDATE));
+        bulkhead.release(QUERY);
+        assertEquals(1, bulkhead.getActiveCount(QUERY));
+        bulkhead.acquire(QUERY);
+    }
+
+    @Test
+    public void testBulkheadWaitsBeforeFailing() {
+        NebulaBulkhead bulkhead = new NebulaBulkhead(1, 1, 30);
+        bulkhead.acquire(UPDATE);
+        long start = System.nanoTime();
+        try {
+            bulkhead.acquire(UPDATE);
+            fail("bulkhead should be full");
+        } catch (NebulaExecuteException e) {
+            assertEquals(ErrorEnum.BULKHEAD_FULL.getResponseCode(), e.getCode());
+        }
+        assertTrue(System.nanoTime() - start >= 25_000_000L);
+    }
+
+    private static NebulaCircuitBreaker openBreaker() {
+        NebulaCircuitBreaker breaker = new NebulaCircuitBreaker(0.5, 2, 2, 20, 1);
+        breaker.record(QUERY, "s1", false);
+        breaker.record(QUERY, "s1", false);
+        assertEquals(CircuitBreakerStateEnum.OPEN, breaker.getState(QUERY, "s1"));
+        return breaker;
+    }
+
+    private static void assertCircuitOpen(NebulaCircuitBreaker breaker, GraphOperationTypeEnum type, String space) {
+        try {
+            breaker.acquirePermission(type, space);
+            fail("circuit should be open");
+        } catch (NebulaExecuteException e) {
+            assertEquals(ErrorEnum.CIRCUIT_OPEN.getResponseCode(), e.getCode());
+        }
+    }
+
+}
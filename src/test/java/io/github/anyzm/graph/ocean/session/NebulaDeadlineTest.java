@@ -0,0 +1,107 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import io.github.anyzm.graph.ocean.common.utils.VirtualThreads;
+import io.github.anyzm.graph.ocean.enums.ErrorEnum;
+import io.github.anyzm.graph.ocean.exception.NebulaTimeoutException;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Description  NebulaDeadlineTest is used for
+ * 截止时间的剩余时间、过期判断和超时异常，以及截止时间线程池的线程数上限
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 21:05
+ * @version 1.0.0
+ */
+public class NebulaDeadlineTest {
+
+    @Test
+    public void testNoDeadline() {
+        assertSame(NebulaDeadline.NONE, NebulaDeadline.after(0));
+        assertSame(NebulaDeadline.NONE, NebulaDeadline.after(-1));
+        assertFalse(NebulaDeadline.NONE.isBounded());
+        assertFalse(NebulaDeadline.NONE.isExpired());
+        assertEquals(Long.MAX_VALUE, NebulaDeadline.NONE.remainingMillis());
+        NebulaDeadline.NONE.check(NebulaDeadline.STAGE_EXECUTE);
+    }
+
+    @Test
+    public void testRemainingMillis() {
+        NebulaDeadline deadline = NebulaDeadline.after(60000);
+        assertTrue(deadline.isBounded());
+        assertFalse(deadline.isExpired());
+        assertEquals(60000, deadline.getTimeoutMillis());
+        long remaining = deadline.remainingMillis();
+        assertTrue(String.valueOf(remaining), remaining > 59000 && remaining <= 60000);
+        deadline.check(NebulaDeadline.STAGE_BORROW);
+    }
+
+    @Test
+    public void testExpired() throws InterruptedException {
+        NebulaDeadline deadline = NebulaDeadline.after(10);
+        Thread.sleep(30);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remainingMillis());
+        try {
+            deadline.check(NebulaDeadline.STAGE_DECODE);
+            fail("expired deadline should throw");
+        } catch (NebulaTimeoutException e) {
+            assertEquals(NebulaDeadline.STAGE_DECODE, e.getStage());
+            assertEquals(10, e.getTimeoutMillis());
+            assertEquals(ErrorEnum.EXECUTE_TIMEOUT.getResponseCode(), e.getCode());
+        }
+    }
+
+    /**
+     * 截止时间线程池线程全部繁忙时拒绝新任务，由调用方转换为NebulaTimeoutException
+     */
+    @Test
+    public void testBoundedExecutorRejectsWhenSaturated() throws InterruptedException {
+        Assume.assumeFalse(VirtualThreads.isSupported());
+        ExecutorService executor = VirtualThreads.newBoundedExecutor("deadline-test-", 2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            try {
+                executor.execute(() -> {
+                });
+                fail("saturated executor should reject");
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
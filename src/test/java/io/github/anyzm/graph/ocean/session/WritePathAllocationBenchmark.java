@@ -0,0 +1,137 @@
+/* Copyright (c) 2022 com.github.anyzm. All rights reserved.
+ *
+ * This source code is licensed under Apache 2.0 License,
+ * attached with Common Clause Condition 1.0, found in the LICENSES directory.
+ */
+package io.github.anyzm.graph.ocean.session;
+
+import com.google.common.collect.Lists;
+import io.github.anyzm.graph.ocean.annotation.GraphProperty;
+import io.github.anyzm.graph.ocean.annotation.GraphVertex;
+import io.github.anyzm.graph.ocean.dao.GraphBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.dao.impl.DefaultGraphVertexEntityFactory;
+import io.github.anyzm.graph.ocean.domain.impl.BatchChunk;
+import io.github.anyzm.graph.ocean.domain.impl.GraphVertexEntity;
+import io.github.anyzm.graph.ocean.engine.FixedBatchChunkPolicy;
+import io.github.anyzm.graph.ocean.engine.NebulaBatchChunker;
+import io.github.anyzm.graph.ocean.engine.NebulaBatchVertexUpdate;
+import io.github.anyzm.graph.ocean.enums.GraphDataTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphKeyPolicy;
+import io.github.anyzm.graph.ocean.enums.GraphPropertyTypeEnum;
+import io.github.anyzm.graph.ocean.enums.GraphWriteModeEnum;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Description  WritePathAllocationBenchmark is used for
+ * 统计批量写入路径上每个实体分配的字节数：实体构建、语句生成、分批以及session拼接提交的ngql。
+ * 不在默认的单元测试中执行，通过mvn test -Pbenchmark运行
+ *
+ * @author Anyzm
+ * Date  2022/10/18 - 22:10
+ * @version 1.0.0
+ */
+public class WritePathAllocationBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int WARM_UP_ROUNDS = 20;
+
+    private static final int MEASURE_ROUNDS = 50;
+
+    private final DefaultGraphVertexEntityFactory factory = new DefaultGraphVertexEntityFactory();
+
+    private final GraphBatchChunkPolicy chunkPolicy = new FixedBatchChunkPolicy();
+
+    private long sink;
+
+    @Test
+    public void benchmarkUpsertVertex() {
+        run(GraphWriteModeEnum.UPSERT);
+    }
+
+    @Test
+    public void benchmarkInsertVertex() {
+        run(GraphWriteModeEnum.INSERT);
+    }
+
+    private void run(GraphWriteModeEnum writeMode) {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+        List<Account> accounts = Lists.newArrayListWithExpectedSize(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            accounts.add(new Account("A" + i, "name" + i, i));
+        }
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            submit(generate(build(accounts), writeMode));
+        }
+        long threadId = Thread.currentThread().getId();
+        long buildBytes = 0;
+        long generateBytes = 0;
+        long submitBytes = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = allocationBean.getThreadAllocatedBytes(threadId);
+            List<GraphVertexEntity<Account>> entities = build(accounts);
+            long built = allocationBean.getThreadAllocatedBytes(threadId);
+            List<String> sqlList = generate(entities, writeMode);
+            long generated = allocationBean.getThreadAllocatedBytes(threadId);
+            submit(sqlList);
+            long submitted = allocationBean.getThreadAllocatedBytes(threadId);
+            buildBytes += built - start;
+            generateBytes += generated - built;
+            submitBytes += submitted - generated;
+        }
+        long entities = (long) BATCH_SIZE * MEASURE_ROUNDS;
+        System.out.printf("%s VERTEX bytes/entity: build=%d, generate=%d, chunk+submit=%d, total=%d (sink=%d)%n",
+                writeMode, buildBytes / entities, generateBytes / entities, submitBytes / entities,
+                (buildBytes + generateBytes + submitBytes) / entities, this.sink);
+    }
+
+    private List<GraphVertexEntity<Account>> build(List<Account> accounts) {
+        List<GraphVertexEntity<Account>> entities = Lists.newArrayListWithExpectedSize(accounts.size());
+        for (Account account : accounts) {
+            entities.add(this.factory.buildGraphVertexEntity(account));
+        }
+        return entities;
+    }
+
+    private List<String> generate(List<GraphVertexEntity<Account>> entities, GraphWriteModeEnum writeMode) {
+        return new NebulaBatchVertexUpdate<>(entities, writeMode, this.chunkPolicy.getMaxBytes()).getSqlList();
+    }
+
+    /**
+     * 按分批提交时session生成的ngql，首次使用session时带use语句
+     */
+    private void submit(List<String> sqlList) {
+        NebulaBatchChunker chunker = new NebulaBatchChunker(sqlList, this.chunkPolicy);
+        while (chunker.hasNext()) {
+            BatchChunk chunk = chunker.next();
+            this.sink += NebulaSessionWrapper.joinStatements("benchmark", chunk.getStatements()).length();
+        }
+    }
+
+    @GraphVertex(value = "account", keyPolicy = GraphKeyPolicy.string_key)
+    public static class Account {
+
+        @GraphProperty(value = "account_id", required = true, propertyTypeEnum = GraphPropertyTypeEnum.GRAPH_VERTEX_ID)
+        private String id;
+
+        @GraphProperty(value = "name", dataType = GraphDataTypeEnum.STRING)
+        private String name;
+
+        @GraphProperty(value = "age", dataType = GraphDataTypeEnum.INT)
+        private Integer age;
+
+        public Account(String id, String name, Integer age) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+}